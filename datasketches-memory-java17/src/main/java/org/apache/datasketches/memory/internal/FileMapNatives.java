@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.internal;
+
+import static java.lang.invoke.MethodType.methodType;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.nio.channels.FileChannel;
+
+/**
+ * Extracts the version-dependent native methods used to map files and to load, check and
+ * force mapped memory into a standalone class. These methods have moved between JDK internal
+ * classes in later versions. The appropriate class will be loaded by the class loader
+ * depending on the Java version that is used.
+ * For more information, see: https://openjdk.java.net/jeps/238
+ *
+ * <p>This version is for JDK 17 and later, where load0, isLoaded0 and force0 are in
+ * java.nio.MappedMemoryUtils. map0 and unmap0 are in sun.nio.ch.FileChannelImpl through JDK 18
+ * and in sun.nio.ch.FileDispatcherImpl from JDK 19. The methods are looked up once as method
+ * handles, so each call is a direct call without reflection. This requires the packages
+ * java.nio and sun.nio.ch of java.base to be opened to this module.</p>
+ *
+ * @author Lee Rhodes
+ */
+final class FileMapNatives {
+  private static final MethodHandle MAP0; //(RandomAccessFile, int, long, long) long
+  private static final MethodHandle UNMAP0; //(long, long) void
+  private static final MethodHandle LOAD0; //(long, long) void
+  private static final MethodHandle IS_LOADED0; //(long, long, long) boolean
+  private static final MethodHandle FORCE0; //(FileDescriptor, long, long) void
+
+  static {
+    try {
+      final MethodHandles.Lookup lookup = MethodHandles.lookup();
+      final Class<?> channelClass = Class.forName("sun.nio.ch.FileChannelImpl");
+      final MethodHandles.Lookup channelLookup =
+          MethodHandles.privateLookupIn(channelClass, lookup);
+      MethodHandle map0;
+      MethodHandle unmap0;
+      try { //JDK 17 and 18
+        map0 = channelLookup.findVirtual(channelClass, "map0",
+            methodType(long.class, int.class, long.class, long.class, boolean.class));
+        map0 = MethodHandles.filterArguments(map0, 0,
+            lookup.findVirtual(RandomAccessFile.class, "getChannel",
+                methodType(FileChannel.class))
+            .asType(methodType(channelClass, RandomAccessFile.class)));
+        unmap0 = channelLookup.findStatic(channelClass, "unmap0",
+            methodType(int.class, long.class, long.class));
+      } catch (final NoSuchMethodException e) { //JDK 19 and later
+        final Class<?> dispatcherClass = Class.forName("sun.nio.ch.FileDispatcherImpl");
+        map0 = channelLookup.findStatic(dispatcherClass, "map0", methodType(long.class,
+            FileDescriptor.class, int.class, long.class, long.class, boolean.class));
+        map0 = MethodHandles.filterArguments(map0, 0,
+            lookup.findVirtual(RandomAccessFile.class, "getFD", methodType(FileDescriptor.class)));
+        unmap0 = channelLookup.findStatic(dispatcherClass, "unmap0",
+            methodType(int.class, long.class, long.class));
+      }
+      MAP0 = MethodHandles.insertArguments(map0, 4, false); //isSync is only for NVRAM
+      UNMAP0 = unmap0.asType(methodType(void.class, long.class, long.class));
+
+      final Class<?> utilsClass = Class.forName("java.nio.MappedMemoryUtils");
+      final MethodHandles.Lookup utilsLookup = MethodHandles.privateLookupIn(utilsClass, lookup);
+      LOAD0 = utilsLookup.findStatic(utilsClass, "load0",
+          methodType(void.class, long.class, long.class));
+      IS_LOADED0 = utilsLookup.findStatic(utilsClass, "isLoaded0",
+          methodType(boolean.class, long.class, long.class, long.class));
+      FORCE0 = utilsLookup.findStatic(utilsClass, "force0",
+          methodType(void.class, FileDescriptor.class, long.class, long.class));
+    } catch (final ReflectiveOperationException | RuntimeException e) {
+      throw new RuntimeException("Could not look up static methods: " + e);
+    }
+  }
+
+  private FileMapNatives() { }
+
+  /**
+   * Maps the given range of the file.
+   * @param raf the file
+   * @param mapMode one of MAP_RO, MAP_RW or MAP_PV
+   * @param position the page aligned position in the file
+   * @param lengthBytes the length of the mapping
+   * @return the native base address of the mapping
+   * @throws IOException if the mapping failed
+   */
+  static long map0(final RandomAccessFile raf, final int mapMode, final long position,
+      final long lengthBytes) throws IOException {
+    try {
+      return (long) MAP0.invokeExact(raf, mapMode, position, lengthBytes);
+    } catch (final IOException | RuntimeException | Error e) {
+      throw e;
+    } catch (final Throwable t) {
+      throw new RuntimeException(t);
+    }
+  }
+
+  /**
+   * Removes the given range of a mapping.
+   * @param address the page aligned address
+   * @param lengthBytes the length of the range
+   */
+  static void unmap0(final long address, final long lengthBytes) {
+    try {
+      UNMAP0.invokeExact(address, lengthBytes);
+    } catch (final RuntimeException | Error e) {
+      throw e;
+    } catch (final Throwable t) {
+      throw new RuntimeException(t);
+    }
+  }
+
+  /**
+   * Advises the operating system that the given range will be needed soon.
+   * @param address the page aligned address
+   * @param lengthBytes the length of the range
+   */
+  static void load0(final long address, final long lengthBytes) {
+    try {
+      LOAD0.invokeExact(address, lengthBytes);
+    } catch (final RuntimeException | Error e) {
+      throw e;
+    } catch (final Throwable t) {
+      throw new RuntimeException(t);
+    }
+  }
+
+  /**
+   * Returns true if all pages of the given range are resident in physical memory.
+   * @param address the page aligned address
+   * @param lengthBytes the length of the range
+   * @param pageCount the number of pages of the range
+   * @return true if all pages of the given range are resident
+   */
+  static boolean isLoaded0(final long address, final long lengthBytes, final long pageCount) {
+    try {
+      return (boolean) IS_LOADED0.invokeExact(address, lengthBytes, pageCount);
+    } catch (final RuntimeException | Error e) {
+      throw e;
+    } catch (final Throwable t) {
+      throw new RuntimeException(t);
+    }
+  }
+
+  /**
+   * Writes the given range of a mapping back to the file.
+   * @param fd the file descriptor of the file
+   * @param address the page aligned address
+   * @param lengthBytes the length of the range
+   * @throws IOException if writing failed
+   */
+  static void force0(final FileDescriptor fd, final long address, final long lengthBytes)
+      throws IOException {
+    try {
+      FORCE0.invokeExact(fd, address, lengthBytes);
+    } catch (final IOException | RuntimeException | Error e) {
+      throw e;
+    } catch (final Throwable t) {
+      throw new RuntimeException(t);
+    }
+  }
+
+}
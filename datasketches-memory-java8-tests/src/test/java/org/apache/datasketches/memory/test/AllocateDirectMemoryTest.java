@@ -22,9 +22,11 @@ package org.apache.datasketches.memory.test;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import org.apache.datasketches.memory.BaseState;
+import org.apache.datasketches.memory.DefaultMemoryRequestServer;
 import org.apache.datasketches.memory.MemoryRequestServer;
 import org.apache.datasketches.memory.WritableHandle;
 import org.apache.datasketches.memory.WritableMemory;
@@ -123,6 +125,143 @@ public class AllocateDirectMemoryTest {
     }
   }
 
+  @Test
+  public void checkAlignedAllocateDirect() throws Exception {
+    final long[] alignments = {1, 8, 64, 4096, 2L << 20};
+    for (long alignment : alignments) {
+      try (WritableHandle wh = WritableMemory.allocateDirect(100, alignment, null)) {
+        WritableMemory wMem = wh.getWritable();
+        assertEquals(wMem.getCumulativeOffset() % alignment, 0);
+        assertEquals(wMem.getCapacity(), 100);
+        wMem.putLong(92, -1L);
+        assertEquals(wMem.getLong(92), -1L);
+        assertTrue(wMem.getMemoryRequestServer() instanceof DefaultMemoryRequestServer);
+      }
+    }
+    try {
+      WritableMemory.allocateDirect(100, 48, null);
+      fail();
+    } catch (IllegalArgumentException e) {
+      //OK
+    }
+    assertEquals(BaseState.getCurrentDirectMemoryAllocations(), 0L);
+  }
+
+  @Test
+  public void checkAllocateDirectHugePages() throws Exception {
+    final long hugePage = 2L << 20;
+    final long cap = hugePage + 1;
+    WritableMemory wMem;
+    try (WritableHandle wh = WritableMemory.allocateDirectHugePages(cap, null)) {
+      wMem = wh.getWritable();
+      assertEquals(wMem.getCapacity(), cap);
+      assertTrue(wMem.isDirect());
+      assertEquals(wMem.getCumulativeOffset() % hugePage, 0);
+      assertEquals(BaseState.getCurrentDirectMemoryHugePageAllocations(), 1L);
+      assertEquals(BaseState.getCurrentDirectMemoryHugePageAllocated(), 2 * hugePage);
+      assertEquals(BaseState.getCurrentDirectMemoryAllocations(), 0L);
+      assertEquals(wMem.getLong(0), 0L); //zero filled
+      assertEquals(wMem.getByte(cap - 1), 0);
+      wMem.putByte(cap - 1, (byte) 7);
+      wMem.putLong(hugePage - 8, -1L);
+      assertEquals(wMem.getByte(cap - 1), 7);
+      assertEquals(wMem.getLong(hugePage - 8), -1L);
+    }
+    assertFalse(wMem.isValid());
+    assertEquals(BaseState.getCurrentDirectMemoryHugePageAllocations(), 0L);
+    assertEquals(BaseState.getCurrentDirectMemoryHugePageAllocated(), 0L);
+    try {
+      WritableMemory.allocateDirectHugePages(0, null);
+      fail();
+    } catch (IllegalArgumentException e) {
+      //OK
+    }
+  }
+
+  @Test
+  public void checkResize() throws Exception {
+    final long[] alignments = {8, 4096};
+    for (long alignment : alignments) {
+      MemoryRequestServer svr = new DefaultMemoryRequestServer();
+      try (WritableHandle wh = WritableMemory.allocateDirect(64, alignment, svr)) {
+        WritableMemory wMem = wh.getWritable();
+        WritableMemory reg = wMem.writableRegion(8, 8);
+        for (int i = 0; i < 8; i++) { wMem.putLong(i << 3, i); }
+        WritableMemory wMem2 = wh.resize(1 << 20);
+        assertTrue(wh.getWritable() == wMem2);
+        assertFalse(wMem.isValid());
+        assertFalse(reg.isValid());
+        assertEquals(wMem2.getCapacity(), 1 << 20);
+        assertEquals(wMem2.getCumulativeOffset() % alignment, 0);
+        assertTrue(wMem2.getMemoryRequestServer() == svr);
+        for (int i = 0; i < 8; i++) { assertEquals(wMem2.getLong(i << 3), i); }
+        wMem2.putLong((1 << 20) - 8, -1L);
+        assertEquals(BaseState.getCurrentDirectMemoryAllocations(), 1L);
+        assertEquals(BaseState.getCurrentDirectMemoryAllocated(), 1L << 20);
+
+        WritableMemory wMem3 = wh.resize(16);
+        assertEquals(wMem3.getLong(8), 1L);
+        assertEquals(BaseState.getCurrentDirectMemoryAllocated(), 16L);
+      }
+      assertEquals(BaseState.getCurrentDirectMemoryAllocations(), 0L);
+      assertEquals(BaseState.getCurrentDirectMemoryAllocated(), 0L);
+    }
+  }
+
+  @Test
+  public void checkResizeKeepsAlignment() throws Exception {
+    final long alignment = 64;
+    try (WritableHandle wh = WritableMemory.allocateDirect(24, alignment, null)) {
+      WritableMemory wMem = wh.getWritable();
+      wMem.putLong(16, 42L);
+      long cap = 24;
+      for (int i = 0; i < 200; i++) {
+        cap = ((i & 1) == 0) ? cap + 8 + (i * 40) : cap - 8;
+        wMem = wh.resize(cap);
+        assertEquals(wMem.getCumulativeOffset() % alignment, 0);
+        assertEquals(wMem.getLong(16), 42L);
+      }
+      assertEquals(BaseState.getCurrentDirectMemoryAllocated(), cap);
+    }
+  }
+
+  @Test
+  public void checkResizeNonNativeAndClosed() throws Exception {
+    WritableHandle h = ReflectUtil.wrapDirect(16, Util.nonNativeByteOrder, null);
+    h.getWritable().putLong(0, 1L);
+    WritableMemory wMem = h.resize(32);
+    assertEquals(wMem.getTypeByteOrder(), Util.nonNativeByteOrder);
+    assertEquals(wMem.getLong(0), 1L);
+    h.close();
+    try {
+      h.resize(64);
+      fail();
+    } catch (IllegalStateException e) {
+      //OK
+    }
+  }
+
+  @Test
+  public void checkResizeHugePages() throws Exception {
+    final long hugePage = 2L << 20;
+    try (WritableHandle wh = WritableMemory.allocateDirectHugePages(64, null)) {
+      WritableMemory wMem = wh.getWritable();
+      wMem.putLong(56, 7L);
+      final long addr = wMem.getCumulativeOffset();
+      WritableMemory wMem2 = wh.resize(1024); //same huge page
+      assertFalse(wMem.isValid());
+      assertEquals(wMem2.getCumulativeOffset(), addr);
+      assertEquals(wMem2.getLong(56), 7L);
+      WritableMemory wMem3 = wh.resize(hugePage + 8);
+      assertFalse(wMem2.isValid());
+      assertEquals(wMem3.getLong(56), 7L);
+      assertEquals(wMem3.getLong(hugePage), 0L);
+      assertEquals(BaseState.getCurrentDirectMemoryHugePageAllocations(), 1L);
+      assertEquals(BaseState.getCurrentDirectMemoryHugePageAllocated(), 2 * hugePage);
+    }
+    assertEquals(BaseState.getCurrentDirectMemoryHugePageAllocations(), 0L);
+  }
+
   @Test
   public void printlnTest() {
     println("PRINTING: "+this.getClass().getName());
@@ -26,6 +26,7 @@ package org.apache.datasketches.memory.test;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.datasketches.memory.internal.Util.getResourceFile;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -37,14 +38,22 @@ import java.io.UnsupportedEncodingException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.ByteOrder;
+import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.datasketches.memory.BaseState;
 import org.apache.datasketches.memory.MapHandle;
 import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableBuffer;
 import org.apache.datasketches.memory.WritableHandle;
 import org.apache.datasketches.memory.WritableMapHandle;
 import org.apache.datasketches.memory.WritableMemory;
 import org.apache.datasketches.memory.internal.ReadOnlyException;
+import org.apache.datasketches.memory.internal.UnsafeUtil;
 import org.apache.datasketches.memory.internal.Util;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -154,6 +163,301 @@ public class AllocateDirectWritableMapMemoryTest {
     }
   }
 
+  @Test
+  public void checkResize() throws Exception {
+    File file = createFile("resize.bin", "");
+    assertTrue(file.setWritable(true, false));
+    try (WritableMapHandle h = WritableMemory.writableMap(file, 0L, 64, Util.nonNativeByteOrder)) {
+      WritableMemory wmem = h.getWritable();
+      WritableMemory reg = wmem.writableRegion(0, 8);
+      for (int i = 0; i < 8; i++) { wmem.putLong(i << 3, i); }
+      WritableMemory wmem2 = h.resize(1 << 20);
+      assertTrue(h.getWritable() == wmem2);
+      assertFalse(wmem.isValid());
+      assertFalse(reg.isValid());
+      assertEquals(wmem2.getCapacity(), 1 << 20);
+      assertEquals(wmem2.getTypeByteOrder(), Util.nonNativeByteOrder);
+      assertEquals(file.length(), 1 << 20);
+      for (int i = 0; i < 8; i++) { assertEquals(wmem2.getLong(i << 3), i); }
+      wmem2.putLong((1 << 20) - 8, -1L);
+      assertEquals(BaseState.getCurrentDirectMemoryMapAllocations(), 1L);
+      assertEquals(BaseState.getCurrentDirectMemoryMapAllocated(), 1L << 20);
+
+      WritableMemory wmem3 = h.resize(16); //shrink does not truncate the file
+      assertEquals(wmem3.getLong(8), 1L);
+      assertEquals(file.length(), 1 << 20);
+      h.force();
+    }
+    assertEquals(BaseState.getCurrentDirectMemoryMapAllocations(), 0L);
+    try (MapHandle h = Memory.map(file, 0, 1 << 20, Util.nonNativeByteOrder)) {
+      assertEquals(h.get().getLong((1 << 20) - 8), -1L);
+    }
+  }
+
+  @Test
+  public void checkExtend() throws Exception {
+    File file = createFile("extend.bin", "");
+    assertTrue(file.setWritable(true, false));
+    try (WritableMapHandle h = WritableMemory.writableMap(file, 0L, 4096, 1 << 20,
+        ByteOrder.nativeOrder())) {
+      WritableMemory wmem = h.getWritable();
+      WritableMemory reg = wmem.writableRegion(8, 8);
+      final long address = wmem.getCumulativeOffset();
+      wmem.putLong(0, 42L);
+      assertEquals(file.length(), 4096);
+      assertEquals(BaseState.getCurrentDirectMemoryMapAllocated(), 1L << 20);
+
+      WritableMemory wmem2 = h.extend(1 << 16); //in place
+      assertTrue(h.getWritable() == wmem2);
+      assertTrue(wmem.isValid());
+      assertTrue(reg.isValid());
+      assertEquals(wmem.getCapacity(), 4096);
+      assertEquals(wmem2.getCapacity(), 1 << 16);
+      assertEquals(wmem2.getCumulativeOffset(), address);
+      assertEquals(file.length(), 1 << 16);
+      assertEquals(wmem2.getLong(0), 42L);
+      wmem2.putLong((1 << 16) - 8, -1L);
+
+      try {
+        h.extend(4096);
+        fail();
+      } catch (IllegalArgumentException e) { } //expected
+
+      WritableMemory wmem3 = h.extend(3 << 20); //beyond the reservation
+      assertFalse(wmem.isValid());
+      assertFalse(wmem2.isValid());
+      assertEquals(wmem3.getCapacity(), 3 << 20);
+      assertEquals(wmem3.getLong(0), 42L);
+      assertEquals(wmem3.getLong((1 << 16) - 8), -1L);
+      assertEquals(file.length(), 3 << 20);
+      assertEquals(BaseState.getCurrentDirectMemoryMapAllocated(), 6L << 20);
+
+      WritableMemory wmem4 = h.extend(4 << 20); //in place, as the reservation was doubled
+      assertTrue(wmem3.isValid());
+      assertEquals(wmem4.getCumulativeOffset(), wmem3.getCumulativeOffset());
+      assertEquals(BaseState.getCurrentDirectMemoryMapAllocations(), 1L);
+    }
+    assertEquals(BaseState.getCurrentDirectMemoryMapAllocations(), 0L);
+    assertEquals(BaseState.getCurrentDirectMemoryMapAllocated(), 0L);
+  }
+
+  @Test
+  public void checkRangedAndAsyncLoadForce() throws Exception {
+    File file = createFile("ranged.bin", "");
+    assertTrue(file.setWritable(true, false));
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (WritableMapHandle h = WritableMemory.writableMap(file, 0L, 1 << 16,
+        ByteOrder.nativeOrder())) {
+      WritableMemory wmem = h.getWritable();
+      wmem.putLong(5000, 42L);
+      h.force(4999, 9);
+      h.force(0, 0);
+      h.load(100, 10000);
+      h.load();
+      h.forceAsync(0, 1 << 16, executor).get();
+      h.loadAsync(8192, 8192, executor).get();
+      try {
+        h.force(1, 1 << 16);
+        fail();
+      } catch (IllegalArgumentException e) { } //expected
+      h.close();
+      try {
+        h.loadAsync(0, 8, executor);
+        fail();
+      } catch (IllegalStateException e) { } //expected
+    } finally {
+      executor.shutdown();
+    }
+    try (MapHandle h = Memory.map(file, 0, 1 << 16, ByteOrder.nativeOrder())) {
+      assertEquals(h.get().getLong(5000), 42L);
+    }
+  }
+
+  @Test
+  public void checkAsyncAfterClose() throws Exception {
+    File file = createFile("async.bin", "");
+    assertTrue(file.setWritable(true, false));
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final CountDownLatch started = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      WritableMapHandle h = WritableMemory.writableMap(file, 0L, 1 << 16, ByteOrder.nativeOrder());
+      executor.execute(() -> {
+        started.countDown();
+        try { release.await(); } catch (InterruptedException e) { }
+      });
+      final CompletableFuture<Void> f = h.loadAsync(0, 1 << 16, executor);
+      started.await();
+      h.close(); //nothing in progress yet, so the queued load finds the mapping closed
+      release.countDown();
+      try {
+        f.get();
+        fail();
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof IllegalStateException);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void checkForceDirty() throws Exception {
+    File file = createFile("dirty.bin", "");
+    assertTrue(file.setWritable(true, false));
+    try (WritableMapHandle h = WritableMemory.writableMap(file, 0L, 1 << 20, 2 << 20,
+        Util.nonNativeByteOrder)) {
+      try {
+        h.forceDirty();
+        fail();
+      } catch (IllegalStateException e) { } //expected
+      WritableMemory untracked = h.getWritable();
+      WritableMemory wmem = h.trackDirtyPages();
+      assertTrue(h.getWritable() == wmem);
+      assertEquals(wmem.getTypeByteOrder(), Util.nonNativeByteOrder);
+      untracked.putLong(300_000, 1L);
+      assertEquals(h.forceDirty(), 0);
+
+      wmem.putLong(0, 1L);
+      wmem.writableRegion(100_000, 1000).putInt(8, 2);
+      WritableBuffer wbuf = wmem.asWritableBuffer();
+      wbuf.setPosition(500_000);
+      wbuf.putLong(3L);
+      assertEquals(h.forceDirty(), 3);
+      assertEquals(h.forceDirty(), 0);
+
+      WritableMemory src = WritableMemory.allocate(16);
+      src.copyTo(0, wmem, 700_000, 16);
+      wmem.fill(900_000, 1, (byte) 1);
+      WritableMemory wmem2 = h.extend(3 << 20); //remapped, tracking continues
+      assertEquals(wmem2.getLong(0), 1L);
+      wmem2.putCharsToUtf8(3 << 19, "abc");
+      assertEquals(h.forceDirty(), 3);
+    }
+    try (MapHandle h = Memory.map(file, 0, 1 << 20, Util.nonNativeByteOrder)) {
+      assertEquals(h.get().getLong(500_000), 3L);
+    }
+  }
+
+  @Test
+  public void checkDirtyPagesOfLargeMapping() throws Exception {
+    //only the bitmap is built; the addresses are never accessed
+    Class<?> dpClass = ReflectUtil.getClass("org.apache.datasketches.memory.internal.DirtyPages");
+    long pageSize = UnsafeUtil.unsafe.pageSize();
+    long base = 1L << 40;
+    long mappedBytes = 50L << 30;
+    Object dp = ReflectUtil.getInstance(
+        ReflectUtil.getConstructor(dpClass, long.class, long.class), base, mappedBytes);
+    Method mark = ReflectUtil.getMethod(dpClass, "mark", long.class, long.class);
+    Method clear = ReflectUtil.getMethod(dpClass, "clear", (Class<?>[])null);
+    long lastPage = (mappedBytes / pageSize) - 1;
+    mark.invoke(dp, base + (5L << 30), 8L);
+    mark.invoke(dp, (base + mappedBytes) - 8, 8L);
+    long[] dirty = (long[]) clear.invoke(dp);
+    assertEquals(dirty.length, (int) ((lastPage + 64) >>> 6));
+    BitSet pages = BitSet.valueOf(dirty);
+    assertEquals(pages.cardinality(), 2);
+    assertTrue(pages.get((int) ((5L << 30) / pageSize)));
+    assertTrue(pages.get((int) lastPage));
+  }
+
+  @Test
+  public void checkResidentPages() throws Exception {
+    File file = createFile("resident.bin", "");
+    assertTrue(file.setWritable(true, false));
+    final int cap = 1 << 16;
+    try (WritableMapHandle h = WritableMemory.writableMap(file, 0L, cap,
+        ByteOrder.nativeOrder())) {
+      WritableMemory wmem = h.getWritable();
+      for (int i = 0; i < cap; i += 512) { wmem.putByte(i, (byte) 1); } //touch every page
+      BitSet pages = h.getResidentPages(0, cap);
+      long count = h.getResidentPageCount(0, cap);
+      println("Resident pages: " + count);
+      assertEquals(pages.cardinality(), count);
+      assertEquals(pages.nextClearBit(0), count);
+      assertTrue(count > 0);
+      assertTrue(h.isLoaded());
+      assertEquals(h.getResidentPageCount(cap - 1, 1), 1L);
+      assertEquals(h.getResidentPages(100, 1).cardinality(), 1);
+      assertEquals(h.getResidentPageCount(0, 0), 0L);
+      assertTrue(BaseState.getCurrentDirectMemoryMapResidentPages() >= count);
+      try {
+        h.getResidentPageCount(1, cap);
+        fail();
+      } catch (IllegalArgumentException e) { } //expected
+      h.close();
+      try {
+        h.getResidentPages(0, 8);
+        fail();
+      } catch (IllegalStateException e) { } //expected
+    }
+  }
+
+  @Test
+  public void checkPartlyResidentPages() throws Exception {
+    File file = createFile("partlyResident.bin", "");
+    assertTrue(file.setWritable(true, false));
+    final int pageSize = UnsafeUtil.unsafe.pageSize();
+    final int pageCount = 1000;
+    try (WritableMapHandle h = WritableMemory.writableMap(file, 0L, (long) pageCount * pageSize,
+        ByteOrder.nativeOrder())) {
+      WritableMemory wmem = h.getWritable();
+      for (int i = 0; i < pageCount; i += 2) { wmem.putByte((long) i * pageSize, (byte) 1); }
+      BitSet pages = h.getResidentPages(0, (long) pageCount * pageSize);
+      long count = h.getResidentPageCount(0, (long) pageCount * pageSize);
+      assertEquals(pages.cardinality(), count);
+      for (int i = 0; i < pageCount; i += 2) { assertTrue(pages.get(i)); }
+      assertTrue(count >= (pageCount / 2));
+      assertTrue(BaseState.getCurrentDirectMemoryMapResidentPages() >= 0);
+    }
+  }
+
+  @Test
+  public void checkPrivateMap() throws Exception {
+    File file = createFile("private.bin", "");
+    assertTrue(file.setWritable(true, false));
+    try (WritableMapHandle h = WritableMemory.writableMap(file, 0L, 1 << 16,
+        ByteOrder.nativeOrder())) {
+      h.getWritable().putLong(8, 42L);
+    }
+    assertTrue(file.setWritable(false, false));
+    try (WritableMapHandle h = WritableMemory.writableMapPrivate(file, 0L, 1 << 16,
+        ByteOrder.nativeOrder())) {
+      WritableMemory wmem = h.getWritable();
+      assertFalse(wmem.isReadOnly());
+      assertEquals(wmem.getLong(8), 42L);
+      wmem.putLong(8, 99L);
+      wmem.putLong((1 << 16) - 8, -1L);
+      assertEquals(wmem.getLong(8), 99L);
+      try (MapHandle h2 = Memory.map(file)) {
+        assertEquals(h2.get().getLong(8), 42L); //not visible in the file
+      }
+      try {
+        h.force();
+        fail();
+      } catch (UnsupportedOperationException e) { } //expected
+      try {
+        h.extend(1 << 17);
+        fail();
+      } catch (UnsupportedOperationException e) { } //expected
+      try {
+        h.trackDirtyPages();
+        fail();
+      } catch (UnsupportedOperationException e) { } //expected
+      assertEquals(h.getWritable().getLong(8), 99L); //still usable
+    }
+    try (MapHandle h = Memory.map(file)) {
+      assertEquals(h.get().getLong(8), 42L);
+      assertEquals(h.get().getLong((1 << 16) - 8), 0L);
+    }
+    assertEquals(file.length(), 1 << 16);
+    try {
+      WritableMemory.writableMapPrivate(file, 0L, 1 << 17, ByteOrder.nativeOrder());
+      fail();
+    } catch (IllegalArgumentException e) { } //expected beyond the end of the file
+    assertTrue(file.setWritable(true, false));
+  }
+
   @SuppressWarnings("resource")
   @Test(expectedExceptions = RuntimeException.class)
   public void testMapException() throws IOException {
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+
+import org.apache.datasketches.memory.BaseState;
+import org.apache.datasketches.memory.WritableHandle;
+import org.apache.datasketches.memory.WritableMapHandle;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.memory.internal.Util;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class AllocationTrackerTest {
+
+  @AfterMethod
+  public void resetSampleRate() {
+    BaseState.setLeakTrackingSampleRate(0.0);
+  }
+
+  @Test
+  public void checkTrackDirect() throws Exception {
+    BaseState.setLeakTrackingSampleRate(1.0);
+    assertEquals(BaseState.getLeakTrackingSampleRate(), 1.0);
+    final long tracked = BaseState.getTrackedAllocations();
+    try (WritableHandle wh = WritableMemory.allocateDirect(1000)) {
+      assertEquals(BaseState.getTrackedAllocations(), tracked + 1);
+      String dump = BaseState.dumpTrackedAllocations();
+      println(dump);
+      assertTrue(dump.contains("Direct memory of 1000 bytes"));
+      assertTrue(dump.contains("checkTrackDirect"));
+      wh.resize(2000);
+      assertEquals(BaseState.getTrackedAllocations(), tracked + 1);
+      assertTrue(BaseState.dumpTrackedAllocations().contains("Direct memory of 2000 bytes"));
+    }
+    assertEquals(BaseState.getTrackedAllocations(), tracked);
+  }
+
+  @Test
+  public void checkTrackMap() throws Exception {
+    BaseState.setLeakTrackingSampleRate(1.0);
+    final long tracked = BaseState.getTrackedAllocations();
+    File file = File.createTempFile("tracked", ".bin");
+    file.deleteOnExit();
+    try (WritableMapHandle h = WritableMemory.writableMap(file, 0, 64, Util.nativeByteOrder)) {
+      assertEquals(BaseState.getTrackedAllocations(), tracked + 1);
+      assertTrue(BaseState.dumpTrackedAllocations().contains("Memory map of 64 bytes"));
+    }
+    assertEquals(BaseState.getTrackedAllocations(), tracked);
+  }
+
+  @Test
+  public void checkNotSampled() throws Exception {
+    final long tracked = BaseState.getTrackedAllocations();
+    try (WritableHandle wh = WritableMemory.allocateDirect(8)) {
+      assertEquals(BaseState.getTrackedAllocations(), tracked);
+    }
+  }
+
+  @Test
+  public void checkBadSampleRate() {
+    try {
+      BaseState.setLeakTrackingSampleRate(1.5);
+      fail();
+    } catch (IllegalArgumentException e) {
+      //OK
+    }
+    try {
+      BaseState.setLeakTrackingSampleRate(Double.NaN);
+      fail();
+    } catch (IllegalArgumentException e) {
+      //OK
+    }
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.nio.ByteOrder;
+
+import org.apache.datasketches.memory.Arena;
+import org.apache.datasketches.memory.BaseState;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.memory.internal.Util;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class ArenaTest {
+
+  @Test
+  public void checkAllocateAndClose() {
+    final long allocs = BaseState.getCurrentDirectMemoryAllocations();
+    WritableMemory m1;
+    WritableMemory m2;
+    try (Arena arena = Arena.create(1024)) {
+      assertEquals(BaseState.getCurrentDirectMemoryAllocations(), allocs + 1);
+      m1 = arena.allocate(13);
+      m2 = arena.allocate(64);
+      assertEquals(BaseState.getCurrentDirectMemoryAllocations(), allocs + 1);
+      assertTrue(m1.isDirect());
+      assertEquals(m1.getCapacity(), 13);
+      assertEquals(m2.getCumulativeOffset() - m1.getCumulativeOffset(), 16); //8-byte aligned
+      assertEquals(arena.getAllocatedBytes(), 80);
+      assertEquals(arena.getCapacity(), 1024);
+      for (int i = 0; i < 8; i++) { m2.putLong(i << 3, i); }
+      m1.fill((byte) -1);
+      for (int i = 0; i < 8; i++) { assertEquals(m2.getLong(i << 3), i); }
+    }
+    assertFalse(m1.isValid());
+    assertFalse(m2.isValid());
+    assertEquals(BaseState.getCurrentDirectMemoryAllocations(), allocs);
+  }
+
+  @Test
+  public void checkAlignment() {
+    try (Arena arena = Arena.create(1 << 16)) {
+      arena.allocate(3);
+      WritableMemory m = arena.allocate(100, 4096);
+      assertEquals(m.getCumulativeOffset() & 4095, 0);
+      m = arena.allocate(1, 1);
+      m = arena.allocate(8, 64);
+      assertEquals(m.getCumulativeOffset() & 63, 0);
+      try {
+        arena.allocate(8, 3);
+        fail();
+      } catch (IllegalArgumentException e) { } //expected
+    }
+  }
+
+  @Test
+  public void checkByteOrder() {
+    try (Arena arena = Arena.create(64)) {
+      WritableMemory m = arena.allocate(8, 8, Util.nonNativeByteOrder);
+      assertEquals(m.getTypeByteOrder(), Util.nonNativeByteOrder);
+      m.putLong(0, 1L);
+      assertEquals(m.getLong(0), 1L);
+      WritableMemory n = m.writableRegion(0, 8, ByteOrder.nativeOrder());
+      assertEquals(n.getLong(0), Long.reverseBytes(1L));
+    }
+  }
+
+  @Test
+  public void checkExhausted() {
+    try (Arena arena = Arena.create(64)) {
+      arena.allocate(60);
+      try {
+        arena.allocate(1); //aligned to 64
+        fail();
+      } catch (IllegalStateException e) { } //expected
+      WritableMemory m = arena.allocate(4, 1);
+      assertEquals(m.getCapacity(), 4);
+      assertEquals(arena.getAllocatedBytes(), 64);
+      assertEquals(arena.allocate(0).getCapacity(), 0);
+    }
+  }
+
+  @Test
+  public void checkClosed() {
+    Arena arena = Arena.create(64);
+    assertTrue(arena.isValid());
+    arena.close();
+    assertFalse(arena.isValid());
+    arena.close(); //no-op
+    try {
+      arena.allocate(8);
+      fail();
+    } catch (IllegalStateException e) { } //expected
+  }
+
+  @Test
+  public void checkBadArgs() {
+    try { Arena.create(0); fail(); } catch (IllegalArgumentException e) { }
+    try (Arena arena = Arena.create(64)) {
+      try { arena.allocate(-1); fail(); } catch (IllegalArgumentException e) { }
+    }
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
@@ -144,6 +144,49 @@ public class CopyMemoryTest {
         copyLen));
   }
 
+  @Test
+  public void testOverlappingCopySmallShiftDirect() throws Exception {
+    int lenBytes = (UNSAFE_COPY_THRESHOLD_BYTES * 3) + 7;
+    byte[] referenceBytes = new byte[lenBytes];
+    ThreadLocalRandom.current().nextBytes(referenceBytes);
+    Memory referenceMem = Memory.wrap(referenceBytes);
+    try (WritableHandle wh = WritableMemory.allocateDirect(lenBytes)) {
+      WritableMemory mem = wh.getWritable();
+      long copyLen = lenBytes - 3;
+      mem.putByteArray(0, referenceBytes, 0, lenBytes);
+      mem.copyTo(0, mem, 3, copyLen); //backward
+      Assert.assertEquals(0, mem.compareTo(3, copyLen, referenceMem, 0, copyLen));
+      mem.putByteArray(0, referenceBytes, 0, lenBytes);
+      mem.copyTo(3, mem, 0, copyLen); //forward
+      Assert.assertEquals(0, mem.compareTo(0, copyLen, referenceMem, 3, copyLen));
+    }
+  }
+
+  @Test
+  public void checkParallelCopyFillAndClear() throws Exception {
+    int longs = (UNSAFE_COPY_THRESHOLD_BYTES * 5) + 3; //40MB + 24 bytes
+    try (WritableHandle wh = genWRH(longs, false)) {
+      WritableMemory srcMem = wh.getWritable();
+      WritableMemory dstMem = WritableMemory.allocate((longs << 3) + 5);
+      srcMem.copyToParallel(0, dstMem, 5, longs << 3);
+      check(dstMem.region(5, longs << 3), 0, longs, 1);
+      srcMem.copyToParallel(8, srcMem, 0, 64); //small overlapping copy is sequential
+      check(srcMem, 0, 8, 2);
+
+      dstMem.fillParallel(3, (longs << 3) - 1, (byte) 7);
+      Assert.assertEquals(dstMem.getByte(2), 0);
+      for (long i = 3; i < ((longs << 3) + 2); i += 4093) {
+        Assert.assertEquals(dstMem.getByte(i), 7);
+      }
+      Assert.assertEquals(dstMem.getByte((longs << 3) + 1), 7);
+      Assert.assertNotEquals(dstMem.getByte((longs << 3) + 2), 7);
+
+      dstMem.clearParallel(0, (longs << 3) + 5);
+      Assert.assertEquals(dstMem.mismatch(0, WritableMemory.allocate((longs << 3) + 5), 0,
+          (longs << 3) + 5), -1);
+    }
+  }
+
   private static void check(Memory mem, int offsetLongs, int lengthLongs, int startValue) {
     int offBytes = offsetLongs << 3;
     for (long i = 0; i < lengthLongs; i++) {
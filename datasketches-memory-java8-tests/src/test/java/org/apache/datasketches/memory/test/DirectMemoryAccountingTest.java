@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.datasketches.memory.WritableHandle;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class DirectMemoryAccountingTest {
+
+  @Test
+  public void checkSmallAllocationsUseCredit() throws Exception {
+    final long nioReserved = ReflectUtil.getReservedMemory();
+    final long nioCount = ReflectUtil.getDirectAllocationsCount();
+    final List<WritableHandle> handles = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      handles.add(WritableMemory.allocateDirect(1024));
+    }
+    //java.nio.Bits sees at most one batch, not 100 allocations
+    assertTrue(ReflectUtil.getDirectAllocationsCount() - nioCount <= 1);
+    assertTrue(ReflectUtil.getReservedMemory() - nioReserved <= (1L << 20));
+    assertTrue(ReflectUtil.getAccountedReservedMemory() >= 100 * 1024);
+    for (WritableHandle h : handles) { h.close(); }
+  }
+
+  @Test
+  public void checkLargeAllocationsAreExact() throws Exception {
+    final long reserved = ReflectUtil.getAccountedReservedMemory();
+    final long nioReserved = ReflectUtil.getReservedMemory();
+    final long cap = 4L << 20;
+    try (WritableHandle h = WritableMemory.allocateDirect(cap)) {
+      assertEquals(ReflectUtil.getAccountedReservedMemory(), reserved + cap);
+      assertEquals(ReflectUtil.getReservedMemory(), nioReserved + cap);
+    }
+    assertEquals(ReflectUtil.getAccountedReservedMemory(), reserved);
+    assertEquals(ReflectUtil.getReservedMemory(), nioReserved);
+  }
+
+  @Test
+  public void checkConcurrentAllocations() throws Exception {
+    final int numThreads = 4;
+    final Thread[] threads = new Thread[numThreads];
+    final Throwable[] errors = new Throwable[numThreads];
+    for (int t = 0; t < numThreads; t++) {
+      final int id = t;
+      threads[t] = new Thread(() -> {
+        try {
+          for (int i = 0; i < 1000; i++) {
+            try (WritableHandle h = WritableMemory.allocateDirect(64 + i)) {
+              h.getWritable().putInt(0, i);
+            }
+          }
+        } catch (Throwable e) {
+          errors[id] = e;
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread t : threads) { t.join(); }
+    for (Throwable e : errors) {
+      if (e != null) { throw new AssertionError(e); }
+    }
+  }
+
+  @Test
+  public void checkLimit() throws Exception {
+    final long max = ReflectUtil.getMaxDirectByteBufferMemory();
+    try {
+      WritableMemory.allocateDirect(max + 1);
+      fail();
+    } catch (RuntimeException e) {
+      assertTrue(e.getCause() instanceof OutOfMemoryError);
+    }
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+
+import org.apache.datasketches.memory.BaseState;
+import org.apache.datasketches.memory.MapHandle;
+import org.apache.datasketches.memory.MappedFileCache;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMapHandle;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class MappedFileCacheTest {
+
+  @Test
+  public void checkSharedMapping() throws Exception {
+    final File file = file(1024);
+    final long maps = BaseState.getCurrentDirectMemoryMapAllocations();
+    try (MappedFileCache cache = MappedFileCache.create(1 << 20)) {
+      final MapHandle h1 = cache.map(file);
+      final MapHandle h2 = cache.map(new File(file.getParentFile(), "./" + file.getName()), 0,
+          1024, ByteOrder.BIG_ENDIAN);
+      final Memory m1 = h1.get();
+      final Memory m2 = h2.get();
+      assertEquals(cache.getMappingCount(), 1);
+      assertEquals(cache.getReferenceCount(), 2);
+      assertEquals(BaseState.getCurrentDirectMemoryMapAllocations(), maps + 1);
+      assertEquals(m1.getCumulativeOffset(), m2.getCumulativeOffset());
+      assertTrue(m1.isReadOnly());
+      assertEquals(m1.getLong(8), 0x0102030405060708L);
+      assertEquals(m2.getLong(8), Long.reverseBytes(0x0102030405060708L));
+
+      h1.close();
+      h1.close(); //no effect
+      assertFalse(m1.isValid());
+      assertTrue(m2.isValid());
+      assertEquals(cache.getReferenceCount(), 1);
+      h2.close();
+      assertEquals(cache.getReferenceCount(), 0);
+      assertEquals(cache.getMappingCount(), 1); //kept for reuse
+      try (MapHandle h3 = cache.map(file)) {
+        assertEquals(h3.get().getLong(8), 0x0102030405060708L);
+        assertEquals(BaseState.getCurrentDirectMemoryMapAllocations(), maps + 1);
+      }
+      try (MapHandle h4 = cache.map(file, 512, 512, ByteOrder.nativeOrder())) {
+        assertEquals(cache.getMappingCount(), 2);
+        assertEquals(cache.getMappedBytes(), 1536);
+      }
+    }
+    assertEquals(BaseState.getCurrentDirectMemoryMapAllocations(), maps);
+  }
+
+  @Test
+  public void checkEviction() throws Exception {
+    final File file = file(4096);
+    final long maps = BaseState.getCurrentDirectMemoryMapAllocations();
+    final MappedFileCache cache = MappedFileCache.create(2048);
+    final MapHandle h1 = cache.map(file, 0, 1024, ByteOrder.nativeOrder());
+    cache.map(file, 1024, 1024, ByteOrder.nativeOrder()).close();
+    try (MapHandle h2 = cache.map(file, 2048, 1024, ByteOrder.nativeOrder())) {
+      //the unreferenced mapping is evicted, the referenced one is kept
+      assertEquals(cache.getMappingCount(), 2);
+      assertEquals(cache.getMappedBytes(), 2048);
+      assertEquals(h1.get().getLong(8), 0x0102030405060708L);
+      assertEquals(h2.get().getByte(0), 0);
+      try (MapHandle h3 = cache.map(file, 3072, 1024, ByteOrder.nativeOrder())) {
+        assertEquals(cache.getMappedBytes(), 3072); //over capacity while referenced
+      }
+      assertEquals(cache.getMappedBytes(), 2048);
+    }
+    cache.close();
+    assertEquals(cache.getMappingCount(), 1); //h1 is still open
+    assertTrue(h1.get().isValid());
+    try {
+      cache.map(file);
+      fail();
+    } catch (IllegalStateException e) { } //expected
+    h1.close();
+    assertEquals(cache.getMappingCount(), 0);
+    assertEquals(BaseState.getCurrentDirectMemoryMapAllocations(), maps);
+  }
+
+  @Test
+  public void checkZeroCapacity() throws Exception {
+    final File file = file(64);
+    try (MappedFileCache cache = MappedFileCache.create(0)) {
+      cache.map(file).close();
+      assertEquals(cache.getMappingCount(), 0);
+    }
+    try {
+      MappedFileCache.create(-1);
+      fail();
+    } catch (IllegalArgumentException e) { } //expected
+  }
+
+  @Test
+  public void checkClosedHandleOperations() throws Exception {
+    final File file = file(1 << 16);
+    try (MappedFileCache cache = MappedFileCache.create(1 << 20);
+        MapHandle h2 = cache.map(file)) {
+      final MapHandle h1 = cache.map(file);
+      h1.close();
+      final Runnable[] ops = {
+        () -> h1.load(),
+        () -> h1.load(0, 64),
+        () -> h1.loadAsync(0, 64, Runnable::run),
+        () -> h1.isLoaded(),
+        () -> h1.getResidentPages(0, 64),
+        () -> h1.getResidentPageCount(0, 64)
+      };
+      for (Runnable op : ops) {
+        try {
+          op.run();
+          fail();
+        } catch (IllegalStateException e) { } //expected
+      }
+      h2.load(); //the shared mapping is still valid
+      assertEquals(h2.get().getLong(8), 0x0102030405060708L);
+    }
+  }
+
+  @Test
+  public void checkConcurrentMapping() throws Exception {
+    final File file = file(1 << 16);
+    final long maps = BaseState.getCurrentDirectMemoryMapAllocations();
+    final int numThreads = 4;
+    final MapHandle[] handles = new MapHandle[numThreads];
+    final Throwable[] errors = new Throwable[numThreads];
+    try (MappedFileCache cache = MappedFileCache.create(1 << 20)) {
+      final Thread[] threads = new Thread[numThreads];
+      for (int t = 0; t < numThreads; t++) {
+        final int id = t;
+        threads[t] = new Thread(() -> {
+          try {
+            handles[id] = cache.map(file);
+          } catch (Throwable e) {
+            errors[id] = e;
+          }
+        });
+        threads[t].start();
+      }
+      for (Thread t : threads) { t.join(); }
+      for (Throwable e : errors) {
+        if (e != null) { throw new AssertionError(e); }
+      }
+      assertEquals(cache.getMappingCount(), 1);
+      assertEquals(cache.getReferenceCount(), numThreads);
+      assertEquals(BaseState.getCurrentDirectMemoryMapAllocations(), maps + 1);
+      for (MapHandle h : handles) {
+        assertEquals(h.get().getLong(8), 0x0102030405060708L);
+        h.close();
+      }
+    }
+    assertEquals(BaseState.getCurrentDirectMemoryMapAllocations(), maps);
+  }
+
+  @Test
+  public void checkFailedMapping() throws Exception {
+    final File file = new File(file(64).getPath() + ".missing");
+    try (MappedFileCache cache = MappedFileCache.create(1 << 20)) {
+      for (int i = 0; i < 2; i++) {
+        try {
+          cache.map(file, 0, 64, ByteOrder.nativeOrder());
+          fail();
+        } catch (RuntimeException e) { } //expected
+        assertEquals(cache.getMappingCount(), 0);
+        assertEquals(cache.getReferenceCount(), 0);
+        assertEquals(cache.getMappedBytes(), 0);
+      }
+    }
+  }
+
+  private static File file(long length) throws IOException {
+    final File file = File.createTempFile("cached", ".bin");
+    file.deleteOnExit();
+    try (WritableMapHandle h = WritableMemory.writableMap(file, 0, length,
+        ByteOrder.nativeOrder())) {
+      h.getWritable().putLong(8, 0x0102030405060708L);
+    } catch (Exception e) {
+      throw new IOException(e);
+    }
+    return file;
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: " + this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+
+}
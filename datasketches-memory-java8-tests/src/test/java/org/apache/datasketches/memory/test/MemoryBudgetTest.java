@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.apache.datasketches.memory.BudgetedMemoryRequestServer;
+import org.apache.datasketches.memory.DefaultMemoryRequestServer;
+import org.apache.datasketches.memory.MemoryBudget;
+import org.apache.datasketches.memory.MemoryBudgetException;
+import org.apache.datasketches.memory.MemoryException;
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.PooledMemoryRequestServer;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class MemoryBudgetTest {
+
+  @Test
+  public void checkTree() {
+    MemoryBudget root = MemoryBudget.root("root", 1000);
+    MemoryBudget tenantA = root.newChild("A", 600);
+    MemoryBudget tenantB = root.newChild("B", 600);
+    MemoryBudget poolA1 = tenantA.newChild("A1", 500);
+    assertNull(root.getParent());
+    assertTrue(poolA1.getParent() == tenantA);
+    assertEquals(poolA1.getName(), "A1");
+    assertEquals(poolA1.getLimit(), 500);
+
+    assertTrue(poolA1.tryReserve(400));
+    assertEquals(poolA1.getUsed(), 400);
+    assertEquals(tenantA.getUsed(), 400);
+    assertEquals(root.getUsed(), 400);
+    assertFalse(poolA1.tryReserve(101)); //pool limit
+    assertEquals(poolA1.getRejectedReservations(), 1);
+    assertTrue(tenantA.tryReserve(200));
+    assertFalse(tenantA.tryReserve(1)); //tenant limit
+    assertTrue(tenantB.tryReserve(400));
+    assertFalse(tenantB.tryReserve(1)); //root limit
+    assertEquals(root.getRejectedReservations(), 1);
+    assertEquals(tenantB.getUsed(), 400); //rolled back
+    assertEquals(root.getUsed(), 1000);
+
+    poolA1.release(400);
+    tenantA.release(200);
+    tenantB.release(400);
+    assertEquals(root.getUsed(), 0);
+    assertEquals(root.getPeakUsed(), 1000);
+    assertEquals(poolA1.getPeakUsed(), 400);
+  }
+
+  @Test
+  public void checkFailFast() {
+    MemoryBudget root = MemoryBudget.root("root", 100);
+    MemoryBudget child = root.newChild("child", 1000);
+    try {
+      child.reserve(101, 0);
+      fail();
+    } catch (MemoryBudgetException e) {
+      assertTrue(e.getMessage().contains("root"));
+    }
+    child.reserve(100, 0);
+    assertEquals(child.getUsed(), 100);
+  }
+
+  @Test
+  public void checkBlockingReserve() throws Exception {
+    final MemoryBudget root = MemoryBudget.root("root", 100);
+    root.reserve(100, 0);
+    Thread releaser = new Thread(() -> {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) { } //ignore
+      root.release(60);
+    });
+    releaser.start();
+    root.reserve(50, 10_000);
+    releaser.join();
+    assertEquals(root.getUsed(), 90);
+
+    final long start = System.nanoTime();
+    try {
+      root.reserve(20, 20);
+      fail();
+    } catch (MemoryBudgetException e) {
+      assertTrue((System.nanoTime() - start) >= 20_000_000L);
+    }
+  }
+
+  @Test
+  public void checkWaitersDoNotWakeEachOther() throws Exception {
+    final MemoryBudget root = MemoryBudget.root("root", 100);
+    final MemoryBudget c1 = root.newChild("c1", 100);
+    final MemoryBudget c2 = root.newChild("c2", 100);
+    root.reserve(100, 0);
+    Runnable r1 = () -> { try { c1.reserve(10, 100); } catch (MemoryBudgetException e) { } };
+    Runnable r2 = () -> { try { c2.reserve(10, 100); } catch (MemoryBudgetException e) { } };
+    Thread t1 = new Thread(r1);
+    Thread t2 = new Thread(r2);
+    t1.start();
+    t2.start();
+    t1.join();
+    t2.join();
+    assertEquals(root.getRejectedReservations(), 2); //once per call, not per retry
+    assertEquals(c1.getUsed(), 0);
+    assertEquals(c1.getPeakUsed(), 0); //rolled back reservations do not count
+    assertEquals(c2.getPeakUsed(), 0);
+  }
+
+  @Test
+  public void checkBudgetedServer() {
+    MemoryBudget root = MemoryBudget.root("root", 4096);
+    MemoryBudget tenant = root.newChild("tenant", 2048);
+    try (PooledMemoryRequestServer pool = new PooledMemoryRequestServer()) {
+      BudgetedMemoryRequestServer svr = new BudgetedMemoryRequestServer(tenant, pool, 0);
+      assertTrue(svr.getBudget() == tenant);
+      WritableMemory m1 = svr.request(1024);
+      WritableMemory m2 = svr.request(1024);
+      assertEquals(svr.getChargedBytes(), 2048);
+      assertEquals(root.getUsed(), 2048);
+      try {
+        svr.request(1);
+        fail();
+      } catch (MemoryException e) {
+        assertTrue(e instanceof MemoryBudgetException);
+      }
+      svr.requestClose(m1, null);
+      assertFalse(m1.isValid()); //passed to the delegate
+      assertEquals(tenant.getUsed(), 1024);
+      svr.requestClose(m1, null); //no double release
+      assertEquals(tenant.getUsed(), 1024);
+      svr.requestClose(m2, null);
+      assertEquals(root.getUsed(), 0);
+      assertEquals(svr.getChargedBytes(), 0);
+    }
+  }
+
+  @Test
+  public void checkGrowThroughMemoryRequestServer() {
+    MemoryBudget tenant = MemoryBudget.root("tenant", 4096);
+    try (PooledMemoryRequestServer pool = new PooledMemoryRequestServer()) {
+      BudgetedMemoryRequestServer svr = new BudgetedMemoryRequestServer(tenant, pool, 0);
+      WritableMemory mem = svr.request(1024);
+      mem.putLong(0, 42L);
+      //grow the way sketches do, through the server of the memory itself
+      MemoryRequestServer memSvr = mem.getMemoryRequestServer();
+      assertTrue(memSvr == svr);
+      WritableMemory bigger = memSvr.request(2048);
+      assertTrue(bigger.getMemoryRequestServer() == svr);
+      assertEquals(tenant.getUsed(), 3072);
+      mem.copyTo(0, bigger, 0, 1024);
+      memSvr.requestClose(mem, bigger);
+      assertFalse(mem.isValid()); //returned to the pool
+      assertEquals(tenant.getUsed(), 2048);
+      assertEquals(bigger.getLong(0), 42L);
+      try {
+        bigger.getMemoryRequestServer().request(4096);
+        fail();
+      } catch (MemoryBudgetException e) {
+        //OK, the quota applies
+      }
+      bigger.getMemoryRequestServer().requestClose(bigger, null);
+      assertEquals(tenant.getUsed(), 0);
+      assertEquals(svr.getChargedBytes(), 0);
+    }
+  }
+
+  @Test
+  public void checkDelegateFailureReleases() {
+    MemoryBudget root = MemoryBudget.root("root", 4096);
+    MemoryRequestServer failing = new MemoryRequestServer() {
+      @Override
+      public WritableMemory request(long capacityBytes) {
+        throw new IllegalStateException("no memory");
+      }
+
+      @Override
+      public void requestClose(WritableMemory memToClose, WritableMemory newMemory) { }
+    };
+    BudgetedMemoryRequestServer svr = new BudgetedMemoryRequestServer(root, failing, 0);
+    try {
+      svr.request(1024);
+      fail();
+    } catch (IllegalStateException e) {
+      //OK
+    }
+    assertEquals(root.getUsed(), 0);
+  }
+
+  @Test
+  public void checkBadArgs() {
+    try { MemoryBudget.root("root", -1); fail(); } catch (IllegalArgumentException e) { }
+    try { MemoryBudget.root(null, 1); fail(); } catch (IllegalArgumentException e) { }
+    MemoryBudget root = MemoryBudget.root("root", 1);
+    try { root.tryReserve(-1); fail(); } catch (IllegalArgumentException e) { }
+    try { new BudgetedMemoryRequestServer(null, null, 0); fail(); } catch (IllegalArgumentException e) { }
+    try {
+      new BudgetedMemoryRequestServer(root, new DefaultMemoryRequestServer(), -1);
+      fail();
+    } catch (IllegalArgumentException e) { }
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.datasketches.memory.BaseState;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.MemoryScope;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class MemoryScopeTest {
+
+  @Test
+  public void checkAllocateAndClose() {
+    final long allocs = BaseState.getCurrentDirectMemoryAllocations();
+    final long allocated = BaseState.getCurrentDirectMemoryAllocated();
+    WritableMemory m1;
+    WritableMemory m2;
+    try (MemoryScope scope = MemoryScope.confined()) {
+      assertTrue(scope.isConfined());
+      m1 = scope.allocateDirect(100);
+      m2 = scope.allocateDirect(64, 64, ByteOrder.BIG_ENDIAN);
+      assertEquals(scope.getResourceCount(), 2);
+      assertEquals(BaseState.getCurrentDirectMemoryAllocations(), allocs + 2);
+      assertEquals(BaseState.getCurrentDirectMemoryAllocated(), allocated + 164);
+      assertEquals(m2.getCumulativeOffset() & 63, 0);
+      assertEquals(m2.getTypeByteOrder(), ByteOrder.BIG_ENDIAN);
+      m1.putLong(0, 42);
+      m2.putLong(8, 43);
+      assertEquals(m1.getLong(0), 42);
+      assertEquals(m2.getLong(8), 43);
+    }
+    assertFalse(m1.isValid());
+    assertFalse(m2.isValid());
+    assertEquals(BaseState.getCurrentDirectMemoryAllocations(), allocs);
+    assertEquals(BaseState.getCurrentDirectMemoryAllocated(), allocated);
+  }
+
+  @Test
+  public void checkClosedScope() {
+    final MemoryScope scope = MemoryScope.shared();
+    assertFalse(scope.isConfined());
+    scope.close();
+    assertFalse(scope.isValid());
+    scope.close(); //no effect
+    try {
+      scope.allocateDirect(8);
+      fail();
+    } catch (IllegalStateException e) { } //expected
+    assertEquals(scope.getResourceCount(), 0);
+  }
+
+  @Test
+  public void checkMaps() throws Exception {
+    final File file = File.createTempFile("MemoryScopeTest", ".bin");
+    file.deleteOnExit();
+    final long maps = BaseState.getCurrentDirectMemoryMapAllocations();
+    Memory mem;
+    WritableMemory wmem;
+    try (MemoryScope scope = MemoryScope.confined()) {
+      wmem = scope.writableMap(file, 0, 4096, ByteOrder.nativeOrder());
+      wmem.putLong(0, 1234L);
+      mem = scope.map(file, 0, 4096, ByteOrder.nativeOrder());
+      assertTrue(mem.isReadOnly());
+      assertEquals(mem.getLong(0), 1234L);
+      scope.allocateDirect(8);
+      assertEquals(scope.getResourceCount(), 3);
+      assertEquals(BaseState.getCurrentDirectMemoryMapAllocations(), maps + 2);
+    }
+    assertFalse(mem.isValid());
+    assertFalse(wmem.isValid());
+    assertEquals(BaseState.getCurrentDirectMemoryMapAllocations(), maps);
+  }
+
+  @Test
+  public void checkConfinedOwner() throws Exception {
+    final long allocs = BaseState.getCurrentDirectMemoryAllocations();
+    final AtomicReference<Throwable> thrown = new AtomicReference<>();
+    try (MemoryScope scope = MemoryScope.confined()) {
+      final WritableMemory mem = scope.allocateDirect(8);
+      final Thread t = new Thread(() -> {
+        try {
+          scope.close();
+        } catch (Throwable e) {
+          thrown.set(e);
+        }
+      });
+      t.start();
+      t.join();
+      assertTrue(thrown.get() instanceof IllegalStateException);
+      assertTrue(mem.isValid());
+    }
+    assertEquals(BaseState.getCurrentDirectMemoryAllocations(), allocs);
+  }
+
+  @Test
+  public void checkSharedAcrossThreads() throws Exception {
+    final long allocs = BaseState.getCurrentDirectMemoryAllocations();
+    final MemoryScope scope = MemoryScope.shared();
+    final Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(() -> {
+        for (int j = 0; j < 16; j++) {
+          scope.allocateDirect(32).putLong(0, j);
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread t : threads) { t.join(); }
+    assertEquals(scope.getResourceCount(), 64);
+    final Thread closer = new Thread(scope::close);
+    closer.start();
+    closer.join();
+    assertFalse(scope.isValid());
+    assertEquals(BaseState.getCurrentDirectMemoryAllocations(), allocs);
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: " + this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+
+}
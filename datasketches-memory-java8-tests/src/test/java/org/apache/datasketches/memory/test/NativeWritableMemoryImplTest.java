@@ -598,6 +598,35 @@ public class NativeWritableMemoryImplTest {
     mem3.checkValidAndBounds(0, 5);
   }
 
+  @Test
+  public void checkCompareToWords() {
+    WritableMemory mem1 = WritableMemory.allocate(37);
+    WritableMemory mem2 = WritableMemory.allocate(37);
+    for (int i = 0; i < 37; i++) {
+      mem1.putByte(i, (byte) i);
+      mem2.putByte(i, (byte) i);
+    }
+    assertEquals(mem1.compareTo(0, 37, mem2, 0, 37), 0);
+    assertEquals(mem1.mismatch(0, mem2, 0, 37), -1);
+    for (int j = 0; j < 37; j++) {
+      mem2.putByte(j, (byte) -1); //signed compare: -1 is less than any of 0 to 36
+      assertEquals(mem1.compareTo(0, 37, mem2, 0, 37), 1);
+      assertEquals(mem2.compareTo(0, 37, mem1, 0, 37), -1);
+      assertEquals(mem1.mismatch(0, mem2, 0, 37), j);
+      mem2.putByte(j, (byte) 127);
+      assertEquals(mem1.compareTo(0, 37, mem2, 0, 37), -1);
+      mem2.putByte(j, (byte) j);
+    }
+    assertEquals(mem1.compareTo(0, 36, mem2, 0, 37), -1);
+    assertEquals(mem1.mismatch(3, mem2, 5, 20), 0);
+    assertEquals(mem1.mismatch(3, mem1, 3, 20), -1);
+    Buffer buf1 = mem1.asBuffer();
+    Buffer buf2 = mem2.asBuffer();
+    mem2.putByte(20, (byte) 0);
+    assertEquals(buf1.compareTo(0, 37, buf2, 0, 37), 1);
+    assertEquals(buf1.mismatch(8, buf2, 8, 29), 12);
+  }
+
   @Test
   public void checkCompareToDirect() throws Exception {
     byte[] arr1 = new byte[] {0, 1, 2, 3};
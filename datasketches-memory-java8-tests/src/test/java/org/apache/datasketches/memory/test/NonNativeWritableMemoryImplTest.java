@@ -203,6 +203,37 @@ public class NonNativeWritableMemoryImplTest {
   }
 
   //check Region
+  @Test
+  public void checkReverseBytesInPlace() {
+    int n = (1 << 18) + 3; //spans two chunks
+    WritableMemory mem = WritableMemory.allocate((n << 3) + 8);
+    WritableMemory nnMem = mem.writableRegion(4, n << 3, ByteOrder.BIG_ENDIAN);
+    for (int i = 0; i < n; i++) { nnMem.putLong(i << 3, i * 0x0102030405060708L); }
+    mem.reverseBytesInPlace(4, n << 3, long.class);
+    for (int i = 0; i < n; i++) {
+      assertEquals(mem.getLong(4 + (i << 3)), i * 0x0102030405060708L);
+    }
+    mem.reverseBytesInPlace(4, 16, double.class);
+    assertEquals(nnMem.getLong(8), 0x0102030405060708L);
+    nnMem.putIntArray(0, new int[] {1, -2, 3}, 0, 3);
+    mem.reverseBytesInPlace(4, 12, int.class);
+    assertEquals(mem.getInt(8), -2);
+    nnMem.putShort(0, (short) 258);
+    mem.reverseBytesInPlace(4, 2, short.class);
+    assertEquals(mem.getShort(4), (short) 258);
+    assertEquals(mem.getLong(4 + 16), 2 * 0x0102030405060708L); //untouched
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void checkReverseBytesInPlaceBadLength() {
+    WritableMemory.allocate(16).reverseBytesInPlace(0, 6, int.class);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void checkReverseBytesInPlaceBadType() {
+    WritableMemory.allocate(16).reverseBytesInPlace(0, 8, byte.class);
+  }
+
   @Test
   public void checkRegion() {
     WritableMemory wreg = wmem.writableRegion(0, wmem.getCapacity());
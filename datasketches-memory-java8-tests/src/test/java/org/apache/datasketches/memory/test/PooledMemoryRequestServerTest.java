@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.nio.ByteOrder;
+
+import org.apache.datasketches.memory.BaseState;
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.PooledMemoryRequestServer;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class PooledMemoryRequestServerTest {
+
+  @Test
+  public void checkRequestAndReuse() {
+    final long allocs = BaseState.getCurrentDirectMemoryAllocations();
+    try (PooledMemoryRequestServer svr = new PooledMemoryRequestServer()) {
+      WritableMemory wmem = svr.request(1000);
+      assertTrue(wmem.isDirect());
+      assertEquals(wmem.getCapacity(), 1000);
+      assertEquals(wmem.getTypeByteOrder(), ByteOrder.nativeOrder());
+      assertTrue(wmem.getMemoryRequestServer() == svr);
+      wmem.putLong(992, 7L);
+      final long addr = wmem.getCumulativeOffset();
+      assertEquals(BaseState.getCurrentDirectMemoryAllocations(), allocs + 1);
+      assertEquals(svr.getLeasedCount(), 1);
+      assertEquals(svr.getRetainedBytes(), 1024);
+
+      svr.requestClose(wmem, null);
+      assertFalse(wmem.isValid());
+      assertEquals(svr.getLeasedCount(), 0);
+
+      WritableMemory wmem2 = svr.request(600); //same size class
+      assertEquals(wmem2.getCumulativeOffset(), addr);
+      assertEquals(wmem2.getCapacity(), 600);
+      assertEquals(BaseState.getCurrentDirectMemoryAllocations(), allocs + 1);
+      assertFalse(wmem.isValid()); //the old lease stays invalid
+
+      WritableMemory wmem3 = svr.request(2000); //different size class
+      assertNotEquals(wmem3.getCumulativeOffset(), addr);
+      assertEquals(BaseState.getCurrentDirectMemoryAllocations(), allocs + 2);
+      svr.requestClose(wmem2, wmem3);
+      svr.requestClose(wmem3, null);
+    }
+    assertEquals(BaseState.getCurrentDirectMemoryAllocations(), allocs);
+  }
+
+  @Test
+  public void checkRegionInvalidatedOnRelease() {
+    try (PooledMemoryRequestServer svr = new PooledMemoryRequestServer()) {
+      WritableMemory wmem = svr.request(256);
+      WritableMemory reg = wmem.writableRegion(8, 16);
+      svr.requestClose(reg, null); //regions are not leased, ignored
+      assertTrue(wmem.isValid());
+      svr.requestClose(wmem, null);
+      assertFalse(reg.isValid());
+      svr.requestClose(wmem, null); //already released, ignored
+    }
+  }
+
+  @Test
+  public void checkForeignMemoryIgnored() {
+    try (PooledMemoryRequestServer svr = new PooledMemoryRequestServer()) {
+      WritableMemory heap = WritableMemory.allocate(64);
+      svr.requestClose(heap, null);
+      svr.requestClose(null, null);
+      assertTrue(heap.isValid());
+    }
+  }
+
+  @Test
+  public void checkOversizeNotPooled() {
+    final long allocs = BaseState.getCurrentDirectMemoryAllocations();
+    try (PooledMemoryRequestServer svr = new PooledMemoryRequestServer(64, 1024, 2)) {
+      WritableMemory wmem = svr.request(4096);
+      assertEquals(wmem.getCapacity(), 4096);
+      assertEquals(svr.getRetainedBytes(), 4096);
+      svr.requestClose(wmem, null);
+      assertEquals(svr.getRetainedBytes(), 0);
+      assertEquals(BaseState.getCurrentDirectMemoryAllocations(), allocs);
+    }
+  }
+
+  @Test
+  public void checkSharedFreeList() throws Exception {
+    try (PooledMemoryRequestServer svr = new PooledMemoryRequestServer(64, 1024, 0)) {
+      final WritableMemory[] holder = new WritableMemory[1];
+      Thread t = new Thread(() -> { holder[0] = svr.request(64); svr.requestClose(holder[0], null); });
+      t.start();
+      t.join();
+      WritableMemory wmem = svr.request(64);
+      assertEquals(svr.getRetainedBytes(), 64); //reused the segment released by the other thread
+      svr.requestClose(wmem, null);
+    }
+  }
+
+  @Test
+  public void checkDeadThreadCacheReclaimed() throws Exception {
+    try (PooledMemoryRequestServer svr = new PooledMemoryRequestServer(1024, 1024, 4)) {
+      for (int t = 0; t < 10; t++) { //short-lived threads that each cache 4 segments
+        final Thread thread = new Thread(() -> {
+          WritableMemory[] mems = new WritableMemory[4];
+          for (int i = 0; i < 4; i++) { mems[i] = svr.request(1024); }
+          for (int i = 0; i < 4; i++) { svr.requestClose(mems[i], null); }
+        });
+        thread.start();
+        thread.join();
+      }
+      //the segments cached by the dead threads are reused instead of allocating more
+      assertEquals(svr.getRetainedBytes(), 4 * 1024);
+    }
+  }
+
+  @Test
+  public void checkCloseInvalidatesLeases() {
+    final long allocs = BaseState.getCurrentDirectMemoryAllocations();
+    PooledMemoryRequestServer svr = new PooledMemoryRequestServer();
+    WritableMemory wmem = svr.request(100);
+    assertTrue(svr.isOpen());
+    svr.close();
+    assertFalse(svr.isOpen());
+    assertFalse(wmem.isValid());
+    assertEquals(BaseState.getCurrentDirectMemoryAllocations(), allocs);
+    try {
+      svr.request(100);
+      fail();
+    } catch (IllegalStateException e) { } //expected
+    svr.close(); //no-op
+  }
+
+  @Test
+  public void checkGrowUsingServer() {
+    try (PooledMemoryRequestServer svr = new PooledMemoryRequestServer()) {
+      WritableMemory wmem = svr.request(256);
+      for (int i = 0; i < 32; i++) { wmem.putLong(i << 3, i); }
+      MemoryRequestServer memReqSvr = wmem.getMemoryRequestServer();
+      WritableMemory newMem = memReqSvr.request(512);
+      wmem.copyTo(0, newMem, 0, 256);
+      memReqSvr.requestClose(wmem, newMem);
+      for (int i = 0; i < 32; i++) { assertEquals(newMem.getLong(i << 3), i); }
+      memReqSvr.requestClose(newMem, null);
+    }
+  }
+
+  @Test
+  public void checkBadArgs() {
+    try { new PooledMemoryRequestServer(100, 1024, 1); fail(); } catch (IllegalArgumentException e) { }
+    try { new PooledMemoryRequestServer(1024, 512, 1); fail(); } catch (IllegalArgumentException e) { }
+    try { new PooledMemoryRequestServer(64, 1024, -1); fail(); } catch (IllegalArgumentException e) { }
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
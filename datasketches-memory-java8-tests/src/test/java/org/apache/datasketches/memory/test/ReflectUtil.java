@@ -37,8 +37,10 @@ public final class ReflectUtil {
   static final Class<?> BASE_WRITABLE_MEMORY_IMPL;
   static final Class<?> ALLOCATE_DIRECT_MAP;
   static final Class<?> NIO_BITS;
+  static final Class<?> DIRECT_MEMORY_ACCOUNTING;
   
   static final Method CHECK_VALID; //BaseStateImpl  
+  static final Method GET_ACCOUNTED_RESERVED_MEMORY; //DirectMemoryAccounting
   static final Method GET_DIRECT_ALLOCATIONS_COUNT; //NioBits
   static final Method GET_MAX_DIRECT_BYTE_BUFFER_MEMORY; //NioBits
   static final Method GET_NATIVE_BASE_OFFSET; //BaseStateImpl
@@ -71,9 +73,13 @@ public final class ReflectUtil {
         getClass("org.apache.datasketches.memory.internal.AllocateDirectMap");
     NIO_BITS = 
         getClass("org.apache.datasketches.memory.internal.NioBits");
+    DIRECT_MEMORY_ACCOUNTING =
+        getClass("org.apache.datasketches.memory.internal.DirectMemoryAccounting");
 
     CHECK_VALID =
         getMethod(BASE_STATE, "checkValid", (Class<?>[])null); //not static
+    GET_ACCOUNTED_RESERVED_MEMORY =
+        getMethod(DIRECT_MEMORY_ACCOUNTING, "getReservedMemory", (Class<?>[])null); //static
     GET_DIRECT_ALLOCATIONS_COUNT =
         getMethod(NIO_BITS, "getDirectAllocationsCount", (Class<?>[])null); //static
     GET_MAX_DIRECT_BYTE_BUFFER_MEMORY =
@@ -253,6 +259,14 @@ public final class ReflectUtil {
     }
   }
 
+  static long getAccountedReservedMemory() {
+    try {
+      return (long) GET_ACCOUNTED_RESERVED_MEMORY.invoke(null);
+    } catch (final IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   static long getReservedMemory() {
     try {
       return (long) GET_RESERVED_MEMORY.invoke(null);
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.datasketches.memory.BaseState;
+import org.apache.datasketches.memory.ScratchMemory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class ScratchMemoryTest {
+
+  @Test
+  public void checkMarkAllocateRelease() {
+    final ScratchMemory scratch = ScratchMemory.current();
+    assertSame(ScratchMemory.current(), scratch);
+    final long used = scratch.getUsedBytes();
+    final long outer = scratch.mark();
+    final WritableMemory m1 = scratch.allocate(13);
+    assertTrue(m1.isDirect());
+    final long inner = scratch.mark();
+    final WritableMemory m2 = scratch.allocate(100, 64);
+    final long m2Address = m2.getCumulativeOffset();
+    assertEquals(m2Address & 63, 0);
+    m1.fill((byte) 1);
+    m2.fill((byte) 2);
+    assertEquals(m1.getByte(12), 1);
+    scratch.release(inner);
+    assertFalse(m2.isValid());
+    assertTrue(m1.isValid());
+    final long allocs = BaseState.getCurrentDirectMemoryAllocations();
+    final WritableMemory m3 = scratch.allocate(8);
+    assertTrue(m3.getCumulativeOffset() <= m2Address); //space reused
+    assertEquals(BaseState.getCurrentDirectMemoryAllocations(), allocs);
+    scratch.release(outer);
+    assertFalse(m1.isValid());
+    assertFalse(m3.isValid());
+    assertEquals(scratch.getUsedBytes(), used);
+    try {
+      scratch.release(outer);
+      fail();
+    } catch (IllegalStateException e) { } //expected
+  }
+
+  @Test
+  public void checkReleaseOuterPopsInner() {
+    final ScratchMemory scratch = ScratchMemory.current();
+    final long outer = scratch.mark();
+    scratch.mark();
+    final WritableMemory m = scratch.allocate(8);
+    scratch.release(outer);
+    assertFalse(m.isValid());
+  }
+
+  @Test
+  public void checkStaleMarkRejected() {
+    final ScratchMemory scratch = ScratchMemory.current();
+    final long stale = scratch.mark();
+    scratch.release(stale);
+    final long fresh = scratch.mark(); //same frame depth as the stale mark
+    assertTrue(fresh != stale);
+    final WritableMemory m = scratch.allocate(8);
+    try {
+      scratch.release(stale);
+      fail();
+    } catch (IllegalStateException e) { } //expected
+    assertTrue(m.isValid()); //the newer frame was not released
+    scratch.release(fresh);
+    assertFalse(m.isValid());
+  }
+
+  @Test
+  public void checkHeapFallback() {
+    final ScratchMemory scratch = ScratchMemory.current();
+    final long mark = scratch.mark();
+    try {
+      final WritableMemory m = scratch.allocate(scratch.getCapacity() + 1);
+      assertFalse(m.isDirect());
+      assertEquals(m.getCapacity(), scratch.getCapacity() + 1);
+    } finally {
+      scratch.release(mark);
+    }
+  }
+
+  @Test
+  public void checkNonOwnerThread() throws Exception {
+    final ScratchMemory scratch = ScratchMemory.current();
+    final AtomicReference<Throwable> thrown = new AtomicReference<>();
+    final Thread t = new Thread(() -> {
+      try {
+        scratch.mark();
+      } catch (Throwable e) {
+        thrown.set(e);
+      }
+    });
+    t.start();
+    t.join();
+    assertTrue(thrown.get() instanceof IllegalStateException);
+  }
+
+  @Test
+  public void checkPerThread() throws Exception {
+    final ScratchMemory scratch = ScratchMemory.current();
+    final AtomicReference<ScratchMemory> other = new AtomicReference<>();
+    final Thread t = new Thread(() -> other.set(ScratchMemory.current()));
+    t.start();
+    t.join();
+    assertFalse(other.get() == scratch);
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: " + this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+
+}
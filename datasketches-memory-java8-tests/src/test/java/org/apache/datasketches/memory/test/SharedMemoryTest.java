@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.nio.ByteOrder;
+
+import org.apache.datasketches.memory.MapHandle;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.SharedMemory;
+import org.apache.datasketches.memory.WritableMapHandle;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class SharedMemoryTest {
+
+  @Test
+  public void checkCreateOpenUnlink() throws Exception {
+    final String name = "datasketches-test-" + System.nanoTime();
+    assertFalse(SharedMemory.exists(name));
+    try (WritableMapHandle writer = SharedMemory.create(name, 1 << 16, ByteOrder.nativeOrder())) {
+      println(SharedMemory.getFile(name).toString());
+      assertTrue(SharedMemory.exists(name));
+      final WritableMemory wmem = writer.getWritable();
+      assertEquals(wmem.getCapacity(), 1 << 16);
+      assertEquals(wmem.getLong(100), 0L);
+      try {
+        SharedMemory.create(name, 8, ByteOrder.nativeOrder());
+        fail();
+      } catch (IllegalArgumentException e) { } //expected
+      assertEquals(SharedMemory.getFile(name).length(), 1 << 16); //not replaced
+      final File dir = SharedMemory.getFile(name).getParentFile();
+      assertEquals(dir.list((d, n) -> n.startsWith("." + name)).length, 0); //no temporary files
+
+      try (MapHandle reader = SharedMemory.openReadOnly(name, ByteOrder.nativeOrder());
+          WritableMapHandle other = SharedMemory.open(name, ByteOrder.nativeOrder())) {
+        final Memory mem = reader.get();
+        assertTrue(mem.isReadOnly());
+        assertEquals(mem.getCapacity(), 1 << 16);
+        wmem.putLong(100, 42L);
+        assertEquals(mem.getLong(100), 42L); //visible through another mapping
+        other.getWritable().putInt(200, 7);
+        assertEquals(wmem.getInt(200), 7);
+      }
+
+      assertTrue(SharedMemory.unlink(name));
+      assertFalse(SharedMemory.exists(name));
+      assertFalse(SharedMemory.unlink(name));
+      assertEquals(wmem.getLong(100), 42L); //still mapped
+    }
+    try {
+      SharedMemory.open(name, ByteOrder.nativeOrder());
+      fail();
+    } catch (IllegalArgumentException e) { } //expected
+  }
+
+  @Test
+  public void checkNames() {
+    final String[] invalid = {"", ".", "..", "a/b"};
+    for (String name : invalid) {
+      try {
+        SharedMemory.getFile(name);
+        fail();
+      } catch (IllegalArgumentException e) { } //expected
+    }
+    try {
+      SharedMemory.create("datasketches-test-zero", 0, ByteOrder.nativeOrder());
+      fail();
+    } catch (IllegalArgumentException e) { } //expected
+    assertFalse(SharedMemory.exists("datasketches-test-zero"));
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: " + this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+
+}
@@ -31,6 +31,7 @@ import static org.apache.datasketches.memory.internal.Util.nullCheck;
 import static org.apache.datasketches.memory.internal.Util.zeroCheck;
 import static org.apache.datasketches.memory.internal.Util.zeroPad;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -107,6 +108,26 @@ public class UtilTest {
     }
   }
 
+  @Test
+  public void checkPowerOf2AndAlignUp() {
+    assertTrue(Util.isPowerOf2(1));
+    assertTrue(Util.isPowerOf2(1L << 62));
+    assertFalse(Util.isPowerOf2(0));
+    assertFalse(Util.isPowerOf2(6));
+    assertFalse(Util.isPowerOf2(Long.MIN_VALUE));
+    assertEquals(Util.alignUp(0, 8), 0);
+    assertEquals(Util.alignUp(1, 8), 8);
+    assertEquals(Util.alignUp(4096, 4096), 4096);
+    assertEquals(Util.alignUp(4097, 4096), 8192);
+    Util.powerOf2Check(64, "test");
+    try {
+      Util.powerOf2Check(12, "test");
+      fail();
+    } catch (IllegalArgumentException e) {
+      //OK
+    }
+  }
+
   @Test
   public void checkCodePointArr() {
     final Util.RandomCodePoints rvcp = new Util.RandomCodePoints(true);
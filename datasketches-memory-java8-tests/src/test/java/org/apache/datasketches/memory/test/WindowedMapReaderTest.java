@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.datasketches.memory.BaseState;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WindowedMapReader;
+import org.apache.datasketches.memory.WritableMapHandle;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class WindowedMapReaderTest {
+
+  @Test
+  public void checkSequentialReads() throws Exception {
+    checkSequentialReads(ByteOrder.nativeOrder(), false);
+    checkSequentialReads(ByteOrder.nativeOrder(), true);
+    checkSequentialReads(nonNativeOrder(), true);
+  }
+
+  private static void checkSequentialReads(ByteOrder order, boolean prefetch) throws Exception {
+    final long windowBytes;
+    try (WindowedMapReader r = WindowedMapReader.map(file(1), 1, 1, order)) {
+      windowBytes = r.getWindowBytes(); //one page
+    }
+    final int longs = (int) ((3 * windowBytes + 100) / 8);
+    final File file = file(1 + longs * 8L);
+    try (WritableMapHandle h = WritableMemory.writableMap(file, 0, file.length(), order)) {
+      final WritableMemory wmem = h.getWritable();
+      wmem.putByte(0, (byte) 7);
+      for (int i = 0; i < longs; i++) { wmem.putLong(1 + i * 8L, i * 31L); } //straddles windows
+    }
+    final long maps = BaseState.getCurrentDirectMemoryMapAllocations();
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (WindowedMapReader reader = prefetch
+        ? WindowedMapReader.map(file, windowBytes, 2, order, executor)
+        : WindowedMapReader.map(file, windowBytes, 1, order)) {
+      assertEquals(reader.getCapacity(), file.length());
+      assertEquals(reader.getTypeByteOrder(), order);
+      assertEquals(reader.getByte(), 7);
+      for (int i = 0; i < longs; i++) {
+        assertEquals(reader.getLong(), i * 31L);
+        assertTrue(reader.getMappedWindowCount() <= (prefetch ? 2 : 1));
+      }
+      assertFalse(reader.hasRemaining());
+      assertEquals(BaseState.getCurrentDirectMemoryMapAllocations() - maps,
+          reader.getMappedWindowCount());
+      try {
+        reader.getByte();
+        fail();
+      } catch (IllegalArgumentException e) { } //expected
+
+      final Memory contents = Memory.wrap(Files.readAllBytes(file.toPath()), order);
+      for (long pos = windowBytes - 7; pos < windowBytes; pos++) { //straddles two windows
+        reader.setPosition(pos);
+        assertEquals(reader.getInt(), contents.getInt(pos));
+        reader.setPosition(pos);
+        assertEquals(reader.getDouble(), contents.getDouble(pos));
+      }
+      reader.setPosition(1);
+      final byte[] arr = new byte[(int) (2 * windowBytes)];
+      reader.getByteArray(arr, 0, arr.length);
+      assertEquals(reader.getPosition(), 1 + arr.length);
+      final WritableMemory copy = WritableMemory.writableWrap(arr, order);
+      for (int i = 0; i < arr.length / 8; i++) { assertEquals(copy.getLong(i * 8L), i * 31L); }
+      reader.close();
+      assertFalse(reader.isValid());
+      assertEquals(reader.getMappedWindowCount(), 0);
+      try {
+        reader.getLong();
+        fail();
+      } catch (IllegalStateException e) { } //expected
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(BaseState.getCurrentDirectMemoryMapAllocations(), maps);
+  }
+
+  @Test
+  public void checkTypes() throws Exception {
+    final File file = file(64);
+    try (WritableMapHandle h = WritableMemory.writableMap(file, 0, 64, ByteOrder.BIG_ENDIAN)) {
+      final WritableMemory wmem = h.getWritable();
+      wmem.putShort(0, (short) -2);
+      wmem.putChar(2, 'z');
+      wmem.putInt(4, 123456);
+      wmem.putFloat(8, 1.5f);
+      wmem.putDouble(12, -2.25);
+    }
+    try (WindowedMapReader reader = WindowedMapReader.map(file, 4096, 1, ByteOrder.BIG_ENDIAN)) {
+      assertEquals(reader.getShort(), (short) -2);
+      assertEquals(reader.getChar(), 'z');
+      assertEquals(reader.getInt(), 123456);
+      assertEquals(reader.getFloat(), 1.5f);
+      assertEquals(reader.getDouble(), -2.25);
+      assertEquals(reader.getRemaining(), 64 - 20);
+    }
+  }
+
+  @Test
+  public void checkArgs() throws Exception {
+    final File file = file(8);
+    try {
+      WindowedMapReader.map(file, 0, 1, ByteOrder.nativeOrder());
+      fail();
+    } catch (IllegalArgumentException e) { } //expected
+    try {
+      WindowedMapReader.map(file, 4096, 1, ByteOrder.nativeOrder(), Runnable::run);
+      fail();
+    } catch (IllegalArgumentException e) { } //expected
+    try {
+      WindowedMapReader.map(file(0), 4096, 1, ByteOrder.nativeOrder());
+      fail();
+    } catch (IllegalArgumentException e) { } //expected
+    try (WindowedMapReader reader = WindowedMapReader.map(file, 4096, 1, ByteOrder.nativeOrder())) {
+      reader.setPosition(9);
+      fail();
+    } catch (IllegalArgumentException e) { } //expected
+  }
+
+  private static File file(long length) throws IOException {
+    final File file = File.createTempFile("windowed", ".bin");
+    file.deleteOnExit();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(length);
+    }
+    return file;
+  }
+
+  private static ByteOrder nonNativeOrder() {
+    return ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN
+        ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: " + this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory;
+
+import java.nio.ByteOrder;
+
+import org.apache.datasketches.memory.internal.ArenaImpl;
+
+/**
+ * An Arena reserves one block of direct, off-heap memory and hands out WritableMemory regions
+ * of it by bumping an offset. There is no per-region allocation, cleaner or accounting, and
+ * individual regions cannot be freed. Closing the arena frees the whole block and invalidates
+ * every region handed out by it at once.
+ *
+ * <p>An Arena is not thread-safe. Regions may be shared across threads, but allocation
+ * must be confined to one thread at a time.</p>
+ *
+ * <p><b>NOTE:</b> Native/Direct memory acquired using Unsafe may have garbage in it.
+ * It is the responsibility of the using class to clear this memory, if required,
+ * and to call <i>close()</i> when done.</p>
+ *
+ * @author Lee Rhodes
+ */
+public interface Arena extends AutoCloseable {
+
+  /**
+   * The default alignment of allocated regions, in bytes.
+   */
+  long DEFAULT_ALIGNMENT = 8;
+
+  /**
+   * Creates a new Arena with the given capacity.
+   * @param capacityBytes the size of the block of direct memory in bytes. It must be positive.
+   * @return a new Arena
+   */
+  static Arena create(final long capacityBytes) {
+    return ArenaImpl.create(capacityBytes);
+  }
+
+  /**
+   * Allocates a native byte order region of the given size aligned to
+   * {@link #DEFAULT_ALIGNMENT} bytes.
+   * @param capacityBytes the size of the region in bytes. It must not be negative.
+   * @return a WritableMemory region of this arena.
+   * @throws IllegalStateException if this arena has been closed or does not have enough
+   * remaining space.
+   */
+  WritableMemory allocate(long capacityBytes);
+
+  /**
+   * Allocates a native byte order region of the given size and alignment.
+   * @param capacityBytes the size of the region in bytes. It must not be negative.
+   * @param alignment the alignment of the native address of the region. It must be a
+   * positive power of 2.
+   * @return a WritableMemory region of this arena.
+   * @throws IllegalStateException if this arena has been closed or does not have enough
+   * remaining space.
+   */
+  WritableMemory allocate(long capacityBytes, long alignment);
+
+  /**
+   * Allocates a region of the given size, alignment and byte order.
+   * @param capacityBytes the size of the region in bytes. It must not be negative.
+   * @param alignment the alignment of the native address of the region. It must be a
+   * positive power of 2.
+   * @param byteOrder the byte order of the region.
+   * @return a WritableMemory region of this arena.
+   * @throws IllegalStateException if this arena has been closed or does not have enough
+   * remaining space.
+   */
+  WritableMemory allocate(long capacityBytes, long alignment, ByteOrder byteOrder);
+
+  /**
+   * Gets the capacity of this arena in bytes.
+   * @return the capacity of this arena in bytes.
+   */
+  long getCapacity();
+
+  /**
+   * Gets the number of bytes of this arena consumed so far, including alignment padding.
+   * @return the number of bytes of this arena consumed so far.
+   */
+  long getAllocatedBytes();
+
+  /**
+   * Returns true if this arena has not been closed.
+   * @return true if this arena has not been closed.
+   */
+  boolean isValid();
+
+  /**
+   * Frees the block of direct memory and invalidates all regions allocated from this arena.
+   * Calling this more than once has no effect.
+   */
+  @Override
+  void close();
+
+}
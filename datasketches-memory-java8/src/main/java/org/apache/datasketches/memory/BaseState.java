@@ -72,6 +72,18 @@ public interface BaseState {
    */
   boolean equalTo(long thisOffsetBytes, Object that,
       long thatOffsetBytes, long lengthBytes);
+
+  /**
+   * Returns the offset, relative to <i>thisOffsetBytes</i>, of the first byte that differs between
+   * the given range of this object and the given range of <i>that</i> object, or -1 if the two
+   * ranges have equal contents. This will also check two distinct ranges within the same object.
+   * @param thisOffsetBytes the starting offset in bytes for this object.
+   * @param that the given object
+   * @param thatOffsetBytes the starting offset in bytes for the given object
+   * @param lengthBytes the size of both ranges in bytes
+   * @return the relative offset of the first differing byte, or -1 if none.
+   */
+  long mismatch(long thisOffsetBytes, BaseState that, long thatOffsetBytes, long lengthBytes);
   
   /**
    * Gets the backing ByteBuffer if it exists, otherwise returns null.
@@ -237,6 +249,72 @@ public interface BaseState {
     return BaseStateImpl.getCurrentDirectMemoryMapAllocated();
   }
   
+  /**
+   * Gets the approximate current number of pages of active direct memory maps that are resident
+   * in physical memory. It is a lower bound that counts only the pages of 1MB blocks that are
+   * entirely resident. Unlike the other counts this one is computed on each call by querying the
+   * operating system once per 1MB block of every active map, so it is more expensive to get.
+   * Use {@link Map#getResidentPageCount(long, long)} for an exact count of one map.
+   * @return the current number of pages of active direct memory maps that are resident.
+   */
+  static long getCurrentDirectMemoryMapResidentPages() {
+    return BaseStateImpl.getCurrentDirectMemoryMapResidentPages();
+  }
+  
+  /**
+   * Gets the current number of active direct memory huge page allocations.
+   * @return the current number of active direct memory huge page allocations.
+   */
+  static long getCurrentDirectMemoryHugePageAllocations() {
+    return BaseStateImpl.getCurrentDirectMemoryHugePageAllocations();
+  }
+  
+  /**
+   * Gets the current size of active direct memory huge page allocated.
+   * @return the current size of active direct memory huge page allocated.
+   */
+  static long getCurrentDirectMemoryHugePageAllocated() {
+    return BaseStateImpl.getCurrentDirectMemoryHugePageAllocated();
+  }
+  
+  /**
+   * Sets the fraction of direct allocations and memory maps whose allocation stack and size are
+   * tracked until they are closed. Zero, the default, turns tracking off. The initial value can be
+   * set with the system property <i>datasketches.memory.leakTracking.sampleRate</i>.
+   *
+   * <p>If a tracked resource is freed by the garbage collector instead of being closed, its
+   * allocation stack is logged with the warning.</p>
+   * @param sampleRate the fraction between 0.0 (off) and 1.0 (all).
+   */
+  static void setLeakTrackingSampleRate(double sampleRate) {
+    BaseStateImpl.setLeakTrackingSampleRate(sampleRate);
+  }
+  
+  /**
+   * Gets the fraction of direct allocations and memory maps that are tracked.
+   * @return the fraction of direct allocations and memory maps that are tracked.
+   */
+  static double getLeakTrackingSampleRate() {
+    return BaseStateImpl.getLeakTrackingSampleRate();
+  }
+  
+  /**
+   * Gets the number of tracked allocations that have not been closed.
+   * @return the number of tracked allocations that have not been closed.
+   */
+  static long getTrackedAllocations() {
+    return BaseStateImpl.getTrackedAllocations();
+  }
+  
+  /**
+   * Returns a description of all tracked allocations that have not been closed,
+   * including their sizes and allocation stacks.
+   * @return a description of all tracked allocations that have not been closed.
+   */
+  static String dumpTrackedAllocations() {
+    return BaseStateImpl.dumpTrackedAllocations();
+  }
+  
   //TO STRING
   
   /**
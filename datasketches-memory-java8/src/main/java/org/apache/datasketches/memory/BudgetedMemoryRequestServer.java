@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory;
+
+import java.util.IdentityHashMap;
+
+import org.apache.datasketches.memory.internal.WritableMemoryImpl;
+
+/**
+ * A MemoryRequestServer that charges every request against a {@link MemoryBudget} before
+ * passing it to another MemoryRequestServer, and releases the charge when the memory is passed
+ * back to {@link #requestClose(WritableMemory, WritableMemory)}.
+ *
+ * <p>When the budget, or one of its ancestors, is exhausted a request either fails immediately
+ * or waits for other memory to be released, depending on the timeout given at construction.
+ * Either way a failed request throws a {@link MemoryBudgetException} naming the exhausted budget.</p>
+ *
+ * <p>Direct memory returned by this server reports this server as its MemoryRequestServer, so
+ * that memory requested or closed through {@link WritableMemory#getMemoryRequestServer()} is
+ * also charged to, and released from, the budget.</p>
+ *
+ * <p>This class is thread-safe if the delegate is.</p>
+ *
+ * @author Lee Rhodes
+ */
+public final class BudgetedMemoryRequestServer implements MemoryRequestServer {
+  private final MemoryBudget budget;
+  private final MemoryRequestServer delegate;
+  private final long timeoutMillis;
+  //the memory returned to clients, mapped to its charge
+  private final IdentityHashMap<WritableMemory, Charge> charged = new IdentityHashMap<>();
+
+  /**
+   * Constructs a new server.
+   * @param budget the budget charged for every request.
+   * @param delegate the MemoryRequestServer that provides the memory.
+   * @param timeoutMillis the maximum time a request waits for the budget in milliseconds.
+   * Zero means that requests fail fast.
+   */
+  public BudgetedMemoryRequestServer(final MemoryBudget budget, final MemoryRequestServer delegate,
+      final long timeoutMillis) {
+    if ((budget == null) || (delegate == null)) {
+      throw new IllegalArgumentException("The budget and delegate may not be null.");
+    }
+    if (timeoutMillis < 0) {
+      throw new IllegalArgumentException("The argument timeoutMillis may not be negative.");
+    }
+    this.budget = budget;
+    this.delegate = delegate;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The capacity is reserved from the budget before the delegate is called. The returned
+   * memory is a view of the memory from the delegate that reports this server as its
+   * MemoryRequestServer, if the memory carries one.</p>
+   * @throws MemoryBudgetException if the budget could not be reserved in time.
+   */
+  @Override
+  public WritableMemory request(final long capacityBytes) {
+    budget.reserve(capacityBytes, timeoutMillis);
+    final WritableMemory wmem;
+    try {
+      wmem = delegate.request(capacityBytes);
+    } catch (final RuntimeException | Error e) {
+      budget.release(capacityBytes);
+      throw e;
+    }
+    final WritableMemory view = WritableMemoryImpl.withMemoryRequestServer(wmem, this);
+    synchronized (charged) {
+      charged.put(view, new Charge(wmem, capacityBytes));
+    }
+    return view;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>If <i>memToClose</i> was returned by {@link #request(long)} of this server, its charge
+   * is released from the budget and the memory from the delegate is passed back to the delegate.
+   * Otherwise the request is passed to the delegate as is.</p>
+   */
+  @Override
+  public void requestClose(final WritableMemory memToClose, final WritableMemory newMemory) {
+    final Charge charge;
+    synchronized (charged) {
+      charge = charged.remove(memToClose);
+    }
+    if (charge != null) {
+      budget.release(charge.bytes);
+      delegate.requestClose(charge.leased, newMemory);
+    } else {
+      delegate.requestClose(memToClose, newMemory);
+    }
+  }
+
+  /**
+   * Gets the budget charged by this server.
+   * @return the budget charged by this server.
+   */
+  public MemoryBudget getBudget() {
+    return budget;
+  }
+
+  /**
+   * Gets the number of bytes currently charged by this server.
+   * @return the number of bytes currently charged by this server.
+   */
+  public long getChargedBytes() {
+    long sum = 0;
+    synchronized (charged) {
+      for (final Charge charge : charged.values()) {
+        sum += charge.bytes;
+      }
+    }
+    return sum;
+  }
+
+  private static final class Charge {
+    final WritableMemory leased; //as returned by the delegate
+    final long bytes;
+
+    Charge(final WritableMemory leased, final long bytes) {
+      this.leased = leased;
+      this.bytes = bytes;
+    }
+  }
+
+}
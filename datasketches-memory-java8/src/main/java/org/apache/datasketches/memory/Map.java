@@ -19,6 +19,10 @@
 
 package org.apache.datasketches.memory;
 
+import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 /**
  * Read only interface for a memory mapped file
  *
@@ -34,6 +38,33 @@ public interface Map extends AutoCloseable {
    */
   void load();
 
+  /**
+   * Loads the given range of the mapping into physical memory, as {@link #load()} does for the
+   * whole mapping. The range is widened to whole pages. This is the supported way to prefetch
+   * part of a mapping: it passes <i>madvise(WILLNEED)</i> for the range to the operating system
+   * and then touches each page. Other access pattern hints are not supported, as they cannot be
+   * passed to <i>madvise</i> through the JDK.
+   * @param offsetBytes the offset of the range in bytes, relative to the start of the mapping.
+   * @param lengthBytes the length of the range in bytes.
+   * @throws IllegalStateException if the mapping has been closed.
+   * @throws IllegalArgumentException if the range is out of bounds.
+   */
+  void load(long offsetBytes, long lengthBytes);
+
+  /**
+   * Loads the given range of the mapping into physical memory on the given executor.
+   * Closing or resizing the mapping waits until loads in progress have completed. A load that
+   * starts after the mapping has been closed completes exceptionally with an
+   * IllegalStateException.
+   * @param offsetBytes the offset of the range in bytes, relative to the start of the mapping.
+   * @param lengthBytes the length of the range in bytes.
+   * @param executor the executor to run the load on. It must not be null.
+   * @return a CompletableFuture that completes when the range has been loaded.
+   * @throws IllegalStateException if the mapping has been closed.
+   * @throws IllegalArgumentException if the range is out of bounds.
+   */
+  CompletableFuture<Void> loadAsync(long offsetBytes, long lengthBytes, Executor executor);
+
   /**
    * @return true if loaded
    *
@@ -43,4 +74,33 @@ public interface Map extends AutoCloseable {
    */
   boolean isLoaded();
 
+  /**
+   * Gets which pages of the given range of the mapping are resident in physical memory.
+   * The range is widened to whole pages. Bit <i>i</i> of the result is set if the <i>i</i>-th
+   * page of the widened range is resident. The result is a snapshot that can be out of date
+   * as soon as it is returned.
+   * <p>An entirely resident range is checked with one native call, but a range that is only
+   * partly resident, such as a cold one, takes about one native call per page, so the cost grows
+   * with the number of pages of the range.</p>
+   * @param offsetBytes the offset of the range in bytes, relative to the start of the mapping.
+   * @param lengthBytes the length of the range in bytes.
+   * @return a bitmap of the resident pages of the range.
+   * @throws IllegalStateException if the mapping has been closed.
+   * @throws IllegalArgumentException if the range is out of bounds, or has more than
+   * Integer.MAX_VALUE pages.
+   */
+  BitSet getResidentPages(long offsetBytes, long lengthBytes);
+
+  /**
+   * Gets the number of pages of the given range of the mapping that are resident in physical
+   * memory. The range is widened to whole pages. The count is exact and has the same cost as
+   * {@link #getResidentPages(long, long)}.
+   * @param offsetBytes the offset of the range in bytes, relative to the start of the mapping.
+   * @param lengthBytes the length of the range in bytes.
+   * @return the number of resident pages of the range.
+   * @throws IllegalStateException if the mapping has been closed.
+   * @throws IllegalArgumentException if the range is out of bounds.
+   */
+  long getResidentPageCount(long offsetBytes, long lengthBytes);
+
 }
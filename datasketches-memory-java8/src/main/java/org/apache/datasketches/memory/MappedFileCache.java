@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory;
+
+import java.io.File;
+import java.nio.ByteOrder;
+
+import org.apache.datasketches.memory.internal.MappedFileCacheImpl;
+
+/**
+ * A cache of read-only memory maps that are shared by all callers mapping the same range of the
+ * same file. Each call to {@link #map(File, long, long, ByteOrder)} returns a new MapHandle over
+ * the shared mapping and counts a reference to it. Closing the handle invalidates its Memory
+ * and releases the reference, but does not unmap the file.
+ *
+ * <p>Mappings without references stay mapped for reuse, until the total size of all mappings
+ * exceeds the capacity of the cache. Then the least recently used mappings without references
+ * are unmapped. Mappings with references are never unmapped, so the total size can exceed the
+ * capacity while they are in use.</p>
+ *
+ * <p>Mappings are keyed by the canonical path of the file, the file offset and the length.
+ * The byte order is chosen per handle and is not part of the key. The load and residency
+ * operations of a handle act on the shared mapping. A MappedFileCache is thread-safe.</p>
+ *
+ * @author Lee Rhodes
+ */
+public interface MappedFileCache extends AutoCloseable {
+
+  /**
+   * Creates a new cache.
+   * @param capacityBytes the total size of all mappings above which unreferenced mappings are
+   * unmapped. Zero unmaps each mapping as soon as its last reference is released.
+   * @return a new MappedFileCache
+   */
+  static MappedFileCache create(long capacityBytes) {
+    return new MappedFileCacheImpl(capacityBytes);
+  }
+
+  /**
+   * Gets a read-only handle over the shared mapping of the whole given file in native byte order.
+   * @param file the given file to map
+   * @return a MapHandle over the shared mapping, which must be closed to release the reference.
+   * @throws IllegalStateException if this cache has been closed.
+   */
+  MapHandle map(File file);
+
+  /**
+   * Gets a read-only handle over the shared mapping of the given range of the given file.
+   * @param file the given file to map
+   * @param fileOffsetBytes the position in the given file in bytes
+   * @param capacityBytes the size of the mapped range in bytes
+   * @param byteOrder the byte order of the Memory of the handle
+   * @return a MapHandle over the shared mapping, which must be closed to release the reference.
+   * @throws IllegalStateException if this cache has been closed.
+   */
+  MapHandle map(File file, long fileOffsetBytes, long capacityBytes, ByteOrder byteOrder);
+
+  /**
+   * Gets the capacity of this cache in bytes.
+   * @return the capacity of this cache in bytes.
+   */
+  long getCapacity();
+
+  /**
+   * Gets the total size of the current mappings in bytes, with or without references.
+   * @return the total size of the current mappings in bytes.
+   */
+  long getMappedBytes();
+
+  /**
+   * Gets the number of current mappings, with or without references.
+   * @return the number of current mappings.
+   */
+  int getMappingCount();
+
+  /**
+   * Gets the number of references to the current mappings, which is the number of open handles.
+   * @return the number of references to the current mappings.
+   */
+  int getReferenceCount();
+
+  /**
+   * Closes this cache. Mappings without references are unmapped now, and the others when their
+   * last reference is released.
+   */
+  @Override
+  void close();
+
+}
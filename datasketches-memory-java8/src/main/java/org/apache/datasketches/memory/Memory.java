@@ -533,6 +533,20 @@ public interface Memory extends BaseState {
    */
   void copyTo(long srcOffsetBytes, WritableMemory destination, long dstOffsetBytes, long lengthBytes);
 
+  /**
+   * Copies bytes from a source range of this Memory to a destination range of the given Memory,
+   * like {@link #copyTo(long, WritableMemory, long, long)}, but splits large copies into
+   * page-aligned chunks that are copied concurrently on the common ForkJoinPool.
+   * Copies smaller than 16MB, and copies between overlapping ranges, are done sequentially.
+   * This method returns when the whole range has been copied.
+   * @param srcOffsetBytes the source offset for this Memory
+   * @param destination the destination Memory, which may not be Read-Only.
+   * @param dstOffsetBytes the destination offset
+   * @param lengthBytes the number of bytes to copy
+   */
+  void copyToParallel(long srcOffsetBytes, WritableMemory destination, long dstOffsetBytes,
+      long lengthBytes);
+
   /**
    * Writes bytes from a source range of this Memory to the given {@code WritableByteChannel}.
    * @param offsetBytes the source offset for this Memory
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory;
+
+import org.apache.datasketches.memory.internal.MemoryBudgetImpl;
+
+/**
+ * A quota of memory bytes arranged in a tree. A reservation against a budget succeeds only if
+ * that budget and all of its ancestors have enough remaining capacity, and is then counted in all
+ * of them. For example, a root budget for the process may have a child per tenant, each of which
+ * may have a child per pool.
+ *
+ * <p>A budget only does accounting. It does not allocate memory. Refer to
+ * {@link BudgetedMemoryRequestServer} for how this can be applied to memory requests.</p>
+ *
+ * <p>All methods are thread-safe.</p>
+ *
+ * @author Lee Rhodes
+ */
+public interface MemoryBudget {
+
+  /**
+   * Creates a new root budget.
+   * @param name the name of the budget, used in exception messages.
+   * @param limitBytes the maximum number of bytes that may be reserved. It must not be negative.
+   * @return a new root budget
+   */
+  static MemoryBudget root(final String name, final long limitBytes) {
+    return MemoryBudgetImpl.newRoot(name, limitBytes);
+  }
+
+  /**
+   * Creates a new child of this budget. The limits of a parent and its children are
+   * independent: children may in total exceed their parent's limit, in which case the parent's
+   * limit applies to their combined reservations.
+   * @param name the name of the budget, used in exception messages.
+   * @param limitBytes the maximum number of bytes that may be reserved. It must not be negative.
+   * @return a new child budget
+   */
+  MemoryBudget newChild(String name, long limitBytes);
+
+  /**
+   * Gets the name of this budget.
+   * @return the name of this budget.
+   */
+  String getName();
+
+  /**
+   * Gets the parent of this budget.
+   * @return the parent of this budget, or null if this is a root budget.
+   */
+  MemoryBudget getParent();
+
+  /**
+   * Gets the maximum number of bytes that may be reserved from this budget.
+   * @return the maximum number of bytes that may be reserved from this budget.
+   */
+  long getLimit();
+
+  /**
+   * Gets the number of bytes currently reserved from this budget, including its descendants.
+   * @return the number of bytes currently reserved from this budget.
+   */
+  long getUsed();
+
+  /**
+   * Gets the highest number of bytes ever reserved at one time from this budget.
+   * @return the highest number of bytes ever reserved at one time from this budget.
+   */
+  long getPeakUsed();
+
+  /**
+   * Gets the number of reservations rejected because this budget was exhausted.
+   * @return the number of reservations rejected because this budget was exhausted.
+   */
+  long getRejectedReservations();
+
+  /**
+   * Reserves the given number of bytes from this budget and all of its ancestors if possible.
+   * @param bytes the number of bytes to reserve. It must not be negative.
+   * @return true if the bytes were reserved, false if this budget or one of its ancestors
+   * does not have enough remaining capacity. Nothing is reserved in that case.
+   */
+  boolean tryReserve(long bytes);
+
+  /**
+   * Reserves the given number of bytes from this budget and all of its ancestors, waiting up to
+   * the given time for other reservations to be released if necessary.
+   * @param bytes the number of bytes to reserve. It must not be negative.
+   * @param timeoutMillis the maximum time to wait in milliseconds. Zero means fail fast.
+   * @throws MemoryBudgetException if the bytes could not be reserved in time, or the thread
+   * was interrupted while waiting, in which case the interrupt status is restored.
+   */
+  void reserve(long bytes, long timeoutMillis);
+
+  /**
+   * Releases bytes previously reserved from this budget and all of its ancestors,
+   * and wakes any threads waiting in {@link #reserve(long, long)}.
+   * @param bytes the number of bytes to release. It must not be negative.
+   */
+  void release(long bytes);
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory;
+
+/**
+ * Specific RuntimeException for a memory reservation that could not be satisfied by a
+ * {@link MemoryBudget} or one of its ancestors.
+ *
+ * @author Lee Rhodes
+ */
+public class MemoryBudgetException extends MemoryException {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Constructs a new exception for the given budget and request.
+   * @param budgetName the name of the budget that could not satisfy the request.
+   * @param requestedBytes the number of bytes requested.
+   * @param availableBytes the number of bytes available in that budget at the time.
+   */
+  public MemoryBudgetException(final String budgetName, final long requestedBytes,
+      final long availableBytes) {
+    super("Memory budget " + budgetName + " exhausted: requested " + requestedBytes
+        + " bytes, available " + availableBytes + " bytes.");
+  }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory;
+
+import java.io.File;
+import java.nio.ByteOrder;
+
+import org.apache.datasketches.memory.internal.MemoryScopeImpl;
+
+/**
+ * A MemoryScope owns any number of direct allocations and memory maps and releases them all
+ * together when it is closed. All memory obtained from a scope shares one validity flag, so
+ * closing the scope invalidates every one of them with a single state change.
+ *
+ * <p>Resources owned by a scope are not registered individually with a cleaner. The scope
+ * itself registers one cleaner, which releases everything and logs a warning if the scope
+ * becomes unreachable without having been closed.</p>
+ *
+ * <p>A confined scope may only be used and closed by the thread that created it. A shared scope
+ * may be used and closed by any thread.</p>
+ *
+ * <p><b>NOTE:</b> Native/Direct memory acquired using Unsafe may have garbage in it.
+ * It is the responsibility of the using class to clear this memory, if required,
+ * and to call <i>close()</i> when done.</p>
+ *
+ * @author Lee Rhodes
+ */
+public interface MemoryScope extends AutoCloseable {
+
+  /**
+   * Creates a new scope confined to the calling thread.
+   * @return a new confined MemoryScope
+   */
+  static MemoryScope confined() {
+    return MemoryScopeImpl.create(true);
+  }
+
+  /**
+   * Creates a new scope that may be used by any thread.
+   * @return a new shared MemoryScope
+   */
+  static MemoryScope shared() {
+    return MemoryScopeImpl.create(false);
+  }
+
+  /**
+   * Allocates native byte order direct memory owned by this scope.
+   * @param capacityBytes the size of the desired memory in bytes. It must be positive.
+   * @return WritableMemory owned by this scope.
+   * @throws IllegalStateException if this scope is closed or accessed by a non-owner thread.
+   */
+  WritableMemory allocateDirect(long capacityBytes);
+
+  /**
+   * Allocates direct memory owned by this scope with the given alignment and byte order.
+   * @param capacityBytes the size of the desired memory in bytes. It must be positive.
+   * @param alignment the alignment of the native address. It must be a positive power of 2.
+   * @param byteOrder the byte order of the memory.
+   * @return WritableMemory owned by this scope.
+   * @throws IllegalStateException if this scope is closed or accessed by a non-owner thread.
+   */
+  WritableMemory allocateDirect(long capacityBytes, long alignment, ByteOrder byteOrder);
+
+  /**
+   * Maps the given region of a file for read operations. The mapping is owned by this scope.
+   * @param file the given file to map. It must be non-null.
+   * @param fileOffsetBytes the position in the given file in bytes. It must not be negative.
+   * @param capacityBytes the size of the mapped memory. It must be positive.
+   * @param byteOrder the byte order to be used.
+   * @return Memory owned by this scope.
+   * @throws IllegalStateException if this scope is closed or accessed by a non-owner thread.
+   */
+  Memory map(File file, long fileOffsetBytes, long capacityBytes, ByteOrder byteOrder);
+
+  /**
+   * Maps the given region of a file for write operations. The mapping is owned by this scope.
+   * @param file the given file to map. It must be non-null and writable.
+   * @param fileOffsetBytes the position in the given file in bytes. It must not be negative.
+   * @param capacityBytes the size of the mapped memory. It must be positive.
+   * @param byteOrder the byte order to be used.
+   * @return WritableMemory owned by this scope.
+   * @throws IllegalStateException if this scope is closed or accessed by a non-owner thread.
+   */
+  WritableMemory writableMap(File file, long fileOffsetBytes, long capacityBytes,
+      ByteOrder byteOrder);
+
+  /**
+   * Returns true if this scope is confined to the thread that created it.
+   * @return true if this scope is confined to the thread that created it.
+   */
+  boolean isConfined();
+
+  /**
+   * Gets the number of allocations and maps currently owned by this scope.
+   * @return the number of allocations and maps currently owned by this scope.
+   */
+  int getResourceCount();
+
+  /**
+   * Returns true if this scope has not been closed.
+   * @return true if this scope has not been closed.
+   */
+  boolean isValid();
+
+  /**
+   * Invalidates all memory owned by this scope and releases every allocation and map.
+   * Calling this more than once has no effect.
+   * @throws IllegalStateException if a confined scope is closed by a non-owner thread.
+   */
+  @Override
+  void close();
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory;
+
+import org.apache.datasketches.memory.internal.DirectMemoryPool;
+
+/**
+ * A MemoryRequestServer that serves requests from a pool of direct, off-heap memory segments.
+ *
+ * <p>Requests are rounded up to a power-of-two size class and served first from a small
+ * per-thread cache, then from a shared free list, and only if both are empty from a new native
+ * allocation. Memory passed to {@link #requestClose(WritableMemory, WritableMemory)} is
+ * invalidated and its segment is returned to the pool for reuse, which avoids the cost of
+ * native allocation and cleaner registration for applications that frequently grow and
+ * release direct memory.</p>
+ *
+ * <p>Requests larger than the largest size class are allocated individually and freed when
+ * released. The contents of returned memory are unspecified: recycled memory is not cleared.
+ * Memory returned by this server has this server as its MemoryRequestServer.</p>
+ *
+ * <p>All pooled native memory is freed by {@link #close()}, which also invalidates any memory
+ * still leased from this server.</p>
+ *
+ * @author Lee Rhodes
+ */
+public final class PooledMemoryRequestServer implements MemoryRequestServer, AutoCloseable {
+  /** The default size of the smallest size class, in bytes. */
+  public static final long DEFAULT_MIN_SEGMENT_BYTES = 256;
+  /** The default size of the largest size class, in bytes. */
+  public static final long DEFAULT_MAX_SEGMENT_BYTES = 64L << 20;
+  /** The default number of free segments per size class cached by each thread. */
+  public static final int DEFAULT_THREAD_CACHE_SIZE = 8;
+
+  private final DirectMemoryPool pool;
+
+  /**
+   * Constructs a new server with the default size classes and thread cache size.
+   */
+  public PooledMemoryRequestServer() {
+    this(DEFAULT_MIN_SEGMENT_BYTES, DEFAULT_MAX_SEGMENT_BYTES, DEFAULT_THREAD_CACHE_SIZE);
+  }
+
+  /**
+   * Constructs a new server.
+   * @param minSegmentBytes the size of the smallest size class. It must be a power of two.
+   * @param maxSegmentBytes the size of the largest size class. It must be a power of two and
+   * not less than <i>minSegmentBytes</i>.
+   * @param threadCacheSize the maximum number of free segments per size class cached by each
+   * thread. Zero disables the per-thread caches.
+   */
+  public PooledMemoryRequestServer(final long minSegmentBytes, final long maxSegmentBytes,
+      final int threadCacheSize) {
+    pool = new DirectMemoryPool(minSegmentBytes, maxSegmentBytes, threadCacheSize, this);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>This returns native-ordered direct memory leased from this pool.
+   * @throws IllegalStateException if this server has been closed.
+   */
+  @Override
+  public WritableMemory request(final long capacityBytes) {
+    return pool.lease(capacityBytes);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>If <i>memToClose</i> was returned by {@link #request(long)} of this server, it and all of
+   * its views become invalid and its segment is returned to the pool. Otherwise this does nothing.
+   */
+  @Override
+  public void requestClose(final WritableMemory memToClose, final WritableMemory newMemory) {
+    pool.release(memToClose);
+  }
+
+  /**
+   * Frees all native memory held by this server. Any memory still leased from this server
+   * becomes invalid. This must be called only after all threads have stopped using this server.
+   */
+  @Override
+  public void close() {
+    pool.close();
+  }
+
+  /**
+   * Returns true if this server has not been closed.
+   * @return true if this server has not been closed.
+   */
+  public boolean isOpen() {
+    return pool.isOpen();
+  }
+
+  /**
+   * Gets the number of memory objects currently leased from this server.
+   * @return the number of memory objects currently leased from this server.
+   */
+  public long getLeasedCount() {
+    return pool.getLeasedSegments();
+  }
+
+  /**
+   * Gets the number of native bytes currently held by this server, leased or free.
+   * @return the number of native bytes currently held by this server, leased or free.
+   */
+  public long getRetainedBytes() {
+    return pool.getRetainedBytes();
+  }
+
+}
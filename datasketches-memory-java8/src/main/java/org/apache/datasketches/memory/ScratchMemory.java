@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory;
+
+import org.apache.datasketches.memory.internal.ScratchMemoryImpl;
+
+/**
+ * A per-thread stack of temporary direct memory. Regions are handed out from a reusable native
+ * block by bumping an offset and are given back in bulk by releasing to a previous mark, so
+ * short-lived working space needs no native allocation and no cleaner.
+ *
+ * <p>Typical use:</p>
+ * <pre>{@code
+ * ScratchMemory scratch = ScratchMemory.current();
+ * long mark = scratch.mark();
+ * try {
+ *   WritableMemory tmp = scratch.allocate(1024);
+ *   ...
+ * } finally {
+ *   scratch.release(mark);
+ * }
+ * }</pre>
+ *
+ * <p>Releasing a mark invalidates every region allocated after it. If the native block is
+ * exhausted, a request is satisfied from the heap instead and such regions are left to the
+ * garbage collector. The native block is created on first use with a capacity given by the
+ * system property {@value #CAPACITY_PROPERTY}, and is freed after its thread has terminated.</p>
+ *
+ * <p>A ScratchMemory must only be used by the thread that obtained it from {@link #current()}.
+ * Its regions must not be used by other threads after they have been released.</p>
+ *
+ * @author Lee Rhodes
+ */
+public interface ScratchMemory {
+
+  /**
+   * The system property that sets the capacity in bytes of each thread's native block.
+   */
+  String CAPACITY_PROPERTY = "datasketches.memory.scratch.capacityBytes";
+
+  /**
+   * The default capacity in bytes of each thread's native block.
+   */
+  long DEFAULT_CAPACITY = 1 << 20;
+
+  /**
+   * Gets the ScratchMemory of the calling thread.
+   * @return the ScratchMemory of the calling thread.
+   */
+  static ScratchMemory current() {
+    return ScratchMemoryImpl.current();
+  }
+
+  /**
+   * Pushes a new frame onto the stack. Regions allocated until the matching
+   * {@link #release(long)} belong to this frame.
+   * @return the mark to be passed to {@link #release(long)}.
+   */
+  long mark();
+
+  /**
+   * Allocates a native byte order region aligned to 8 bytes from the current frame.
+   * @param capacityBytes the size of the region in bytes. It must not be negative.
+   * @return a WritableMemory region, which is heap memory if the native block is exhausted.
+   */
+  WritableMemory allocate(long capacityBytes);
+
+  /**
+   * Allocates a native byte order region of the given alignment from the current frame.
+   * @param capacityBytes the size of the region in bytes. It must not be negative.
+   * @param alignment the alignment of the native address of the region. It must be a
+   * positive power of 2.
+   * @return a WritableMemory region, which is heap memory if the native block is exhausted.
+   */
+  WritableMemory allocate(long capacityBytes, long alignment);
+
+  /**
+   * Pops all frames down to and including the frame of the given mark, invalidating their
+   * native regions and making their space available again.
+   * @param mark a mark obtained from {@link #mark()} that has not yet been released.
+   * @throws IllegalStateException if the mark has already been released.
+   */
+  void release(long mark);
+
+  /**
+   * Gets the capacity of the native block in bytes.
+   * @return the capacity of the native block in bytes.
+   */
+  long getCapacity();
+
+  /**
+   * Gets the number of bytes of the native block currently in use, including alignment padding.
+   * @return the number of bytes of the native block currently in use.
+   */
+  long getUsedBytes();
+
+}
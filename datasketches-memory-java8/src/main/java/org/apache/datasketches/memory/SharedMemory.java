@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory;
+
+import java.io.File;
+import java.nio.ByteOrder;
+
+import org.apache.datasketches.memory.internal.SharedMemoryImpl;
+
+/**
+ * Named shared memory segments for exchanging data between processes without copying or
+ * serializing it. A segment is a file in a memory-backed file system, by default
+ * <i>/dev/shm</i>, that is memory mapped by every process using it, so that writes by one
+ * process are directly visible to the others.
+ *
+ * <p>The directory of the segments is given by the system property {@value #DIRECTORY_PROPERTY}.
+ * If it is not set, <i>/dev/shm</i> is used if it exists, and otherwise the directory given by
+ * <i>java.io.tmpdir</i>, which is usually backed by disk.</p>
+ *
+ * <p>A segment exists until it is unlinked, even if no process has it mapped. Unlinking a
+ * segment removes its name; processes that have it mapped can continue to use it until they
+ * close their handles. As with any memory mapped file, the processes must coordinate their
+ * access to the contents themselves.</p>
+ *
+ * @author Lee Rhodes
+ */
+public final class SharedMemory {
+
+  /**
+   * The system property that sets the directory of the shared memory segments.
+   */
+  public static final String DIRECTORY_PROPERTY = "datasketches.memory.shm.directory";
+
+  private SharedMemory() { }
+
+  /**
+   * Creates a new segment with the given name and maps it for write operations. The contents
+   * of the new segment are zero. The segment only becomes visible to other processes under its
+   * name once it has its full size.
+   * @param name the name of the segment. It must be a valid file name without a path.
+   * @param capacityBytes the size of the segment in bytes. It must be positive.
+   * @param byteOrder the byte order of the returned WritableMemory.
+   * @return a WritableMapHandle for managing the mapped segment.
+   * @throws IllegalArgumentException if a segment with the given name already exists.
+   */
+  public static WritableMapHandle create(final String name, final long capacityBytes,
+      final ByteOrder byteOrder) {
+    return SharedMemoryImpl.create(name, capacityBytes, byteOrder);
+  }
+
+  /**
+   * Opens the existing segment with the given name and maps all of it for write operations.
+   * @param name the name of the segment.
+   * @param byteOrder the byte order of the returned WritableMemory.
+   * @return a WritableMapHandle for managing the mapped segment.
+   * @throws IllegalArgumentException if there is no segment with the given name.
+   */
+  public static WritableMapHandle open(final String name, final ByteOrder byteOrder) {
+    return SharedMemoryImpl.open(name, byteOrder);
+  }
+
+  /**
+   * Opens the existing segment with the given name and maps all of it for read operations.
+   * @param name the name of the segment.
+   * @param byteOrder the byte order of the returned Memory.
+   * @return a MapHandle for managing the mapped segment.
+   * @throws IllegalArgumentException if there is no segment with the given name.
+   */
+  public static MapHandle openReadOnly(final String name, final ByteOrder byteOrder) {
+    return SharedMemoryImpl.openReadOnly(name, byteOrder);
+  }
+
+  /**
+   * Removes the name of the segment. Its memory is freed when no process has it mapped.
+   * @param name the name of the segment.
+   * @return true if the segment existed and was unlinked.
+   */
+  public static boolean unlink(final String name) {
+    return SharedMemoryImpl.unlink(name);
+  }
+
+  /**
+   * Returns true if a segment with the given name exists.
+   * @param name the name of the segment.
+   * @return true if a segment with the given name exists.
+   */
+  public static boolean exists(final String name) {
+    return SharedMemoryImpl.getFile(name).exists();
+  }
+
+  /**
+   * Gets the file of the segment with the given name, which need not exist.
+   * @param name the name of the segment.
+   * @return the file of the segment with the given name.
+   */
+  public static File getFile(final String name) {
+    return SharedMemoryImpl.getFile(name);
+  }
+
+}
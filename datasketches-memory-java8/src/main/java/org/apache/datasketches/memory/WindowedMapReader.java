@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory;
+
+import java.io.File;
+import java.nio.ByteOrder;
+import java.util.concurrent.Executor;
+
+import org.apache.datasketches.memory.internal.Util;
+import org.apache.datasketches.memory.internal.WindowedMapReaderImpl;
+
+/**
+ * A sequential, read-only reader of a file that maps the file in fixed-size windows rather
+ * than all at once. Windows are mapped as the position reaches them, and at most a given
+ * number of windows are mapped at any time; the least recently used window is unmapped
+ * to make room for a new one. This bounds the address space and the number of mappings
+ * used for files that are too large to map whole, while sequential scans still read
+ * directly from mapped memory.
+ *
+ * <p>If an executor is given, entering a window also maps the next window and loads it into
+ * physical memory on the executor, so that a sequential scan rarely waits for the disk.</p>
+ *
+ * <p>Primitive values that straddle two windows are assembled from both. A WindowedMapReader
+ * is not thread-safe.</p>
+ *
+ * @author Lee Rhodes
+ */
+public interface WindowedMapReader extends AutoCloseable {
+
+  /**
+   * Maps the given file for sequential reads in windows, without prefetching.
+   * @param file the given file to map. It must be non-empty.
+   * @param windowBytes the size of each window in bytes. It is rounded up to a whole number of
+   * pages.
+   * @param maxWindows the maximum number of windows mapped at any time. It must be at least 1.
+   * @param byteOrder the byte order of the primitive values in the file.
+   * @return a new WindowedMapReader positioned at the start of the file.
+   */
+  static WindowedMapReader map(File file, long windowBytes, int maxWindows,
+      ByteOrder byteOrder) {
+    return new WindowedMapReaderImpl(file, windowBytes, maxWindows, byteOrder, null);
+  }
+
+  /**
+   * Maps the given file for sequential reads in windows, prefetching the next window on the
+   * given executor.
+   * @param file the given file to map. It must be non-empty.
+   * @param windowBytes the size of each window in bytes. It is rounded up to a whole number of
+   * pages.
+   * @param maxWindows the maximum number of windows mapped at any time. It must be at least 2,
+   * so that the next window can be mapped while the current one is in use.
+   * @param byteOrder the byte order of the primitive values in the file.
+   * @param prefetchExecutor the executor that loads the next window. It must not be null.
+   * @return a new WindowedMapReader positioned at the start of the file.
+   */
+  static WindowedMapReader map(File file, long windowBytes, int maxWindows,
+      ByteOrder byteOrder, Executor prefetchExecutor) {
+    Util.nullCheck(prefetchExecutor, "prefetchExecutor");
+    return new WindowedMapReaderImpl(file, windowBytes, maxWindows, byteOrder, prefetchExecutor);
+  }
+
+  /**
+   * Gets the capacity of this reader, which is the length of the file in bytes.
+   * @return the capacity of this reader in bytes.
+   */
+  long getCapacity();
+
+  /**
+   * Gets the size of each window in bytes, after rounding up to a whole number of pages.
+   * @return the size of each window in bytes.
+   */
+  long getWindowBytes();
+
+  /**
+   * Gets the number of windows currently mapped.
+   * @return the number of windows currently mapped.
+   */
+  int getMappedWindowCount();
+
+  /**
+   * Gets the byte order of the primitive values read.
+   * @return the byte order of the primitive values read.
+   */
+  ByteOrder getTypeByteOrder();
+
+  /**
+   * Gets the current position in bytes.
+   * @return the current position in bytes.
+   */
+  long getPosition();
+
+  /**
+   * Sets the current position. The window of the new position is mapped by the next read.
+   * @param position the new position in bytes. It must not be greater than the capacity.
+   * @throws IllegalArgumentException if the position is out of bounds.
+   */
+  void setPosition(long position);
+
+  /**
+   * Gets the number of bytes between the current position and the capacity.
+   * @return the number of bytes remaining.
+   */
+  long getRemaining();
+
+  /**
+   * Returns true if there are bytes remaining.
+   * @return true if there are bytes remaining.
+   */
+  boolean hasRemaining();
+
+  /**
+   * Gets the byte value at the current position and increments the position by 1.
+   * @return the byte at the current position.
+   */
+  byte getByte();
+
+  /**
+   * Gets the short value at the current position and increments the position by 2.
+   * @return the short at the current position.
+   */
+  short getShort();
+
+  /**
+   * Gets the char value at the current position and increments the position by 2.
+   * @return the char at the current position.
+   */
+  char getChar();
+
+  /**
+   * Gets the int value at the current position and increments the position by 4.
+   * @return the int at the current position.
+   */
+  int getInt();
+
+  /**
+   * Gets the long value at the current position and increments the position by 8.
+   * @return the long at the current position.
+   */
+  long getLong();
+
+  /**
+   * Gets the float value at the current position and increments the position by 4.
+   * @return the float at the current position.
+   */
+  float getFloat();
+
+  /**
+   * Gets the double value at the current position and increments the position by 8.
+   * @return the double at the current position.
+   */
+  double getDouble();
+
+  /**
+   * Gets bytes starting at the current position and increments the position by the length.
+   * @param dstArray the destination array.
+   * @param dstOffsetBytes the offset in the destination array.
+   * @param lengthBytes the number of bytes to get.
+   */
+  void getByteArray(byte[] dstArray, int dstOffsetBytes, int lengthBytes);
+
+  /**
+   * Returns true if this reader has not been closed.
+   * @return true if this reader has not been closed.
+   */
+  boolean isValid();
+
+  /**
+   * Unmaps all windows and closes this reader. Waits for prefetches in progress to finish.
+   */
+  @Override
+  void close();
+
+}
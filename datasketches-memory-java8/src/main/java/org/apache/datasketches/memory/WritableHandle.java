@@ -33,4 +33,24 @@ public interface WritableHandle extends Handle {
    * @return a WritableMemory
    */
   WritableMemory getWritable();
+
+  /**
+   * Changes the capacity of the underlying resource and returns a new WritableMemory for it.
+   * The contents are preserved up to the lesser of the old and new capacities.
+   * Native byte order and the MemoryRequestServer of the current WritableMemory are preserved.
+   *
+   * <p>For direct memory this uses <i>Unsafe.reallocateMemory()</i>, which can often grow large
+   * allocations without copying. For memory-mapped files the file is extended if required and
+   * remapped, without copying. The file is never truncated.</p>
+   *
+   * <p>After this call, the previous WritableMemory and all of its regions and buffers are
+   * invalid, even if this throws an exception. {@link #getWritable()} returns the new
+   * WritableMemory.</p>
+   *
+   * @param newCapacityBytes the new capacity in bytes. It must be positive.
+   * @return the new WritableMemory
+   * @throws IllegalStateException if this handle has been closed.
+   * @throws UnsupportedOperationException if the resource is read-only.
+   */
+  WritableMemory resize(long newCapacityBytes);
 }
@@ -19,6 +19,9 @@
 
 package org.apache.datasketches.memory;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 /**
  * Writable interface for a memory mapped file
  *
@@ -34,4 +37,74 @@ public interface WritableMap extends Map {
    */
   void force();
 
+  /**
+   * Writes any changes in the given range of the mapping back to the file.
+   * The range is widened to whole pages.
+   * @param offsetBytes the offset of the range in bytes, relative to the start of the mapping.
+   * @param lengthBytes the length of the range in bytes.
+   * @throws IllegalStateException if the mapping has been closed.
+   * @throws IllegalArgumentException if the range is out of bounds.
+   */
+  void force(long offsetBytes, long lengthBytes);
+
+  /**
+   * Writes any changes in the given range of the mapping back to the file on the given executor.
+   * Closing or resizing the mapping waits until forces in progress have completed. A force
+   * that starts after the mapping has been closed completes exceptionally with an
+   * IllegalStateException.
+   * @param offsetBytes the offset of the range in bytes, relative to the start of the mapping.
+   * @param lengthBytes the length of the range in bytes.
+   * @param executor the executor to run the force on. It must not be null.
+   * @return a CompletableFuture that completes when the range has been written to the file.
+   * @throws IllegalStateException if the mapping has been closed.
+   * @throws IllegalArgumentException if the range is out of bounds.
+   */
+  CompletableFuture<Void> forceAsync(long offsetBytes, long lengthBytes, Executor executor);
+
+  /**
+   * Starts tracking which pages of the mapping are written, for use by {@link #forceDirty()},
+   * and returns a new WritableMemory for the whole mapping. Writes through this WritableMemory
+   * and through its regions and buffers are tracked at page granularity. Writes through views
+   * obtained before this call are not tracked.
+   *
+   * <p>A handle's {@link WritableHandle#getWritable()} returns the new WritableMemory
+   * afterwards. Tracking continues across {@link #extend(long)} and
+   * {@link WritableHandle#resize(long)}. Calling this again returns another tracked
+   * WritableMemory.</p>
+   *
+   * @return a new WritableMemory whose writes are tracked.
+   * @throws IllegalStateException if the mapping has been closed.
+   */
+  WritableMemory trackDirtyPages();
+
+  /**
+   * Writes the pages written since the previous call back to the file, and clears the record
+   * of dirty pages. Adjacent dirty pages are written with a single call to the operating system.
+   * @return the number of pages written back to the file.
+   * @throws IllegalStateException if the mapping has been closed or if dirty pages are not
+   * tracked, see {@link #trackDirtyPages()}.
+   */
+  long forceDirty();
+
+  /**
+   * Grows the file and the mapping to the given capacity and returns a new WritableMemory for
+   * it. The file is never truncated.
+   *
+   * <p>If the new capacity fits within the address space reserved when the file was mapped,
+   * see {@link WritableMemory#writableMap(java.io.File, long, long, long, java.nio.ByteOrder)},
+   * the file is extended in place: the native base address does not move and all existing views
+   * stay valid, with their original capacities. Otherwise the file is remapped, reserving twice
+   * the new capacity, and all existing views become invalid.</p>
+   *
+   * <p>A handle's {@link WritableHandle#getWritable()} returns the new WritableMemory
+   * afterwards.</p>
+   *
+   * @param newCapacityBytes the new capacity in bytes. It cannot be less than the current
+   * capacity.
+   * @return a new WritableMemory for the whole new capacity.
+   * @throws IllegalStateException if the mapping has been closed.
+   * @throws IllegalArgumentException if the new capacity is less than the current capacity.
+   */
+  WritableMemory extend(long newCapacityBytes);
+
 }
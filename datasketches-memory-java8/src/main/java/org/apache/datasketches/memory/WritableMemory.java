@@ -93,6 +93,54 @@ public interface WritableMemory extends Memory {
   static WritableMapHandle writableMap(File file, long fileOffsetBytes, long capacityBytes, ByteOrder byteOrder) {
     return WritableMemoryImpl.writableMap(file, fileOffsetBytes, capacityBytes, byteOrder);
   }
+
+  /**
+   * Maps the specified portion of the given file into Memory for write operations, reserving
+   * address space so that the mapping can later be grown in place with
+   * {@link WritableMap#extend(long)}. Only the first capacityBytes of the reservation are backed
+   * by the file; the reservation itself does not consume memory or disk space.
+   *
+   * <p><b>Note:</b> Always qualify this method with the class name, e.g.,
+   * <i>WritableMemory.map(...)</i>.
+   * @param file the given file to map. It may not be null.
+   * @param fileOffsetBytes the position in the given file in bytes. It may not be negative.
+   * @param capacityBytes the size of the mapped Memory. It may not be negative or zero.
+   * @param reservedCapacityBytes the size of the address space to reserve. It may not be less
+   * than capacityBytes.
+   * @param byteOrder the byte order to be used for the given file. It may not be null.
+   * @return WritableMapHandle for managing the mapped Memory.
+   * Please read Javadocs for {@link Handle}.
+   */
+  static WritableMapHandle writableMap(File file, long fileOffsetBytes, long capacityBytes,
+      long reservedCapacityBytes, ByteOrder byteOrder) {
+    return WritableMemoryImpl.writableMap(file, fileOffsetBytes, capacityBytes,
+        reservedCapacityBytes, byteOrder);
+  }
+
+  /**
+   * Maps the specified portion of the given file privately into Memory for write operations.
+   * The mapping is copy-on-write: pages are read from the file, but pages that are written to
+   * are copied into anonymous memory and the writes never reach the file, not even when the
+   * mapping is closed. This allows speculative updates of a file without copying it first.
+   * The file itself may be read-only.
+   *
+   * <p>The mapping cannot be forced, extended or resized; those methods of the returned handle
+   * throw UnsupportedOperationException.</p>
+   *
+   * <p><b>Note:</b> Always qualify this method with the class name, e.g.,
+   * <i>WritableMemory.map(...)</i>.
+   * @param file the given file to map. It may not be null.
+   * @param fileOffsetBytes the position in the given file in bytes. It may not be negative.
+   * @param capacityBytes the size of the mapped Memory. It may not be negative or zero, and the
+   * mapped portion must lie within the file.
+   * @param byteOrder the byte order to be used for the given file. It may not be null.
+   * @return WritableMapHandle for managing the mapped Memory.
+   * Please read Javadocs for {@link Handle}.
+   */
+  static WritableMapHandle writableMapPrivate(File file, long fileOffsetBytes, long capacityBytes,
+      ByteOrder byteOrder) {
+    return WritableMemoryImpl.writableMapPrivate(file, fileOffsetBytes, capacityBytes, byteOrder);
+  }
   
   //ALLOCATE DIRECT
   /**
@@ -136,6 +184,57 @@ public interface WritableMemory extends Memory {
   static WritableHandle allocateDirect(long capacityBytes, MemoryRequestServer memReqSvr) {
     return WritableMemoryImpl.allocateDirect(capacityBytes, memReqSvr);
   }
+
+  /**
+   * Allocates and provides access to capacityBytes directly in native (off-heap) memory
+   * leveraging the WritableMemory API. Native byte order is assumed.
+   * The native address of the allocated memory will be a multiple of the given alignment,
+   * e.g., 64 for a cache line or 4096 for a page. This does not depend on, or change,
+   * whether the JVM page aligns direct memory.
+   *
+   * <p><b>NOTE:</b> Native/Direct memory acquired using Unsafe may have garbage in it.
+   * It is the responsibility of the using class to clear this memory, if required,
+   * and to call <i>close()</i> when done.</p>
+   *
+   * @param capacityBytes the size of the desired memory in bytes.
+   * @param alignment the required alignment of the native address in bytes.
+   * It must be a positive power of 2. Alignments greater than 8 require up to
+   * <i>alignment</i> additional bytes of native memory.
+   * @param memReqSvr A user-specified MemoryRequestServer, which may be null.
+   * This is a callback mechanism for a user client of direct memory to request more memory.
+   * @return WritableHandle for this off-heap resource.
+   * Please read Javadocs for {@link Handle}.
+   */
+  static WritableHandle allocateDirect(long capacityBytes, long alignment,
+      MemoryRequestServer memReqSvr) {
+    return WritableMemoryImpl.allocateDirect(capacityBytes, alignment, memReqSvr);
+  }
+
+  /**
+   * Allocates and provides access to capacityBytes directly in native (off-heap) memory
+   * backed by an anonymous memory mapping that is eligible for transparent huge pages.
+   * Native byte order is assumed. This is intended for very large allocations that are accessed
+   * randomly, where TLB misses dominate.
+   *
+   * <p>The native address is aligned to 2MB and the mapping is rounded up to a multiple of 2MB.
+   * Whether huge pages are actually used is decided by the operating system. On Linux this
+   * requires <i>/sys/kernel/mm/transparent_hugepage/enabled</i> to be set to <i>always</i>.
+   * Otherwise the memory is backed by regular pages. This requires <i>/dev/zero</i>.</p>
+   *
+   * <p>Unlike {@link #allocateDirect(long)}, the memory is zero filled on allocation and is
+   * counted by {@link BaseState#getCurrentDirectMemoryHugePageAllocations()} and
+   * {@link BaseState#getCurrentDirectMemoryHugePageAllocated()}.
+   * It is the responsibility of the using class to call <i>close()</i> when done.</p>
+   *
+   * @param capacityBytes the size of the desired memory in bytes.
+   * @param memReqSvr A user-specified MemoryRequestServer, which may be null.
+   * This is a callback mechanism for a user client of direct memory to request more memory.
+   * @return WritableHandle for this off-heap resource.
+   * Please read Javadocs for {@link Handle}.
+   */
+  static WritableHandle allocateDirectHugePages(long capacityBytes, MemoryRequestServer memReqSvr) {
+    return WritableMemoryImpl.allocateDirectHugePages(capacityBytes, memReqSvr);
+  }
   
   //REGIONS
   /**
@@ -571,6 +670,15 @@ public interface WritableMemory extends Memory {
    */
   void clear(long offsetBytes, long lengthBytes);
 
+  /**
+   * Clears a portion of this Memory to zero, like {@link #clear(long, long)}, but splits large
+   * portions into page-aligned chunks that are cleared concurrently on the common ForkJoinPool.
+   * Portions smaller than 16MB are cleared sequentially.
+   * @param offsetBytes offset bytes relative to this Memory start
+   * @param lengthBytes the length in bytes
+   */
+  void clearParallel(long offsetBytes, long lengthBytes);
+
   /**
    * Clears the bits defined by the bitMask
    * @param offsetBytes offset bytes relative to this Memory start.
@@ -592,6 +700,30 @@ public interface WritableMemory extends Memory {
    */
   void fill(long offsetBytes, long lengthBytes, byte value);
 
+  /**
+   * Fills a portion of this Memory region to the given byte value, like
+   * {@link #fill(long, long, byte)}, but splits large portions into page-aligned chunks that are
+   * filled concurrently on the common ForkJoinPool. Portions smaller than 16MB are filled
+   * sequentially.
+   * @param offsetBytes offset bytes relative to this Memory start
+   * @param lengthBytes the length in bytes
+   * @param value the given byte value
+   */
+  void fillParallel(long offsetBytes, long lengthBytes, byte value);
+
+  /**
+   * Reverses the byte order of each element of the given primitive type in a portion of this
+   * Memory, for example to convert a big-endian column to native order before processing it.
+   * The portion is converted in place, in safepoint-friendly chunks.
+   * @param offsetBytes offset bytes relative to this Memory start
+   * @param lengthBytes the length in bytes, which must be a multiple of the element size
+   * @param primitiveType one of short.class, char.class, int.class, long.class, float.class or
+   * double.class
+   * @throws IllegalArgumentException if the type is not one of the above or the length is not a
+   * multiple of its size.
+   */
+  void reverseBytesInPlace(long offsetBytes, long lengthBytes, Class<?> primitiveType);
+
   /**
    * Sets the bits defined by the bitMask
    * @param offsetBytes offset bytes relative to this Memory start
@@ -23,6 +23,8 @@ import static org.apache.datasketches.memory.internal.UnsafeUtil.unsafe;
 
 import java.util.logging.Logger;
 
+import org.apache.datasketches.memory.internal.AllocationTracker.AllocationSite;
+
 /**
  * Provides access to direct (native) memory.
  *
@@ -32,10 +34,14 @@ import java.util.logging.Logger;
 @SuppressWarnings("restriction")
 final class AllocateDirect {
   static final Logger LOG = Logger.getLogger(AllocateDirect.class.getCanonicalName());
+  static final long NATIVE_ALIGNMENT = 8; //guaranteed by Unsafe.allocateMemory()
 
-  private final Deallocator deallocator;
-  private final long nativeBaseOffset;
-  private final MemoryCleaner cleaner;
+  private final long alignment; //effective alignment, including page alignment if set
+  private final boolean registerCleaner; //false if the lifetime is owned by a MemoryScope
+  //These are replaced by resize()
+  private Deallocator deallocator;
+  private long nativeBaseOffset;
+  private MemoryCleaner cleaner;
 
   /**
    * Base Constructor for allocate native memory.
@@ -46,26 +52,111 @@ final class AllocateDirect {
    * @param capacityBytes the the requested capacity of off-heap memory. Cannot be zero.
    */
   AllocateDirect(final long capacityBytes) {
-    final boolean pageAligned = NioBits.isPageAligned();
-    final long pageSize = NioBits.pageSize();
-    final long allocationSize = capacityBytes + (pageAligned ? pageSize : 0);
-    NioBits.reserveMemory(allocationSize, capacityBytes);
+    this(capacityBytes, NATIVE_ALIGNMENT);
+  }
+
+  /**
+   * Constructor for allocate native memory with a given alignment.
+   *
+   * <p>The native base offset will be a multiple of the given alignment, and also of the page
+   * size if the JVM page aligns direct memory. Alignments greater than 8 bytes are achieved by
+   * over-allocating and rounding up the native address.
+   * @param capacityBytes the the requested capacity of off-heap memory. Cannot be zero.
+   * @param alignment the required alignment in bytes. It must be a positive power of 2.
+   */
+  AllocateDirect(final long capacityBytes, final long alignment) {
+    this(capacityBytes, alignment, true);
+  }
+
+  /**
+   * Constructor for allocate native memory with a given alignment, optionally without
+   * registering a MemoryCleaner. Without a cleaner the caller is responsible for calling
+   * {@link #doClose()} or {@link #free()}, otherwise the memory is leaked.
+   * @param capacityBytes the the requested capacity of off-heap memory. Cannot be zero.
+   * @param alignment the required alignment in bytes. It must be a positive power of 2.
+   * @param registerCleaner if true, a MemoryCleaner is registered for this allocation.
+   */
+  AllocateDirect(final long capacityBytes, final long alignment, final boolean registerCleaner) {
+    this.registerCleaner = registerCleaner;
+    this.alignment = NioBits.isPageAligned()
+        ? Math.max(alignment, NioBits.pageSize())
+        : alignment;
+    allocate(capacityBytes);
+  }
+
+  private void allocate(final long capacityBytes) {
+    final long padding = (alignment > NATIVE_ALIGNMENT) ? alignment : 0;
+    final long allocationSize = capacityBytes + padding;
+    DirectMemoryAccounting.reserveMemory(allocationSize, capacityBytes);
 
     final long nativeAddress;
     try {
       nativeAddress = unsafe.allocateMemory(allocationSize);
     } catch (final OutOfMemoryError err) {
-      NioBits.unreserveMemory(allocationSize, capacityBytes);
+      DirectMemoryAccounting.unreserveMemory(allocationSize, capacityBytes);
       throw new RuntimeException(err);
     }
-    if (pageAligned && ((nativeAddress % pageSize) != 0)) {
-      //Round up to page boundary
-      nativeBaseOffset = (nativeAddress & ~(pageSize - 1L)) + pageSize;
-    } else {
-      nativeBaseOffset = nativeAddress;
-    }
+    //Round up to the alignment boundary
+    nativeBaseOffset = (padding > 0) ? Util.alignUp(nativeAddress, alignment) : nativeAddress;
     deallocator = new Deallocator(nativeAddress, allocationSize, capacityBytes);
-    cleaner = new MemoryCleaner(this, deallocator);
+    cleaner = registerCleaner ? new MemoryCleaner(this, deallocator) : null;
+  }
+
+  /**
+   * Changes the capacity of this allocation, preserving the contents up to the lesser of the old
+   * and new capacities. All views of the old allocation become invalid, including on failure.
+   * Afterwards {@link #getNativeBaseOffset()} and {@link #getValid()} refer to the new allocation.
+   *
+   * <p>If no alignment padding is required this uses <i>Unsafe.reallocateMemory()</i>, which for
+   * large allocations can often grow in place or remap without copying. Otherwise a new
+   * allocation is made and the contents are copied.</p>
+   * @param newCapacityBytes the new capacity. Cannot be zero.
+   */
+  void resize(final long newCapacityBytes) {
+    final Deallocator old = deallocator;
+    if (!old.retire()) {
+      throw new IllegalStateException("MemoryImpl not valid.");
+    }
+    try {
+      if (cleaner != null) {
+        cleaner.clean(); //deregisters the old cleaner, a no-op because old is retired
+      }
+      if (alignment <= NATIVE_ALIGNMENT) { //no padding
+        DirectMemoryAccounting.reserveMemory(newCapacityBytes, newCapacityBytes);
+        final long newAddress;
+        try {
+          newAddress = unsafe.reallocateMemory(old.nativeAddress, newCapacityBytes);
+        } catch (final OutOfMemoryError err) {
+          DirectMemoryAccounting.unreserveMemory(newCapacityBytes, newCapacityBytes);
+          rewrap(old);
+          throw new RuntimeException(err);
+        }
+        DirectMemoryAccounting.unreserveMemory(old.allocationSize, old.capacity);
+        nativeBaseOffset = newAddress;
+        deallocator = new Deallocator(newAddress, newCapacityBytes, newCapacityBytes);
+        cleaner = registerCleaner ? new MemoryCleaner(this, deallocator) : null;
+      } else {
+        final long oldBaseOffset = nativeBaseOffset;
+        try {
+          allocate(newCapacityBytes);
+        } catch (final RuntimeException e) {
+          rewrap(old);
+          throw e;
+        }
+        CompareAndCopy.copyNonOverlappingMemoryWithChunking(null, oldBaseOffset, null,
+            nativeBaseOffset, Math.min(old.capacity, newCapacityBytes));
+        unsafe.freeMemory(old.nativeAddress);
+        DirectMemoryAccounting.unreserveMemory(old.allocationSize, old.capacity);
+      }
+    } finally {
+      BaseStateImpl.reachabilityFence(this);
+    }
+  }
+
+  //Restores ownership of a retired allocation under a new valid state
+  private void rewrap(final Deallocator old) {
+    deallocator = new Deallocator(old.nativeAddress, old.allocationSize, old.capacity);
+    cleaner = registerCleaner ? new MemoryCleaner(this, deallocator) : null;
   }
 
   boolean doClose() {
@@ -74,7 +165,9 @@ final class AllocateDirect {
         // This Cleaner.clean() call effectively just removes the Cleaner from the internal linked
         // list of all cleaners. It will delegate to Deallocator.deallocate() which will be a no-op
         // because the valid state is already changed.
-        cleaner.clean();
+        if (cleaner != null) {
+          cleaner.clean();
+        }
         return true;
       }
       return false;
@@ -83,6 +176,14 @@ final class AllocateDirect {
     }
   }
 
+  /**
+   * Frees the memory without changing the valid state of this allocation. Only for owners that
+   * guarantee a single call and manage validity of the views themselves, such as a MemoryScope.
+   */
+  void free() {
+    deallocator.free();
+  }
+
   long getNativeBaseOffset() {
     return nativeBaseOffset;
   }
@@ -97,6 +198,7 @@ final class AllocateDirect {
     private final long allocationSize;
     private final long capacity;
     private final StepBoolean valid = new StepBoolean(true); //only place for this
+    private final AllocationSite site; //null unless sampled by the AllocationTracker
 
     Deallocator(final long nativeAddress, final long allocationSize, final long capacity) {
       BaseStateImpl.currentDirectMemoryAllocations_.incrementAndGet();
@@ -104,6 +206,7 @@ final class AllocateDirect {
       this.nativeAddress = nativeAddress;
       this.allocationSize = allocationSize;
       this.capacity = capacity;
+      site = AllocationTracker.track("Direct memory", capacity);
       assert (nativeAddress != 0);
     }
 
@@ -111,6 +214,21 @@ final class AllocateDirect {
       return valid;
     }
 
+    /**
+     * Changes the valid state and the monitoring counters without freeing the memory,
+     * which is then owned by the caller.
+     * @return true if this call changed the valid state
+     */
+    boolean retire() {
+      if (valid.change()) {
+        AllocationTracker.untrack(site);
+        BaseStateImpl.currentDirectMemoryAllocations_.decrementAndGet();
+        BaseStateImpl.currentDirectMemoryAllocated_.addAndGet(-capacity);
+        return true;
+      }
+      return false;
+    }
+
     @Override
     public void run() {
       deallocate(true);
@@ -120,16 +238,28 @@ final class AllocateDirect {
       if (valid.change()) {
         if (calledFromCleaner) {
           // Warn about non-deterministic resource cleanup.
-          LOG.warning("A WritableHandle was not closed manually");
+          AllocationTracker.reportLeak(LOG, "A WritableHandle was not closed manually", site);
+        } else {
+          AllocationTracker.untrack(site);
         }
-        unsafe.freeMemory(nativeAddress);
-        NioBits.unreserveMemory(allocationSize, capacity);
-        BaseStateImpl.currentDirectMemoryAllocations_.decrementAndGet();
-        BaseStateImpl.currentDirectMemoryAllocated_.addAndGet(-capacity);
+        release();
         return true;
       } 
       return false;
     }
+
+    //Frees without changing the valid state, see AllocateDirect.free()
+    void free() {
+      AllocationTracker.untrack(site);
+      release();
+    }
+
+    private void release() {
+      unsafe.freeMemory(nativeAddress);
+      DirectMemoryAccounting.unreserveMemory(allocationSize, capacity);
+      BaseStateImpl.currentDirectMemoryAllocations_.decrementAndGet();
+      BaseStateImpl.currentDirectMemoryAllocated_.addAndGet(-capacity);
+    }
   }
 
 }
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.internal;
+
+import static org.apache.datasketches.memory.internal.AllocateDirectMap.MAP_PV;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.logging.Logger;
+
+import org.apache.datasketches.memory.internal.AllocationTracker.AllocationSite;
+
+/**
+ * Provides access to direct (native) memory backed by an anonymous mapping that is eligible for
+ * transparent huge pages.
+ *
+ * <p>The memory is obtained by a private mapping of <i>/dev/zero</i> using the same native map0
+ * and unmap0 methods as {@link AllocateDirectMap}. On Linux a private mapping of /dev/zero is
+ * anonymous memory, so it is zero filled and not backed by any file. The mapping is aligned to,
+ * and sized in multiples of, {@link #HUGE_PAGE_SIZE} by trimming the excess with unmap0, so that
+ * the kernel can back the whole range with huge pages.</p>
+ *
+ * <p>Whether huge pages are actually used is decided by the kernel. The JDK offers no way to call
+ * madvise(MADV_HUGEPAGE) on a mapping, so this relies on
+ * <i>/sys/kernel/mm/transparent_hugepage/enabled</i> being set to <i>always</i>.
+ * With <i>madvise</i> or <i>never</i> the memory is still valid, but backed by regular pages.</p>
+ *
+ * @author Lee Rhodes
+ */
+@SuppressWarnings("restriction")
+final class AllocateDirectHugePages {
+  static final Logger LOG = Logger.getLogger(AllocateDirectHugePages.class.getCanonicalName());
+  static final long HUGE_PAGE_SIZE = 2L << 20;
+  private static final String ANONYMOUS_FILE = "/dev/zero";
+
+  //These are replaced by resize()
+  private Deallocator deallocator;
+  private long nativeBaseOffset;
+  private MemoryCleaner cleaner;
+
+  /**
+   * Allocates an anonymous mapping of at least capacityBytes.
+   * @param capacityBytes the the requested capacity of off-heap memory. Cannot be zero.
+   */
+  AllocateDirectHugePages(final long capacityBytes) {
+    allocate(capacityBytes);
+  }
+
+  private void allocate(final long capacityBytes) {
+    final long mappedSize = Util.alignUp(capacityBytes, HUGE_PAGE_SIZE);
+    final long totalSize = mappedSize + HUGE_PAGE_SIZE; //slack for alignment
+    final long address;
+    try (RandomAccessFile raf = new RandomAccessFile(new File(ANONYMOUS_FILE), "r")) {
+      //the mapping remains valid after the file is closed
+      address = FileMapNatives.map0(raf, MAP_PV, 0L, totalSize);
+    } catch (final IOException e) {
+      throw new RuntimeException("Exception while mapping", e);
+    }
+    final long baseAddress = Util.alignUp(address, HUGE_PAGE_SIZE);
+    final long leading = baseAddress - address;
+    final long trailing = totalSize - leading - mappedSize;
+    long start = address; //the start of what remains mapped
+    try {
+      if (leading > 0) {
+        unmap(address, leading);
+        start = baseAddress;
+      }
+      if (trailing > 0) { unmap(baseAddress + mappedSize, trailing); }
+    } catch (final RuntimeException e) {
+      //no Deallocator owns the mapping yet, so unmap what remains of it
+      try {
+        unmap(start, (address + totalSize) - start);
+      } catch (final RuntimeException e2) {
+        e.addSuppressed(e2);
+      }
+      throw e;
+    }
+    nativeBaseOffset = baseAddress;
+    deallocator = new Deallocator(nativeBaseOffset, mappedSize);
+    cleaner = new MemoryCleaner(this, deallocator);
+  }
+
+  /**
+   * Changes the capacity of this allocation, preserving the contents up to the lesser of the old
+   * and new capacities. All views of the old allocation become invalid.
+   * If the new capacity rounds to the same number of huge pages, the mapping is kept as is.
+   * Otherwise a new mapping is made and the contents are copied.
+   * @param newCapacityBytes the new capacity. Cannot be zero.
+   */
+  void resize(final long newCapacityBytes) {
+    final Deallocator old = deallocator;
+    if (!old.valid.change()) {
+      throw new IllegalStateException("MemoryImpl not valid.");
+    }
+    try {
+      cleaner.clean(); //deregisters the old cleaner, a no-op because old is invalid
+      if (Util.alignUp(newCapacityBytes, HUGE_PAGE_SIZE) == old.mappedSize) {
+        deallocator = new Deallocator(old); //same mapping, new valid state
+        cleaner = new MemoryCleaner(this, deallocator);
+        return;
+      }
+      try {
+        allocate(newCapacityBytes);
+      } catch (final RuntimeException e) {
+        deallocator = new Deallocator(old);
+        cleaner = new MemoryCleaner(this, deallocator);
+        throw e;
+      }
+      final long oldCapacity = old.mappedSize;
+      CompareAndCopy.copyNonOverlappingMemoryWithChunking(null, old.nativeAddress, null,
+          nativeBaseOffset, Math.min(oldCapacity, newCapacityBytes));
+      old.unmapAndRelease();
+    } finally {
+      BaseStateImpl.reachabilityFence(this);
+    }
+  }
+
+  boolean doClose() {
+    try {
+      if (deallocator.deallocate(false)) {
+        // This Cleaner.clean() call effectively just removes the Cleaner from the internal linked
+        // list of all cleaners. It will delegate to Deallocator.deallocate() which will be a no-op
+        // because the valid state is already changed.
+        cleaner.clean();
+        return true;
+      }
+      return false;
+    } finally {
+      BaseStateImpl.reachabilityFence(this);
+    }
+  }
+
+  long getNativeBaseOffset() {
+    return nativeBaseOffset;
+  }
+
+  StepBoolean getValid() {
+    return deallocator.getValid();
+  }
+
+  /**
+   * Removes the given range of a mapping. <i>unmap0</i> is a static native method, so no
+   * channel is required.
+   */
+  static void unmap(final long address, final long lengthBytes) {
+    try {
+      FileMapNatives.unmap0(address, lengthBytes);
+    } catch (final RuntimeException e) {
+      throw new RuntimeException(
+          String.format("Encountered %s exception while freeing memory", e.getClass()));
+    }
+  }
+
+  private static final class Deallocator implements Runnable {
+    //This is the only place the actual native address is kept for use by unmap();
+    private final long nativeAddress;
+    private final long mappedSize;
+    private final StepBoolean valid = new StepBoolean(true); //only place for this
+    private final AllocationSite site; //null unless sampled by the AllocationTracker
+
+    Deallocator(final long nativeAddress, final long mappedSize) {
+      BaseStateImpl.currentDirectMemoryHugePageAllocations_.incrementAndGet();
+      BaseStateImpl.currentDirectMemoryHugePageAllocated_.addAndGet(mappedSize);
+      this.nativeAddress = nativeAddress;
+      this.mappedSize = mappedSize;
+      site = AllocationTracker.track("Huge page memory", mappedSize);
+      assert (nativeAddress != 0);
+    }
+
+    //Takes over the mapping and allocation site of an invalidated Deallocator
+    Deallocator(final Deallocator old) {
+      nativeAddress = old.nativeAddress;
+      mappedSize = old.mappedSize;
+      site = old.site;
+    }
+
+    StepBoolean getValid() {
+      return valid;
+    }
+
+    @Override
+    public void run() {
+      deallocate(true);
+    }
+
+    boolean deallocate(final boolean calledFromCleaner) {
+      if (valid.change()) {
+        if (calledFromCleaner) {
+          // Warn about non-deterministic resource cleanup.
+          AllocationTracker.reportLeak(LOG, "A WritableHandle was not closed manually", site);
+        }
+        unmapAndRelease();
+        return true;
+      }
+      return false;
+    }
+
+    void unmapAndRelease() {
+      AllocationTracker.untrack(site);
+      try {
+        unmap(nativeAddress, mappedSize);
+      } finally {
+        BaseStateImpl.currentDirectMemoryHugePageAllocations_.decrementAndGet();
+        BaseStateImpl.currentDirectMemoryHugePageAllocated_.addAndGet(-mappedSize);
+      }
+    }
+  }
+
+}
@@ -22,31 +22,27 @@ package org.apache.datasketches.memory.internal;
 import static org.apache.datasketches.memory.internal.UnsafeUtil.unsafe;
 
 import java.io.File;
-import java.io.FileDescriptor;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
+import java.nio.ByteOrder;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Logger;
 
 import org.apache.datasketches.memory.Map;
 import org.apache.datasketches.memory.MemoryCloseException;
-
-import sun.nio.ch.FileChannelImpl;
+import org.apache.datasketches.memory.internal.AllocationTracker.AllocationSite;
 
 /**
  * Allocates direct memory used to memory map files for read operations.
  * (including those &gt; 2GB).
  *
- * <p>To understand how it works, reference native code for map0, unmap0:
- * <a href="http://hg.openjdk.java.net/jdk8u/jdk8u/jdk/file/f940e7a48b72/src/solaris/native/sun/nio/ch/FileChannelImpl.c">
- * FileChannelImpl.c</a></p>
- *
- * <p>To understand how it works, reference native code for load0(), isLoaded0(), and force0():
- * <a href="http://hg.openjdk.java.net/jdk8u/jdk8u/jdk/file/f940e7a48b72/src/solaris/native/java/nio/MappedByteBuffer.c">
- * MappedByteBuffer.c</a></p>
+ * <p>The native methods map0, unmap0, load0(), isLoaded0(), and force0() are called through
+ * {@link FileMapNatives}, which has a version for each JDK where they have moved.</p>
  *
  * @author Roman Leventov
  * @author Lee Rhodes
@@ -58,99 +54,160 @@ class AllocateDirectMap implements Map {
 
   private static final int MAP_RO = 0;
   private static final int MAP_RW = 1;
+  static final int MAP_PV = 2;
+  //Taken from unsafe rather than NioBits, which is not required for mapping
+  static final int PAGE_SIZE = unsafe.pageSize();
+  //Ranges of at most this many pages that are not entirely resident are queried page by page
+  private static final long RESIDENCY_SCAN_PAGES = 64;
+  //The block size, in pages, of the approximate resident page count of all mappings
+  private static final long RESIDENCY_BLOCK_PAGES = Math.max(1, (1L << 20) / PAGE_SIZE);
+
+  //The active mappings, for the resident page count of all mappings
+  private static final Set<Deallocator> ACTIVE_MAPPINGS = ConcurrentHashMap.newKeySet();
+
+  //These are replaced by resize()
+  private Deallocator deallocator;
+  private MemoryCleaner cleaner;
+  long capacityBytes;
+  long mappedBytes; //the size of the mapping, which may extend beyond the end of the file
+  long nativeBaseOffset;
+  DirtyPages dirtyPages; //null unless dirty pages are tracked
 
-  private static final Method FILE_CHANNEL_IMPL_MAP0_METHOD;
-  static final Method FILE_CHANNEL_IMPL_UNMAP0_METHOD;
-
-  private static final Method MAPPED_BYTE_BUFFER_LOAD0_METHOD;
-  private static final Method MAPPED_BYTE_BUFFER_ISLOADED0_METHOD;
-  static final Method MAPPED_BYTE_BUFFER_FORCE0_METHOD;
-
-  static {
-    try { //The FileChannelImpl methods map0 and unmap0 still exist in 16
-      FILE_CHANNEL_IMPL_MAP0_METHOD = FileChannelImpl.class
-          .getDeclaredMethod("map0", int.class, long.class, long.class); //JDK14 add boolean.class
-      FILE_CHANNEL_IMPL_MAP0_METHOD.setAccessible(true);
-
-      FILE_CHANNEL_IMPL_UNMAP0_METHOD = FileChannelImpl.class
-          .getDeclaredMethod("unmap0", long.class, long.class); //OK through jDK16
-      FILE_CHANNEL_IMPL_UNMAP0_METHOD.setAccessible(true);
-
-      
-      //The MappedByteBuffer methods load0, isLoaded0 and force0 are removed in 15
-      MAPPED_BYTE_BUFFER_LOAD0_METHOD = MappedByteBuffer.class
-          .getDeclaredMethod("load0", long.class, long.class); //JDK15 removed
-      MAPPED_BYTE_BUFFER_LOAD0_METHOD.setAccessible(true);
-
-      MAPPED_BYTE_BUFFER_ISLOADED0_METHOD = MappedByteBuffer.class
-          .getDeclaredMethod("isLoaded0", long.class, long.class, int.class); //JDK15 removed
-      MAPPED_BYTE_BUFFER_ISLOADED0_METHOD.setAccessible(true);
-
-      MAPPED_BYTE_BUFFER_FORCE0_METHOD = MappedByteBuffer.class
-          .getDeclaredMethod("force0", FileDescriptor.class, long.class, long.class); //JDK15 removed
-      MAPPED_BYTE_BUFFER_FORCE0_METHOD.setAccessible(true);
-    } catch (final SecurityException | NoSuchMethodException e) {
-      throw new RuntimeException("Could not reflect static methods: " + e);
-    }
-  }
-
-  private final Deallocator deallocator;
-  private final MemoryCleaner cleaner;
-
-  final long capacityBytes;
   final RandomAccessFile raf;
-  final long nativeBaseOffset;
+  final long fileOffsetBytes;
   final boolean resourceReadOnly;
+  final boolean privateMapping; //copy-on-write, writes never reach the file
+  private final boolean registerCleaner; //false if the lifetime is owned by a MemoryScope
+  //Held for reading by asynchronous operations and for writing while unmapping
+  private final ReentrantReadWriteLock unmapLock = new ReentrantReadWriteLock();
 
-  //called from AllocateDirectWritableMap constructor
+  /**
+   * Called from AllocateDirectWritableMap constructor. Maps the file, reserving address space
+   * for extending the mapping in place. Without a cleaner the caller is responsible for calling doClose() or free().
+   * @param file the file to map
+   * @param fileOffsetBytes the position in the file in bytes
+   * @param capacityBytes the size of the mapped region, which the file is extended to if required
+   * @param reservedBytes the size of the address space reserved for the mapping. It is ignored
+   * if less than capacityBytes or if the mapping is read-only.
+   * @param localReadOnly true if the mapping is for read operations only
+   * @param registerCleaner if true, a MemoryCleaner is registered for this mapping.
+   */
+  AllocateDirectMap(final File file, final long fileOffsetBytes, final long capacityBytes,
+      final long reservedBytes, final boolean localReadOnly, final boolean registerCleaner) {
+    this(file, fileOffsetBytes, capacityBytes, reservedBytes, localReadOnly, false,
+        registerCleaner);
+  }
+
+  /**
+   * Maps the file either shared, as above, or privately. A private mapping is copy-on-write:
+   * it is writable even if the file is not, and its writes go to anonymous pages and never
+   * reach the file. It cannot be forced, extended or resized.
+   * @param file the file to map
+   * @param fileOffsetBytes the position in the file in bytes
+   * @param capacityBytes the size of the mapped region. A private mapping must lie within the file.
+   * @param reservedBytes the size of the address space reserved for the mapping. It is ignored
+   * if less than capacityBytes or if the mapping is read-only or private.
+   * @param localReadOnly true if the mapping is for read operations only
+   * @param privateMapping true for a private, copy-on-write mapping
+   * @param registerCleaner if true, a MemoryCleaner is registered for this mapping.
+   */
   @SuppressWarnings("resource")
   AllocateDirectMap(final File file, final long fileOffsetBytes, final long capacityBytes,
-      final boolean localReadOnly) {
+      final long reservedBytes, final boolean localReadOnly, final boolean privateMapping,
+      final boolean registerCleaner) {
+    this.registerCleaner = registerCleaner;
     this.capacityBytes = capacityBytes;
-    resourceReadOnly = isFileReadOnly(file);
+    this.fileOffsetBytes = fileOffsetBytes;
+    this.privateMapping = privateMapping;
+    final boolean fileReadOnly = isFileReadOnly(file);
+    resourceReadOnly = fileReadOnly && !privateMapping;
     final long fileLength = file.length();
-    if ((localReadOnly || resourceReadOnly) && fileOffsetBytes + capacityBytes > fileLength) {
+    if ((localReadOnly || fileReadOnly || privateMapping)
+        && fileOffsetBytes + capacityBytes > fileLength) {
       throw new IllegalArgumentException(
-          "Read-only mode and requested map length is greater than current file length: "
+          (privateMapping ? "Private" : "Read-only")
+          + " mode and requested map length is greater than current file length: "
           + "Requested Length = " + (fileOffsetBytes + capacityBytes)
           + ", Current File Length = " + fileLength);
     }
-    raf = mapper(file, fileOffsetBytes, capacityBytes, resourceReadOnly);
-    nativeBaseOffset = map(raf.getChannel(), resourceReadOnly, fileOffsetBytes, capacityBytes);
-    deallocator = new Deallocator(nativeBaseOffset, capacityBytes, raf);
-    cleaner = new MemoryCleaner(this, deallocator);
+    mappedBytes = (localReadOnly || resourceReadOnly || privateMapping) ? capacityBytes
+        : Math.max(capacityBytes, reservedBytes);
+    raf = mapper(file, fileOffsetBytes, capacityBytes, fileReadOnly || privateMapping);
+    final int mapMode = privateMapping ? MAP_PV : resourceReadOnly ? MAP_RO : MAP_RW;
+    nativeBaseOffset = map(raf, mapMode, fileOffsetBytes, mappedBytes);
+    deallocator = new Deallocator(nativeBaseOffset, mappedBytes, raf);
+    cleaner = registerCleaner ? new MemoryCleaner(this, deallocator) : null;
   }
 
   //Map Interface
   
   @Override
   public void load() {
-    madvise();
+    load(0, capacityBytes);
+  }
+
+  @Override
+  public void load(final long offsetBytes, final long lengthBytes) {
+    checkValidAndBounds(offsetBytes, lengthBytes);
+    if (lengthBytes == 0) { return; }
+    final long start = nativeBaseOffset + offsetBytes;
+    final long end = start + lengthBytes;
+    final long pageStart = pageStart(start);
+    madvise(pageStart, end - pageStart);
     // Performance optimization. Read a byte from each page to bring it into memory.
-    final int ps = NioBits.pageSize();
-    final int count = NioBits.pageCount(capacityBytes);
-    long offset = nativeBaseOffset;
-    for (int i = 0; i < count; i++) {
-      unsafe.getByte(offset);
-      offset += ps;
+    final int ps = PAGE_SIZE;
+    for (long address = pageStart; address < end; address += ps) {
+      unsafe.getByte(address);
     }
   }
 
+  @Override
+  public CompletableFuture<Void> loadAsync(final long offsetBytes, final long lengthBytes,
+      final Executor executor) {
+    Util.nullCheck(executor, "executor");
+    checkValidAndBounds(offsetBytes, lengthBytes);
+    return CompletableFuture.runAsync(() -> runMapped(() -> load(offsetBytes, lengthBytes)),
+        executor);
+  }
+
   @Override
   public boolean isLoaded() {
+    return isResident(nativeBaseOffset, pageCount(capacityBytes));
+  }
+
+  @Override
+  public BitSet getResidentPages(final long offsetBytes, final long lengthBytes) {
+    checkValidAndBounds(offsetBytes, lengthBytes);
+    final BitSet pages = new BitSet();
+    if (lengthBytes == 0) { return pages; }
+    final long start = nativeBaseOffset + offsetBytes;
+    final long pageStart = pageStart(start);
+    final long pageCount = pageCount(start + lengthBytes - pageStart);
+    if (pageCount > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+          "The range has more pages than a BitSet can hold: " + pageCount);
+    }
     try {
-      final int pageCount = NioBits.pageCount(capacityBytes);
-      return (boolean) MAPPED_BYTE_BUFFER_ISLOADED0_METHOD
-          //isLoaded0 is effectively static, so ZERO_READ_ONLY_DIRECT_BYTE_BUFFER is not modified
-          .invoke(AccessByteBuffer.ZERO_READ_ONLY_DIRECT_BYTE_BUFFER,
-              nativeBaseOffset,
-              capacityBytes,
-              pageCount);
-    } catch (final  IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-      throw new RuntimeException(
-              String.format("Encountered %s exception while loading", e.getClass()));
+      residentPages(pageStart, pageCount, 0, pages);
+    } finally {
+      BaseStateImpl.reachabilityFence(this);
+    }
+    return pages;
+  }
+
+  @Override
+  public long getResidentPageCount(final long offsetBytes, final long lengthBytes) {
+    checkValidAndBounds(offsetBytes, lengthBytes);
+    if (lengthBytes == 0) { return 0; }
+    final long start = nativeBaseOffset + offsetBytes;
+    final long pageStart = pageStart(start);
+    try {
+      return residentPageCount(pageStart, pageCount(start + lengthBytes - pageStart));
+    } finally {
+      BaseStateImpl.reachabilityFence(this);
     }
   }
+
   // End Map Interface
   
   @Override
@@ -159,45 +216,287 @@ class AllocateDirectMap implements Map {
   }
 
   boolean doClose(final String resource) {
+    unmapLock.writeLock().lock(); //waits for asynchronous operations in progress
     try {
       if (deallocator.deallocate(false)) {
         // This Cleaner.clean() call effectively just removes the Cleaner from the internal linked
         // list of all cleaners. It will delegate to Deallocator.deallocate() which will be a no-op
         // because the valid state is already changed.
-        cleaner.clean();
+        if (cleaner != null) {
+          cleaner.clean();
+        }
         return true;
       } 
       return false;
     } catch (final Exception e) {
         throw new MemoryCloseException(resource);
     } finally {
+      unmapLock.writeLock().unlock();
       BaseStateImpl.reachabilityFence(this);
     }
   }
 
+  /**
+   * Unmaps and closes the file without changing the valid state of this mapping. Only for owners
+   * that guarantee a single call and manage validity of the views themselves, such as a
+   * MemoryScope.
+   */
+  void free() {
+    deallocator.free();
+  }
+
   StepBoolean getValid() {
     return deallocator.getValid();
   }
 
+  /**
+   * Remaps the file with a new capacity, extending the file if required. The file is never
+   * truncated. All views of the old mapping become invalid, including on failure.
+   * Afterwards {@link #nativeBaseOffset} and {@link #getValid()} refer to the new mapping.
+   * @param newCapacityBytes the new capacity. Cannot be zero.
+   */
+  void resize(final long newCapacityBytes) {
+    remap(newCapacityBytes, newCapacityBytes);
+  }
+
+  /**
+   * Grows the capacity, extending the file. If the new capacity fits in the address space
+   * already reserved by the mapping, the mapping and all of its views stay valid and
+   * {@link #nativeBaseOffset} does not change. Otherwise the file is remapped as by
+   * {@link #resize(long)}, reserving twice the new capacity.
+   * @param newCapacityBytes the new capacity. It cannot be less than the current capacity.
+   * @return true if the mapping was extended in place.
+   */
+  boolean extendMapping(final long newCapacityBytes) {
+    if (resourceReadOnly) {
+      throw new ReadOnlyException("MemoryImpl Mapped File is Read Only.");
+    }
+    checkNotPrivate();
+    if (!deallocator.getValid().get()) {
+      throw new IllegalStateException("MemoryImpl not valid.");
+    }
+    if (newCapacityBytes < capacityBytes) {
+      throw new IllegalArgumentException("New capacity " + newCapacityBytes
+          + " is less than the current capacity " + capacityBytes);
+    }
+    if (newCapacityBytes <= mappedBytes) {
+      try {
+        if (fileOffsetBytes + newCapacityBytes > raf.length()) {
+          raf.setLength(fileOffsetBytes + newCapacityBytes);
+        }
+      } catch (final IOException e) {
+        throw new RuntimeException("Exception while extending file", e);
+      }
+      capacityBytes = newCapacityBytes;
+      return true;
+    }
+    remap(newCapacityBytes, 2 * newCapacityBytes);
+    return false;
+  }
+
+  private void remap(final long newCapacityBytes, final long newMappedBytes) {
+    if (resourceReadOnly) {
+      throw new ReadOnlyException("MemoryImpl Mapped File is Read Only.");
+    }
+    checkNotPrivate();
+    unmapLock.writeLock().lock(); //waits for asynchronous operations in progress
+    try {
+      if (!deallocator.retire()) {
+        throw new IllegalStateException("MemoryImpl not valid.");
+      }
+      if (cleaner != null) {
+        cleaner.clean(); //deregisters the old cleaner, a no-op because the old mapping is retired
+      }
+      try {
+        if (fileOffsetBytes + newCapacityBytes > raf.length()) {
+          raf.setLength(fileOffsetBytes + newCapacityBytes);
+        }
+        nativeBaseOffset = map(raf, MAP_RW, fileOffsetBytes, newMappedBytes);
+      } catch (final IOException | RuntimeException e) {
+        try {
+          raf.close();
+        } catch (final IOException e2) {
+          e.addSuppressed(e2);
+        }
+        throw new RuntimeException("Exception while remapping", e);
+      }
+      capacityBytes = newCapacityBytes;
+      mappedBytes = newMappedBytes;
+      if (dirtyPages != null) {
+        dirtyPages = dirtyPages.remapped(nativeBaseOffset, newMappedBytes);
+      }
+      deallocator = new Deallocator(nativeBaseOffset, newMappedBytes, raf);
+      cleaner = registerCleaner ? new MemoryCleaner(this, deallocator) : null;
+    } finally {
+      unmapLock.writeLock().unlock();
+      BaseStateImpl.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Starts tracking the pages written through leaves created afterwards by
+   * {@link #newLeaf(int, ByteOrder)}. Has no effect if dirty pages are already tracked.
+   */
+  void startDirtyPageTracking() {
+    if (resourceReadOnly) {
+      throw new ReadOnlyException("MemoryImpl Mapped File is Read Only.");
+    }
+    checkNotPrivate();
+    checkValidAndBounds(0, 0);
+    if (dirtyPages == null) {
+      dirtyPages = new DirtyPages(nativeBaseOffset, mappedBytes);
+    }
+  }
+
+  /**
+   * Creates a leaf for the whole current capacity that marks its writes if dirty pages are
+   * tracked.
+   * @param typeId the type ID of the leaf
+   * @param byteOrder the byte order of the leaf
+   * @return a new leaf
+   */
+  BaseWritableMemoryImpl newLeaf(final int typeId, final ByteOrder byteOrder) {
+    final BaseWritableMemoryImpl leaf = BaseWritableMemoryImpl.newMapLeaf(nativeBaseOffset,
+        capacityBytes, typeId, getValid(), byteOrder);
+    leaf.setDirtyPages(dirtyPages);
+    return leaf;
+  }
+
+  void checkValidAndBounds(final long offsetBytes, final long lengthBytes) {
+    if (!deallocator.getValid().get()) {
+      throw new IllegalStateException("MemoryImpl not valid.");
+    }
+    UnsafeUtil.checkBounds(offsetBytes, lengthBytes, capacityBytes);
+  }
+
+  /**
+   * Runs an asynchronous operation on the mapping. The mapping cannot be unmapped while the
+   * operation is running, and the operation must check that the mapping is still valid.
+   * @param operation the operation to run
+   */
+  void runMapped(final Runnable operation) {
+    unmapLock.readLock().lock();
+    try {
+      operation.run();
+    } finally {
+      unmapLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets an approximate number of pages of all active mappings that are resident in physical
+   * memory. This is a lower bound that counts only the pages of 1MB blocks that are entirely
+   * resident, and takes one native call per 1MB block of each mapping.
+   * Mappings that are unmapped while they are counted are skipped.
+   * @return the approximate number of resident pages of all active mappings
+   */
+  static long getResidentPageCountOfAllMappings() {
+    long count = 0;
+    for (final Deallocator mapping : ACTIVE_MAPPINGS) {
+      try {
+        count += residentBlockPageCount(mapping.actualNativeBaseOffset,
+            pageCount(mapping.myCapacity));
+      } catch (final RuntimeException e) {
+        //unmapped concurrently
+      }
+    }
+    return count;
+  }
+
+  void checkNotPrivate() {
+    if (privateMapping) {
+      throw new UnsupportedOperationException(
+          "A private mapping cannot be written back to or grow the file.");
+    }
+  }
+
+  static long pageStart(final long address) {
+    return address - (address % PAGE_SIZE);
+  }
+
+  static long pageCount(final long bytes) {
+    return (bytes + PAGE_SIZE - 1) / PAGE_SIZE;
+  }
+
   // Private methods
   /**
-   * called by load(). Calls the native method load0 in MappedByteBuffer.java, implemented
-   * in MappedByteBuffer.c. See reference at top of class. load0 allows setting a mapping length
-   * of greater than 2GB.
+   * called by load(). Calls the native method load0, see {@link FileMapNatives}. load0 allows
+   * setting a mapping length of greater than 2GB.
    */
-  private void madvise() {
+  private static void madvise(final long address, final long lengthBytes) {
     try {
-      MAPPED_BYTE_BUFFER_LOAD0_METHOD
-        //load0 is effectively static, so ZERO_READ_ONLY_DIRECT_BYTE_BUFFER is not modified
-        .invoke(AccessByteBuffer.ZERO_READ_ONLY_DIRECT_BYTE_BUFFER,
-            nativeBaseOffset,
-            capacityBytes);
-    } catch (final  IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+      FileMapNatives.load0(address, lengthBytes);
+    } catch (final RuntimeException e) {
       throw new RuntimeException(
           String.format("Encountered %s exception while loading", e.getClass()));
     }
   }
 
+  /**
+   * Counts the resident pages exactly. The native query only reports whether a whole range is
+   * resident, so the range is halved until each part is either entirely resident or small enough
+   * to be queried page by page. An entirely resident range takes one native call, but a range
+   * that is only partly resident, such as a cold one, takes about one native call per page.
+   */
+  private static long residentPageCount(final long pageAddress, final long pageCount) {
+    if (isResident(pageAddress, pageCount)) { return pageCount; }
+    if (pageCount == 1) { return 0; }
+    if (pageCount <= RESIDENCY_SCAN_PAGES) {
+      long count = 0;
+      for (long i = 0; i < pageCount; i++) {
+        if (isResident(pageAddress + i * PAGE_SIZE, 1)) { count++; }
+      }
+      return count;
+    }
+    final long half = pageCount >>> 1;
+    return residentPageCount(pageAddress, half)
+        + residentPageCount(pageAddress + half * PAGE_SIZE, pageCount - half);
+  }
+
+  //Sets the bits of the resident pages in the same way as residentPageCount() counts them.
+  //The caller ensures that the page count fits in an int.
+  private static void residentPages(final long pageAddress, final long pageCount,
+      final int firstBit, final BitSet pages) {
+    if (isResident(pageAddress, pageCount)) {
+      pages.set(firstBit, (int) (firstBit + pageCount));
+      return;
+    }
+    if (pageCount == 1) { return; }
+    if (pageCount <= RESIDENCY_SCAN_PAGES) {
+      for (int i = 0; i < pageCount; i++) {
+        if (isResident(pageAddress + ((long) i) * PAGE_SIZE, 1)) { pages.set(firstBit + i); }
+      }
+      return;
+    }
+    final long half = pageCount >>> 1;
+    residentPages(pageAddress, half, firstBit, pages);
+    residentPages(pageAddress + half * PAGE_SIZE, pageCount - half,
+        (int) (firstBit + half), pages);
+  }
+
+  //Counts the pages of the blocks of RESIDENCY_BLOCK_PAGES that are entirely resident
+  private static long residentBlockPageCount(final long pageAddress, final long pageCount) {
+    long count = 0;
+    for (long page = 0; page < pageCount; page += RESIDENCY_BLOCK_PAGES) {
+      final long blockPages = Math.min(RESIDENCY_BLOCK_PAGES, pageCount - page);
+      if (isResident(pageAddress + page * PAGE_SIZE, blockPages)) { count += blockPages; }
+    }
+    return count;
+  }
+
+  /**
+   * Calls the native method isLoaded0, see {@link FileMapNatives}, which is true if all of the
+   * given pages are resident.
+   */
+  private static boolean isResident(final long pageAddress, final long pageCount) {
+    try {
+      return FileMapNatives.isLoaded0(pageAddress, pageCount * PAGE_SIZE, pageCount);
+    } catch (final RuntimeException e) {
+      throw new RuntimeException(
+              String.format("Encountered %s exception while loading", e.getClass()));
+    }
+  }
+
   //Does the actual mapping work, resourceReadOnly must already be set
   private static RandomAccessFile mapper(final File file, final long fileOffset,
       final long capacityBytes, final boolean resourceReadOnly)  {
@@ -216,33 +515,27 @@ class AllocateDirectMap implements Map {
   }
 
   /**
-   * Creates a mapping of the FileChannel starting at position and of size length to pages
+   * Creates a mapping of the file starting at position and of size length to pages
    * in the OS. This may throw OutOfMemory error if you have exhausted memory.
    * You can try to force garbage collection and re-attempt.
    *
-   * <p>map0 is a native method of FileChannelImpl.java implemented in FileChannelImpl.c.
-   * See reference at top of class.</p>
+   * <p>map0 is a native method of the JDK, see {@link FileMapNatives}.</p>
    *
-   * @param fileChannel the FileChannel
-   * @param position the offset in bytes into the FileChannel
+   * @param raf the file
+   * @param mapMode one of MAP_RO, MAP_RW or MAP_PV
+   * @param position the offset in bytes into the file
    * @param lengthBytes the length in bytes
    * @return the native base offset address
    * @throws RuntimeException Encountered an exception while mapping
    */
-  private static long map(final FileChannel fileChannel, final boolean resourceReadOnly,
+  private static long map(final RandomAccessFile raf, final int mapMode,
       final long position, final long lengthBytes) {
-    final int pagePosition = (int) (position % unsafe.pageSize());
+    final int pagePosition = (int) (position % PAGE_SIZE);
     final long mapPosition = position - pagePosition;
     final long mapSize = lengthBytes + pagePosition;
-    final int mapMode = resourceReadOnly ? MAP_RO : MAP_RW;
-    //final boolean isSync = true; //required as of JDK14, but it is more complex
     try {
-      final long nativeBaseOffset = //JDK14 add isSync
-        (long) FILE_CHANNEL_IMPL_MAP0_METHOD.invoke(fileChannel, mapMode, mapPosition, mapSize);
-      return nativeBaseOffset;
-    } catch (final InvocationTargetException e) {
-      throw new RuntimeException("Exception while mapping", e.getTargetException());
-    } catch (final IllegalAccessException e) {
+      return FileMapNatives.map0(raf, mapMode, mapPosition, mapSize);
+    } catch (final IOException e) {
       throw new RuntimeException("Exception while mapping", e);
     }
   }
@@ -253,11 +546,11 @@ class AllocateDirectMap implements Map {
 
   private static final class Deallocator implements Runnable {
     private final RandomAccessFile myRaf;
-    private final FileChannel myFc;
     //This is the only place the actual native offset is kept for use by unsafe.freeMemory();
     private final long actualNativeBaseOffset;
     private final long myCapacity;
     private final StepBoolean valid = new StepBoolean(true); //only place for this
+    private final AllocationSite site; //null unless sampled by the AllocationTracker
 
     Deallocator(final long nativeBaseOffset, final long capacityBytes,
         final RandomAccessFile raf) {
@@ -265,11 +558,12 @@ class AllocateDirectMap implements Map {
       BaseStateImpl.currentDirectMemoryMapAllocated_.addAndGet(capacityBytes);
       myRaf = raf;
       assert myRaf != null;
-      myFc = myRaf.getChannel();
       actualNativeBaseOffset = nativeBaseOffset;
       assert actualNativeBaseOffset != 0;
       myCapacity = capacityBytes;
       assert myCapacity != 0;
+      site = AllocationTracker.track("Memory map", capacityBytes);
+      ACTIVE_MAPPINGS.add(this);
     }
 
     StepBoolean getValid() {
@@ -285,29 +579,62 @@ class AllocateDirectMap implements Map {
       if (valid.change()) {
         if (calledFromCleaner) {
           // Warn about non-deterministic resource cleanup.
-          LOG.warning("A WritableMapHandleImpl was not closed manually");
+          AllocationTracker.reportLeak(LOG, "A WritableMapHandleImpl was not closed manually", site);
+        } else {
+          AllocationTracker.untrack(site);
         }
+        release();
+        return true;
+      } 
+      return false;
+    }
+
+    //Unmaps without changing the valid state, see AllocateDirectMap.free()
+    void free() {
+      AllocationTracker.untrack(site);
+      release();
+    }
+
+    private void release() {
+      ACTIVE_MAPPINGS.remove(this);
+      try {
+        unmap(true);
+      }
+      finally {
+        BaseStateImpl.currentDirectMemoryMapAllocations_.decrementAndGet();
+        BaseStateImpl.currentDirectMemoryMapAllocated_.addAndGet(-myCapacity);
+      }
+    }
+
+    /**
+     * Changes the valid state and removes the mapping, but leaves the file open for remapping.
+     * @return true if this call changed the valid state
+     */
+    boolean retire() {
+      if (valid.change()) {
+        AllocationTracker.untrack(site);
+        ACTIVE_MAPPINGS.remove(this);
         try {
-          unmap();
+          unmap(false);
         }
         finally {
           BaseStateImpl.currentDirectMemoryMapAllocations_.decrementAndGet();
           BaseStateImpl.currentDirectMemoryMapAllocated_.addAndGet(-myCapacity);
         }
         return true;
-      } 
+      }
       return false;
     }
 
     /**
-     * Removes existing mapping.  <i>unmap0</i> is a native method in FileChannelImpl.c. See
-     * reference at top of class.
+     * Removes existing mapping.  <i>unmap0</i> is a native method of the JDK, see
+     * {@link FileMapNatives}.
      */
-    private void unmap() throws RuntimeException {
+    private void unmap(final boolean closeFile) throws RuntimeException {
       try {
-        FILE_CHANNEL_IMPL_UNMAP0_METHOD.invoke(myFc, actualNativeBaseOffset, myCapacity);
-        myRaf.close();
-      } catch (final IllegalAccessException | IllegalArgumentException | InvocationTargetException | IOException e) {
+        FileMapNatives.unmap0(actualNativeBaseOffset, myCapacity);
+        if (closeFile) { myRaf.close(); }
+      } catch (final RuntimeException | IOException e) {
         throw new RuntimeException(
             String.format("Encountered %s exception while freeing memory", e.getClass()));
       }
@@ -21,9 +21,11 @@ package org.apache.datasketches.memory.internal;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import org.apache.datasketches.memory.WritableMap;
+import org.apache.datasketches.memory.WritableMemory;
 
 /**
  * Allocates direct memory used to memory map files for write operations
@@ -37,26 +39,105 @@ import org.apache.datasketches.memory.WritableMap;
 final class AllocateDirectWritableMap extends AllocateDirectMap implements WritableMap {
 
   AllocateDirectWritableMap(final File file, final long fileOffsetBytes,
-      final long capacityBytes, final boolean localReadOnly) {
-    super(file, fileOffsetBytes, capacityBytes, localReadOnly);
+      final long capacityBytes, final long reservedBytes, final boolean localReadOnly,
+      final boolean registerCleaner) {
+    super(file, fileOffsetBytes, capacityBytes, reservedBytes, localReadOnly, registerCleaner);
+  }
+
+  AllocateDirectWritableMap(final File file, final long fileOffsetBytes,
+      final long capacityBytes, final boolean privateMapping, final boolean registerCleaner) {
+    super(file, fileOffsetBytes, capacityBytes, capacityBytes, false, privateMapping,
+        registerCleaner);
   }
 
   //Added by WritableMap Interface
   
   @Override
   public void force() {
+    force(0, capacityBytes);
+  }
+
+  @Override
+  public void force(final long offsetBytes, final long lengthBytes) {
     if (resourceReadOnly) {
       throw new ReadOnlyException("MemoryImpl Mapped File is Read Only.");
     }
+    checkNotPrivate();
+    checkValidAndBounds(offsetBytes, lengthBytes);
+    if (lengthBytes == 0) { return; }
+    final long start = nativeBaseOffset + offsetBytes;
+    final long pageStart = pageStart(start);
+    force0(pageStart, (start + lengthBytes) - pageStart);
+  }
+
+  //Writes the given page aligned range of the mapping back to the file
+  private void force0(final long address, final long lengthBytes) {
     try {
-      MAPPED_BYTE_BUFFER_FORCE0_METHOD
-          //force0 is effectively static, so ZERO_READ_ONLY_DIRECT_BYTE_BUFFER is not modified
-          .invoke(AccessByteBuffer.ZERO_READ_ONLY_DIRECT_BYTE_BUFFER,
-              raf.getFD(),
-              nativeBaseOffset,
-              capacityBytes);
-    } catch (final IOException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+      FileMapNatives.force0(raf.getFD(), address, lengthBytes);
+    } catch (final IOException | RuntimeException e) {
       throw new RuntimeException(String.format("Encountered %s exception in force. " + e.getClass()));
     }
   }
+
+  @Override
+  public CompletableFuture<Void> forceAsync(final long offsetBytes, final long lengthBytes,
+      final Executor executor) {
+    if (resourceReadOnly) {
+      throw new ReadOnlyException("MemoryImpl Mapped File is Read Only.");
+    }
+    checkNotPrivate();
+    Util.nullCheck(executor, "executor");
+    checkValidAndBounds(offsetBytes, lengthBytes);
+    return CompletableFuture.runAsync(() -> runMapped(() -> force(offsetBytes, lengthBytes)),
+        executor);
+  }
+
+  @Override
+  public WritableMemory extend(final long newCapacityBytes) {
+    Util.zeroCheck(newCapacityBytes, "newCapacityBytes");
+    extendMapping(newCapacityBytes);
+    return newLeaf(0, Util.nativeByteOrder);
+  }
+
+  @Override
+  public WritableMemory trackDirtyPages() {
+    startDirtyPageTracking();
+    return newLeaf(0, Util.nativeByteOrder);
+  }
+
+  @Override
+  public long forceDirty() {
+    if (resourceReadOnly) {
+      throw new ReadOnlyException("MemoryImpl Mapped File is Read Only.");
+    }
+    checkNotPrivate();
+    checkValidAndBounds(0, 0);
+    if (dirtyPages == null) {
+      throw new IllegalStateException("Dirty pages are not tracked.");
+    }
+    final long[] dirty = dirtyPages.clear();
+    final int shift = DirtyPages.pageShift();
+    final long base = dirtyPages.getBaseAddress();
+    final long pages = (long) dirty.length << 6;
+    long forced = 0;
+    long runStart = -1;
+    for (long page = 0; page < pages; page++) {
+      final long word = dirty[(int) (page >>> 6)];
+      if ((word == 0) && (runStart < 0)) {
+        page |= 63; //skip a clean word
+        continue;
+      }
+      if ((word & (1L << page)) != 0) {
+        if (runStart < 0) { runStart = page; }
+        forced++;
+      } else if (runStart >= 0) {
+        force0(base + (runStart << shift), (page - runStart) << shift);
+        runStart = -1;
+      }
+    }
+    if (runStart >= 0) {
+      force0(base + (runStart << shift), (pages - runStart) << shift);
+    }
+    return forced;
+  }
 }
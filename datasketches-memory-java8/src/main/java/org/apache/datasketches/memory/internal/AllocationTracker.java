@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.internal;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tracks the allocation sites of a sampled fraction of direct allocations and memory maps, so
+ * that resources that are never closed can be traced back to the code that allocated them.
+ *
+ * <p>Tracking is off by default. The sample rate, between 0.0 and 1.0, is set by the system
+ * property {@value #SAMPLE_RATE_PROPERTY} or by {@link #setSampleRate(double)}. Unsampled
+ * allocations only pay for one volatile read. Sampled allocations capture a stack trace and are
+ * kept in a registry until they are released.</p>
+ *
+ * @author Lee Rhodes
+ */
+final class AllocationTracker {
+  static final Logger LOG = Logger.getLogger(AllocationTracker.class.getCanonicalName());
+  static final String SAMPLE_RATE_PROPERTY = "datasketches.memory.leakTracking.sampleRate";
+
+  private static final Set<AllocationSite> live = ConcurrentHashMap.newKeySet();
+  private static volatile double sampleRate = initialSampleRate();
+
+  private AllocationTracker() { }
+
+  static double getSampleRate() {
+    return sampleRate;
+  }
+
+  static void setSampleRate(final double rate) {
+    if (!(rate >= 0.0 && rate <= 1.0)) {
+      throw new IllegalArgumentException("The sample rate must be between 0.0 and 1.0: " + rate);
+    }
+    sampleRate = rate;
+  }
+
+  /**
+   * Records the calling stack if this allocation is sampled.
+   * @param resource a short description of the resource.
+   * @param capacityBytes the size of the resource.
+   * @return the allocation site, or null if this allocation is not sampled.
+   */
+  static AllocationSite track(final String resource, final long capacityBytes) {
+    final double rate = sampleRate;
+    if ((rate <= 0.0) || ((rate < 1.0) && (ThreadLocalRandom.current().nextDouble() >= rate))) {
+      return null;
+    }
+    final AllocationSite site = new AllocationSite(resource, capacityBytes);
+    live.add(site);
+    return site;
+  }
+
+  /**
+   * Removes the given allocation site from the registry.
+   * @param site the allocation site. May be null.
+   */
+  static void untrack(final AllocationSite site) {
+    if (site != null) {
+      live.remove(site);
+    }
+  }
+
+  /**
+   * Logs a resource that was freed by its cleaner rather than closed, with its allocation stack
+   * if it was sampled, and removes it from the registry.
+   * @param logger the logger of the resource class.
+   * @param message the warning message.
+   * @param site the allocation site. May be null.
+   */
+  static void reportLeak(final Logger logger, final String message, final AllocationSite site) {
+    if (site == null) {
+      logger.warning(message);
+    } else {
+      untrack(site);
+      logger.log(Level.WARNING, message + ": " + site.getMessage(), site);
+    }
+  }
+
+  static long getTrackedCount() {
+    return live.size();
+  }
+
+  /**
+   * Returns a description of all tracked allocations that are still live,
+   * including their allocation stacks.
+   * @return a description of all tracked allocations that are still live.
+   */
+  static String dump() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("Tracked live allocations: ").append(live.size()).append(Util.LS);
+    for (final AllocationSite site : live) {
+      sb.append(site.getMessage()).append(Util.LS);
+      for (final StackTraceElement e : site.getStackTrace()) {
+        sb.append("\tat ").append(e).append(Util.LS);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static double initialSampleRate() {
+    final String prop = System.getProperty(SAMPLE_RATE_PROPERTY);
+    if (prop == null) { return 0.0; }
+    try {
+      final double rate = Double.parseDouble(prop);
+      return (rate >= 0.0 && rate <= 1.0) ? rate : 0.0;
+    } catch (final NumberFormatException e) {
+      LOG.warning("Ignoring invalid " + SAMPLE_RATE_PROPERTY + ": " + prop);
+      return 0.0;
+    }
+  }
+
+  /**
+   * The stack and size of a sampled allocation.
+   */
+  static final class AllocationSite extends Throwable {
+    private static final long serialVersionUID = 1L;
+
+    AllocationSite(final String resource, final long capacityBytes) {
+      super(resource + " of " + capacityBytes + " bytes allocated by thread "
+          + Thread.currentThread().getName(), null, false, true);
+    }
+  }
+
+}
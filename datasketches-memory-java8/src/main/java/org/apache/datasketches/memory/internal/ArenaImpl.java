@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.internal;
+
+import static org.apache.datasketches.memory.internal.Util.negativeCheck;
+import static org.apache.datasketches.memory.internal.Util.nullCheck;
+import static org.apache.datasketches.memory.internal.Util.powerOf2Check;
+import static org.apache.datasketches.memory.internal.Util.zeroCheck;
+
+import java.nio.ByteOrder;
+
+import org.apache.datasketches.memory.Arena;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * Implementation of {@link Arena}. All regions are views of a single direct memory object and
+ * share its validity flag, so closing the underlying AllocateDirect invalidates them all.
+ *
+ * @author Lee Rhodes
+ */
+public final class ArenaImpl implements Arena {
+  private final AllocateDirect direct;
+  private final DirectWritableMemoryImpl base;
+  private final long nativeBaseOffset;
+  private final long capacityBytes;
+  private long position = 0;
+
+  private ArenaImpl(final long capacityBytes) {
+    direct = new AllocateDirect(capacityBytes);
+    nativeBaseOffset = direct.getNativeBaseOffset();
+    this.capacityBytes = capacityBytes;
+    base = new DirectWritableMemoryImpl(nativeBaseOffset, 0L, capacityBytes, 0,
+        direct.getValid(), null);
+  }
+
+  /**
+   * Creates a new Arena with the given capacity.
+   * @param capacityBytes the size of the block of direct memory in bytes. It must be positive.
+   * @return a new Arena
+   */
+  public static Arena create(final long capacityBytes) {
+    zeroCheck(capacityBytes, "capacityBytes");
+    return new ArenaImpl(capacityBytes);
+  }
+
+  @Override
+  public WritableMemory allocate(final long capacityBytes) {
+    return allocate(capacityBytes, DEFAULT_ALIGNMENT, Util.nativeByteOrder);
+  }
+
+  @Override
+  public WritableMemory allocate(final long capacityBytes, final long alignment) {
+    return allocate(capacityBytes, alignment, Util.nativeByteOrder);
+  }
+
+  @Override
+  public WritableMemory allocate(final long capacityBytes, final long alignment,
+      final ByteOrder byteOrder) {
+    negativeCheck(capacityBytes, "capacityBytes");
+    powerOf2Check(alignment, "alignment");
+    nullCheck(byteOrder, "byteOrder");
+    base.checkValid();
+    final long offset = Util.alignUp(nativeBaseOffset + position, alignment) - nativeBaseOffset;
+    if ((offset > this.capacityBytes) || (capacityBytes > (this.capacityBytes - offset))) {
+      throw new IllegalStateException("Arena exhausted: requested " + capacityBytes
+          + " bytes at offset " + offset + ", capacity " + this.capacityBytes);
+    }
+    position = offset + capacityBytes;
+    return base.writableRegion(offset, capacityBytes, byteOrder);
+  }
+
+  @Override
+  public long getCapacity() {
+    return capacityBytes;
+  }
+
+  @Override
+  public long getAllocatedBytes() {
+    return position;
+  }
+
+  @Override
+  public boolean isValid() {
+    return base.isValid();
+  }
+
+  @Override
+  public void close() {
+    direct.doClose();
+  }
+
+}
@@ -143,6 +143,7 @@ public abstract class BaseBufferImpl extends BaseStateImpl implements BaseBuffer
     assert !isReadOnly() : "BufferImpl is read-only.";
     final long newPos = position + increment;
     assertInvariants(start, newPos, end, capacity);
+    markDirty(position, increment);
     pos = newPos;
   }
 
@@ -158,6 +159,7 @@ public abstract class BaseBufferImpl extends BaseStateImpl implements BaseBuffer
     checkValidForWrite();
     final long newPos = position + increment;
     checkInvariants(start, newPos, end, capacity);
+    markDirty(position, increment);
     pos = newPos;
   }
 
@@ -46,6 +46,8 @@ public abstract class BaseStateImpl implements BaseState {
   static final AtomicLong currentDirectMemoryAllocated_ = new AtomicLong();
   static final AtomicLong currentDirectMemoryMapAllocations_ = new AtomicLong();
   static final AtomicLong currentDirectMemoryMapAllocated_ = new AtomicLong();
+  static final AtomicLong currentDirectMemoryHugePageAllocations_ = new AtomicLong();
+  static final AtomicLong currentDirectMemoryHugePageAllocated_ = new AtomicLong();
 
   static final MemoryRequestServer defaultMemReqSvr = new DefaultMemoryRequestServer();
 
@@ -138,6 +140,13 @@ public abstract class BaseStateImpl implements BaseState {
       : false;
   }
 
+  @Override
+  public final long mismatch(final long thisOffsetBytes, final BaseState that,
+      final long thatOffsetBytes, final long lengthBytes) {
+    return CompareAndCopy.mismatch(this, thisOffsetBytes, (BaseStateImpl) that, thatOffsetBytes,
+        lengthBytes);
+  }
+
   //Overridden by ByteBuffer Leafs
   @Override
   public ByteBuffer getByteBuffer() {
@@ -272,6 +281,7 @@ public abstract class BaseStateImpl implements BaseState {
     // even though it does nothing in production code path.
     assertBounds(offsetBytes, lengthBytes, capacityBytes_);
     assert !isReadOnly() : "MemoryImpl is read-only.";
+    markDirty(offsetBytes, lengthBytes);
   }
 
   @Override
@@ -288,6 +298,25 @@ public abstract class BaseStateImpl implements BaseState {
     if (isReadOnly()) {
       throw new ReadOnlyException("MemoryImpl is read-only.");
     }
+    markDirty(offsetBytes, lengthBytes);
+  }
+
+  //Records a write. Only the map leaves, which may track dirty pages, override this.
+  void markDirty(final long offsetBytes, final long lengthBytes) { }
+
+  //The dirty pages of a map leaf, or null if they are not tracked
+  DirtyPages getDirtyPages() {
+    return null;
+  }
+
+  void setDirtyPages(final DirtyPages dirtyPages) {
+    throw new UnsupportedOperationException("Dirty pages are only tracked by map leaves.");
+  }
+
+  //Passes dirty page tracking on to a region, buffer or duplicate of a map leaf
+  final <T extends BaseStateImpl> T withDirtyPages(final T view) {
+    view.setDirtyPages(getDirtyPages());
+    return view;
   }
 
   //TYPE ID CHECKS
@@ -361,6 +390,64 @@ public abstract class BaseStateImpl implements BaseState {
     return BaseStateImpl.currentDirectMemoryMapAllocated_.get();
   }
 
+  /**
+   * Gets the approximate current number of pages of active direct memory maps that are resident
+   * in physical memory. See {@link AllocateDirectMap#getResidentPageCountOfAllMappings()}.
+   * @return the approximate current number of pages of active direct memory maps that are
+   * resident.
+   */
+  public static final long getCurrentDirectMemoryMapResidentPages() {
+    return AllocateDirectMap.getResidentPageCountOfAllMappings();
+  }
+
+  /**
+   * Gets the current number of active direct memory huge page allocations.
+   * @return the current number of active direct memory huge page allocations.
+   */
+  public static final long getCurrentDirectMemoryHugePageAllocations() {
+    return BaseStateImpl.currentDirectMemoryHugePageAllocations_.get();
+  }
+
+  /**
+   * Gets the current size of active direct memory huge page allocated.
+   * @return the current size of active direct memory huge page allocated.
+   */
+  public static final long getCurrentDirectMemoryHugePageAllocated() {
+    return BaseStateImpl.currentDirectMemoryHugePageAllocated_.get();
+  }
+
+  /**
+   * Sets the fraction of direct allocations and memory maps whose allocation stacks are tracked.
+   * @param sampleRate the fraction between 0.0 (off) and 1.0 (all).
+   */
+  public static final void setLeakTrackingSampleRate(final double sampleRate) {
+    AllocationTracker.setSampleRate(sampleRate);
+  }
+
+  /**
+   * Gets the fraction of direct allocations and memory maps whose allocation stacks are tracked.
+   * @return the fraction of direct allocations and memory maps whose allocation stacks are tracked.
+   */
+  public static final double getLeakTrackingSampleRate() {
+    return AllocationTracker.getSampleRate();
+  }
+
+  /**
+   * Gets the number of tracked allocations that are still live.
+   * @return the number of tracked allocations that are still live.
+   */
+  public static final long getTrackedAllocations() {
+    return AllocationTracker.getTrackedCount();
+  }
+
+  /**
+   * Returns a description of all tracked allocations that are still live.
+   * @return a description of all tracked allocations that are still live.
+   */
+  public static final String dumpTrackedAllocations() {
+    return AllocationTracker.dump();
+  }
+
   //REACHABILITY FENCE
   static void reachabilityFence(@SuppressWarnings("unused") final Object obj) { }
 
@@ -396,6 +396,7 @@ abstract class BaseWritableBufferImpl extends WritableBufferImpl {
     long pos = getPosition();
     long len = getEnd() - pos;
     checkInvariants(getStart(), pos + len, getEnd(), getCapacity());
+    markDirty(pos, len);
     while (len > 0) {
       final long chunk = Math.min(len, Util.UNSAFE_COPY_THRESHOLD_BYTES);
       unsafe.setMemory(getUnsafeObject(), getCumulativeOffset(pos), chunk, value);
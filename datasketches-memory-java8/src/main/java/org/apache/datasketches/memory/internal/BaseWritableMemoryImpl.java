@@ -105,41 +105,85 @@ abstract class BaseWritableMemoryImpl extends WritableMemoryImpl {
   @SuppressWarnings("resource")
   static WritableMapHandle wrapMap(final File file, final long fileOffsetBytes,
       final long capacityBytes, final boolean localReadOnly, final ByteOrder byteOrder) {
+    return wrapMap(file, fileOffsetBytes, capacityBytes, capacityBytes, localReadOnly, byteOrder);
+  }
+
+  static WritableMapHandle wrapMap(final File file, final long fileOffsetBytes,
+      final long capacityBytes, final long reservedCapacityBytes, final boolean localReadOnly,
+      final ByteOrder byteOrder) {
 
-    final AllocateDirectWritableMap dirWMap =
-        new AllocateDirectWritableMap(file, fileOffsetBytes, capacityBytes, localReadOnly);
+    final AllocateDirectWritableMap dirWMap = new AllocateDirectWritableMap(file,
+        fileOffsetBytes, capacityBytes, reservedCapacityBytes, localReadOnly, true);
     if (dirWMap.resourceReadOnly && !localReadOnly) {
       dirWMap.close();
       throw new ReadOnlyException("File is Read Only");
     }
     final int typeId = (dirWMap.resourceReadOnly || localReadOnly) ? READONLY : 0;
-    final BaseWritableMemoryImpl wmem = Util.isNativeByteOrder(byteOrder)
-        ? new MapWritableMemoryImpl(dirWMap.nativeBaseOffset, 0L, capacityBytes,
-            typeId, dirWMap.getValid())
-        : new MapNonNativeWritableMemoryImpl(dirWMap.nativeBaseOffset, 0L, capacityBytes,
-            typeId, dirWMap.getValid());
+    final BaseWritableMemoryImpl wmem = newMapLeaf(dirWMap.nativeBaseOffset, capacityBytes,
+        typeId, dirWMap.getValid(), byteOrder);
     return new WritableMapHandleImpl(dirWMap, wmem);
   }
 
+  static WritableMapHandle wrapMapPrivate(final File file, final long fileOffsetBytes,
+      final long capacityBytes, final ByteOrder byteOrder) {
+    final AllocateDirectWritableMap dirWMap = new AllocateDirectWritableMap(file,
+        fileOffsetBytes, capacityBytes, true, true);
+    final BaseWritableMemoryImpl wmem = newMapLeaf(dirWMap.nativeBaseOffset, capacityBytes,
+        0, dirWMap.getValid(), byteOrder);
+    return new WritableMapHandleImpl(dirWMap, wmem);
+  }
+
+  static BaseWritableMemoryImpl newMapLeaf(final long nativeBaseOffset, final long capacityBytes,
+      final int typeId, final StepBoolean valid, final ByteOrder byteOrder) {
+    return Util.isNativeByteOrder(byteOrder)
+        ? new MapWritableMemoryImpl(nativeBaseOffset, 0L, capacityBytes, typeId, valid)
+        : new MapNonNativeWritableMemoryImpl(nativeBaseOffset, 0L, capacityBytes, typeId, valid);
+  }
+
   @SuppressWarnings("resource")
   static WritableHandle wrapDirect(final long capacityBytes,
       final ByteOrder byteOrder, final MemoryRequestServer memReqSvr) {
+    return wrapDirect(capacityBytes, AllocateDirect.NATIVE_ALIGNMENT, byteOrder, memReqSvr);
+  }
+
+  static WritableHandle wrapDirect(final long capacityBytes, final long alignment,
+      final ByteOrder byteOrder, final MemoryRequestServer memReqSvr) {
     if (capacityBytes <= 0) {
       throw new IllegalArgumentException(
           "Capacity bytes should be positive, " + capacityBytes + " given");
     }
-    final AllocateDirect direct = new AllocateDirect(capacityBytes);
-    final int typeId = 0; //direct is never read-only on construction
-    final BaseWritableMemoryImpl wmem = Util.isNativeByteOrder(byteOrder)
-        ? new DirectWritableMemoryImpl(direct.getNativeBaseOffset(), 0L, capacityBytes,
-            typeId, direct.getValid(), memReqSvr)
-        : new DirectNonNativeWritableMemoryImpl(direct.getNativeBaseOffset(), 0L, capacityBytes,
-            typeId, direct.getValid(), memReqSvr);
+    Util.powerOf2Check(alignment, "alignment");
+    final AllocateDirect direct = new AllocateDirect(capacityBytes, alignment);
+    final BaseWritableMemoryImpl wmem = newDirectLeaf(direct.getNativeBaseOffset(), capacityBytes,
+        direct.getValid(), byteOrder, memReqSvr);
 
     final WritableHandle handle = new WritableDirectHandleImpl(direct, wmem);
     return handle;
   }
 
+  static BaseWritableMemoryImpl newDirectLeaf(final long nativeBaseOffset,
+      final long capacityBytes, final StepBoolean valid, final ByteOrder byteOrder,
+      final MemoryRequestServer memReqSvr) {
+    final int typeId = 0; //direct is never read-only on construction
+    return Util.isNativeByteOrder(byteOrder)
+        ? new DirectWritableMemoryImpl(nativeBaseOffset, 0L, capacityBytes,
+            typeId, valid, memReqSvr)
+        : new DirectNonNativeWritableMemoryImpl(nativeBaseOffset, 0L, capacityBytes,
+            typeId, valid, memReqSvr);
+  }
+
+  static WritableHandle wrapDirectHugePages(final long capacityBytes,
+      final ByteOrder byteOrder, final MemoryRequestServer memReqSvr) {
+    if (capacityBytes <= 0) {
+      throw new IllegalArgumentException(
+          "Capacity bytes should be positive, " + capacityBytes + " given");
+    }
+    final AllocateDirectHugePages direct = new AllocateDirectHugePages(capacityBytes);
+    final BaseWritableMemoryImpl wmem = newDirectLeaf(direct.getNativeBaseOffset(), capacityBytes,
+        direct.getValid(), byteOrder, memReqSvr);
+    return new WritableHugePageHandleImpl(direct, wmem);
+  }
+
   //UNSAFE BYTE BUFFER VIEW FOR DIRECT MEMORY ONLY
   @Override
   public ByteBuffer unsafeByteBufferView(final long offsetBytes, final int capacityBytes) {
@@ -199,6 +243,12 @@ abstract class BaseWritableMemoryImpl extends WritableMemoryImpl {
   abstract BaseWritableMemoryImpl toWritableRegion(
       long offsetBytes, long capcityBytes, boolean readOnly, ByteOrder byteOrder);
 
+  //Returns a view of this memory that reports the given MemoryRequestServer.
+  //Only direct memory carries a MemoryRequestServer, so other memory returns itself.
+  BaseWritableMemoryImpl toMemoryRequestServerView(final MemoryRequestServer memReqSvr) {
+    return this;
+  }
+
   //AS BUFFER
   @Override
   public BufferImpl asBuffer() {
@@ -330,6 +380,13 @@ abstract class BaseWritableMemoryImpl extends WritableMemoryImpl {
         dstOffsetBytes, lengthBytes);
   }
 
+  @Override
+  public final void copyToParallel(final long srcOffsetBytes, final WritableMemory destination,
+      final long dstOffsetBytes, final long lengthBytes) {
+    ParallelCopyAndFill.copy((BaseStateImpl)this, srcOffsetBytes, (BaseStateImpl)destination,
+        dstOffsetBytes, lengthBytes);
+  }
+
   @Override
   public final void writeTo(final long offsetBytes, final long lengthBytes,
       final WritableByteChannel out) throws IOException {
@@ -391,8 +448,10 @@ abstract class BaseWritableMemoryImpl extends WritableMemoryImpl {
   @Override
   public final long putCharsToUtf8(final long offsetBytes, final CharSequence src) {
     checkValid();
-    return Utf8.putCharsToUtf8(offsetBytes, src, getCapacity(), getCumulativeOffset(),
+    final long bytes = Utf8.putCharsToUtf8(offsetBytes, src, getCapacity(), getCumulativeOffset(),
         getUnsafeObject());
+    markDirty(offsetBytes, bytes);
+    return bytes;
   }
 
   //PRIMITIVE putX() Native Endian (used by both endians)
@@ -439,6 +498,11 @@ abstract class BaseWritableMemoryImpl extends WritableMemoryImpl {
     }
   }
 
+  @Override
+  public final void clearParallel(final long offsetBytes, final long lengthBytes) {
+    ParallelCopyAndFill.fill(this, offsetBytes, lengthBytes, (byte) 0);
+  }
+
   @Override
   public final void clearBits(final long offsetBytes, final byte bitMask) {
     assertValidAndBoundsForWrite(offsetBytes, ARRAY_BYTE_INDEX_SCALE);
@@ -464,6 +528,18 @@ abstract class BaseWritableMemoryImpl extends WritableMemoryImpl {
     }
   }
 
+  @Override
+  public final void fillParallel(final long offsetBytes, final long lengthBytes,
+      final byte value) {
+    ParallelCopyAndFill.fill(this, offsetBytes, lengthBytes, value);
+  }
+
+  @Override
+  public final void reverseBytesInPlace(final long offsetBytes, final long lengthBytes,
+      final Class<?> primitiveType) {
+    CompareAndCopy.reverseBytesInPlace(this, offsetBytes, lengthBytes, Prim.of(primitiveType));
+  }
+
   @Override
   public final void setBits(final long offsetBytes, final byte bitMask) {
     assertValidAndBoundsForWrite(offsetBytes, ARRAY_BYTE_INDEX_SCALE);
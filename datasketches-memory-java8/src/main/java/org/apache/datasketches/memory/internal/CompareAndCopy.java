@@ -19,6 +19,12 @@
 
 package org.apache.datasketches.memory.internal;
 
+import static org.apache.datasketches.memory.internal.UnsafeUtil.ARRAY_CHAR_BASE_OFFSET;
+import static org.apache.datasketches.memory.internal.UnsafeUtil.ARRAY_DOUBLE_BASE_OFFSET;
+import static org.apache.datasketches.memory.internal.UnsafeUtil.ARRAY_FLOAT_BASE_OFFSET;
+import static org.apache.datasketches.memory.internal.UnsafeUtil.ARRAY_INT_BASE_OFFSET;
+import static org.apache.datasketches.memory.internal.UnsafeUtil.ARRAY_LONG_BASE_OFFSET;
+import static org.apache.datasketches.memory.internal.UnsafeUtil.ARRAY_SHORT_BASE_OFFSET;
 import static org.apache.datasketches.memory.internal.UnsafeUtil.CHAR_SHIFT;
 import static org.apache.datasketches.memory.internal.UnsafeUtil.DOUBLE_SHIFT;
 import static org.apache.datasketches.memory.internal.UnsafeUtil.FLOAT_SHIFT;
@@ -29,11 +35,14 @@ import static org.apache.datasketches.memory.internal.UnsafeUtil.checkBounds;
 import static org.apache.datasketches.memory.internal.UnsafeUtil.unsafe;
 import static org.apache.datasketches.memory.internal.Util.UNSAFE_COPY_THRESHOLD_BYTES;
 
+import java.nio.ByteOrder;
+
 /**
  * @author Lee Rhodes
  */
 @SuppressWarnings("restriction")
 final class CompareAndCopy {
+  private static final boolean LITTLE_ENDIAN = Util.nativeByteOrder == ByteOrder.LITTLE_ENDIAN;
 
   private CompareAndCopy() { }
 
@@ -50,16 +59,66 @@ final class CompareAndCopy {
     final Object arr2 = state2.getUnsafeObject();
     if ((arr1 != arr2) || (cumOff1 != cumOff2)) {
       final long lenBytes = Math.min(lengthBytes1, lengthBytes2);
-      for (long i = 0; i < lenBytes; i++) {
-        final int byte1 = unsafe.getByte(arr1, cumOff1 + i);
-        final int byte2 = unsafe.getByte(arr2, cumOff2 + i);
-        if (byte1 < byte2) { return -1; }
-        if (byte1 > byte2) { return  1; }
+      final long i = mismatch(arr1, cumOff1, arr2, cumOff2, lenBytes);
+      if (i >= 0) {
+        return unsafe.getByte(arr1, cumOff1 + i) < unsafe.getByte(arr2, cumOff2 + i) ? -1 : 1;
       }
     }
     return Long.compare(lengthBytes1, lengthBytes2);
   }
 
+  static long mismatch(
+      final BaseStateImpl state1, final long offsetBytes1,
+      final BaseStateImpl state2, final long offsetBytes2, final long lengthBytes) {
+    state1.checkValid();
+    checkBounds(offsetBytes1, lengthBytes, state1.getCapacity());
+    state2.checkValid();
+    checkBounds(offsetBytes2, lengthBytes, state2.getCapacity());
+    final long cumOff1 = state1.getCumulativeOffset(offsetBytes1);
+    final long cumOff2 = state2.getCumulativeOffset(offsetBytes2);
+    final Object arr1 = state1.getUnsafeObject(); //could be null
+    final Object arr2 = state2.getUnsafeObject(); //could be null
+    if ((arr1 == arr2) && (cumOff1 == cumOff2)) { return -1; }
+    return mismatch(arr1, cumOff1, arr2, cumOff2, lengthBytes);
+  }
+
+  /**
+   * Returns the index of the first differing byte of the two regions, or -1 if they are equal.
+   * Compares 8 bytes per step. The xor of two differing words is byte-swapped, if necessary, into
+   * big-endian order so that its leading zero count locates the first differing byte.
+   * @param arr1 the first array object, it may be null
+   * @param cumOff1 the cumulative offset of the first region
+   * @param arr2 the second array object, it may be null
+   * @param cumOff2 the cumulative offset of the second region
+   * @param lengthBytes the length of both regions in bytes
+   * @return the index of the first differing byte, or -1 if none.
+   */
+  private static long mismatch(final Object arr1, final long cumOff1, final Object arr2,
+      final long cumOff2, final long lengthBytes) {
+    long pos = 0;
+    while ((lengthBytes - pos) >= Long.BYTES) {
+      final int chunk = (int) Math.min(lengthBytes - pos, UNSAFE_COPY_THRESHOLD_BYTES);
+      // int-counted loop to avoid safepoint polls
+      int i = 0;
+      for (; i <= (chunk - Long.BYTES); i += Long.BYTES) {
+        final long diff = unsafe.getLong(arr1, cumOff1 + pos + i)
+            ^ unsafe.getLong(arr2, cumOff2 + pos + i);
+        if (diff != 0) {
+          final long bigEndianDiff = LITTLE_ENDIAN ? Long.reverseBytes(diff) : diff;
+          return pos + i + (Long.numberOfLeadingZeros(bigEndianDiff) >>> 3);
+        }
+      }
+      pos += i;
+    }
+    //check the remainder bytes, if any
+    for (; pos < lengthBytes; pos++) {
+      if (unsafe.getByte(arr1, cumOff1 + pos) != unsafe.getByte(arr2, cumOff2 + pos)) {
+        return pos;
+      }
+    }
+    return -1;
+  }
+
   static boolean equals(final BaseStateImpl state1, final BaseStateImpl state2) {
     final long cap1 = state1.getCapacity();
     final long cap2 = state2.getCapacity();
@@ -68,7 +127,7 @@ final class CompareAndCopy {
 
   //Developer notes: this is subtlely different from (campare == 0) in that this has an early
   // stop if the arrays and offsets are the same as there is only one length.  Also this can take
-  // advantage of chunking with longs, while compare cannot.
+  // advantage of an early return on the first differing long.
   static boolean equals(
       final BaseStateImpl state1, final long offsetBytes1,
       final BaseStateImpl state2, final long offsetBytes2, long lengthBytes) {
@@ -120,6 +179,7 @@ final class CompareAndCopy {
     checkBounds(dstOffsetBytes, lengthBytes, dstState.getCapacity());
     final long srcAdd = srcState.getCumulativeOffset(srcOffsetBytes);
     final long dstAdd = dstState.getCumulativeOffset(dstOffsetBytes);
+    dstState.markDirty(dstOffsetBytes, lengthBytes);
     copyMemory(srcState.getUnsafeObject(), srcAdd, dstState.getUnsafeObject(), dstAdd,
         lengthBytes);
   }
@@ -152,8 +212,7 @@ final class CompareAndCopy {
    * At this point either srcArray == dstArray OR both src and dst are off-heap.
    * Performs overlapping address check. If addresses do not overlap, proceed to
    * {@link #copyNonOverlappingMemoryWithChunking(Object, long, Object, long, long)}; otherwise
-   * fall back on <i>Unsafe.copyMemory(...)</i> tolerating potentially long
-   * Time to Safe Point pauses.
+   * proceed to {@link #copyOverlappingMemoryWithChunking(Object, long, Object, long, long)}.
    * If srcAdd == dstAdd an exception will be thrown.
    * @param srcUnsafeObj The source array object, it may be null.
    * @param srcAdd The cumulative source offset
@@ -172,13 +231,42 @@ final class CompareAndCopy {
       throw new IllegalArgumentException(
           "Attempt to copy a block of memory exactly in-place, should be a bug");
     }
-    // If regions do overlap, fall back to unsafe.copyMemory, tolerating potentially long
-    // Time to Safe Point pauses.
-    unsafe.copyMemory(srcUnsafeObj, srcAdd, dstUnsafeObj, dstAdd, lengthBytes);
+    copyOverlappingMemoryWithChunking(srcUnsafeObj, srcAdd, dstUnsafeObj, dstAdd, lengthBytes);
+  }
+
+  /**
+   * This copies overlapping memory in chunks to avoid safepoint delays.
+   * If the destination is below the source the chunks are copied from the front, otherwise from
+   * the back, so that no chunk overwrites source bytes that have not yet been copied.
+   * Each chunk may itself overlap, which <i>Unsafe.copyMemory(...)</i> handles.
+   * @param srcUnsafeObj The source array object, it may be null.
+   * @param srcAdd The cumulative source offset
+   * @param dstUnsafeObj The destination array object, it may be null
+   * @param dstAdd The cumulative destination offset
+   * @param lengthBytes The length to be copied in bytes
+   * @see #UNSAFE_COPY_THRESHOLD_BYTES
+   */
+  private static void copyOverlappingMemoryWithChunking(final Object srcUnsafeObj,
+      long srcAdd, final Object dstUnsafeObj, long dstAdd, long lengthBytes) {
+    if (dstAdd < srcAdd) {
+      copyNonOverlappingMemoryWithChunking(srcUnsafeObj, srcAdd, dstUnsafeObj, dstAdd,
+          lengthBytes);
+      return;
+    }
+    srcAdd += lengthBytes;
+    dstAdd += lengthBytes;
+    while (lengthBytes > 0) {
+      final long chunk = Math.min(lengthBytes, UNSAFE_COPY_THRESHOLD_BYTES);
+      srcAdd -= chunk;
+      dstAdd -= chunk;
+      unsafe.copyMemory(srcUnsafeObj, srcAdd, dstUnsafeObj, dstAdd, chunk);
+      lengthBytes -= chunk;
+    }
   }
 
   /**
    * This copies only non-overlapping memory in chunks to avoid safepoint delays.
+   * It is also safe for overlapping memory when the destination is below the source.
    * Java 9 may not require the chunking.
    * @param srcUnsafeObj The source array object, it may be null.
    * @param srcAdd The cumulative source offset
@@ -187,7 +275,7 @@ final class CompareAndCopy {
    * @param lengthBytes The length to be copied in bytes
    * @see #UNSAFE_COPY_THRESHOLD_BYTES
    */
-  private static void copyNonOverlappingMemoryWithChunking(final Object srcUnsafeObj,
+  static void copyNonOverlappingMemoryWithChunking(final Object srcUnsafeObj,
       long srcAdd, final Object dstUnsafeObj, long dstAdd, long lengthBytes) {
     while (lengthBytes > 0) {
       final long chunk = Math.min(lengthBytes, UNSAFE_COPY_THRESHOLD_BYTES);
@@ -198,6 +286,28 @@ final class CompareAndCopy {
     }
   }
 
+  static void reverseBytesInPlace(final BaseStateImpl state, long offsetBytes, long lengthBytes,
+      final Prim prim) {
+    final long elemSize = prim.scale();
+    if ((prim == Prim.BOOLEAN) || (prim == Prim.BYTE) || (prim == Prim.OBJECT)) {
+      throw new IllegalArgumentException("Cannot reverse the bytes of type " + prim);
+    }
+    if ((lengthBytes & (elemSize - 1)) != 0) {
+      throw new IllegalArgumentException(
+          "Length " + lengthBytes + " is not a multiple of the size of " + prim);
+    }
+    state.checkValidAndBoundsForWrite(offsetBytes, lengthBytes);
+    final Object unsafeObj = state.getUnsafeObject();
+    while (lengthBytes > 0) {
+      final long chunk = Math.min(lengthBytes, UNSAFE_COPY_THRESHOLD_BYTES);
+      final long cumOffsetBytes = state.getCumulativeOffset(offsetBytes);
+      CopySwapMemory.copySwapMemory(unsafeObj, cumOffsetBytes, unsafeObj, cumOffsetBytes, chunk,
+          elemSize);
+      offsetBytes += chunk;
+      lengthBytes -= chunk;
+    }
+  }
+
   static void getNonNativeChars(final Object unsafeObj, long cumOffsetBytes,
       long copyBytes, final char[] dstArray, int dstOffsetChars,
       int lengthChars) {
@@ -216,13 +326,9 @@ final class CompareAndCopy {
 
   private static void getCharArrayChunk(final Object unsafeObj, final long cumOffsetBytes,
       final char[] dstArray, final int dstOffsetChars, final int lengthChars) {
-    // JDK 9 adds native intrinsics for such bulk non-native ordered primitive memory copy.
-    // TODO-JDK9 use them when the library adds support for JDK 9
-    // int-counted loop to avoid safepoint polls
-    for (int i = 0; i < lengthChars; i++) {
-      dstArray[dstOffsetChars + i] = Character.reverseBytes(
-          unsafe.getChar(unsafeObj, cumOffsetBytes + (((long) i) << CHAR_SHIFT)));
-    }
+    CopySwapMemory.copySwapMemory(unsafeObj, cumOffsetBytes, dstArray,
+        ARRAY_CHAR_BASE_OFFSET + (((long) dstOffsetChars) << CHAR_SHIFT),
+        ((long) lengthChars) << CHAR_SHIFT, Character.BYTES);
   }
 
   static void getNonNativeDoubles(final Object unsafeObj, long cumOffsetBytes,
@@ -245,13 +351,9 @@ final class CompareAndCopy {
 
   private static void getDoubleArrayChunk(final Object unsafeObj, final long cumOffsetBytes,
       final double[] dstArray, final int dstOffsetDoubles, final int lengthDoubles) {
-    // JDK 9 adds native intrinsics for such bulk non-native ordered primitive memory copy.
-    // TODO-JDK9 use them when the library adds support for JDK 9
-    // int-counted loop to avoid safepoint polls
-    for (int i = 0; i < lengthDoubles; i++) {
-      dstArray[dstOffsetDoubles + i] = Double.longBitsToDouble(Long.reverseBytes(
-          unsafe.getLong(unsafeObj, cumOffsetBytes + (((long) i) << DOUBLE_SHIFT))));
-    }
+    CopySwapMemory.copySwapMemory(unsafeObj, cumOffsetBytes, dstArray,
+        ARRAY_DOUBLE_BASE_OFFSET + (((long) dstOffsetDoubles) << DOUBLE_SHIFT),
+        ((long) lengthDoubles) << DOUBLE_SHIFT, Double.BYTES);
   }
 
   static void getNonNativeFloats(final Object unsafeObj, long cumOffsetBytes,
@@ -272,13 +374,9 @@ final class CompareAndCopy {
 
   private static void getFloatArrayChunk(final Object unsafeObj, final long cumOffsetBytes,
       final float[] dstArray, final int dstOffsetFloats, final int lengthFloats) {
-    // JDK 9 adds native intrinsics for such bulk non-native ordered primitive memory copy.
-    // TODO-JDK9 use them when the library adds support for JDK 9
-    // int-counted loop to avoid safepoint polls
-    for (int i = 0; i < lengthFloats; i++) {
-      dstArray[dstOffsetFloats + i] = Float.intBitsToFloat(Integer.reverseBytes(
-          unsafe.getInt(unsafeObj, cumOffsetBytes + (((long) i) << FLOAT_SHIFT))));
-    }
+    CopySwapMemory.copySwapMemory(unsafeObj, cumOffsetBytes, dstArray,
+        ARRAY_FLOAT_BASE_OFFSET + (((long) dstOffsetFloats) << FLOAT_SHIFT),
+        ((long) lengthFloats) << FLOAT_SHIFT, Float.BYTES);
   }
 
   static void getNonNativeInts(final Object unsafeObj, long cumOffsetBytes,
@@ -299,13 +397,9 @@ final class CompareAndCopy {
 
   private static void getIntArrayChunk(final Object unsafeObj, final long cumOffsetBytes,
       final int[] dstArray, final int dstOffsetInts, final int lengthInts) {
-    // JDK 9 adds native intrinsics for such bulk non-native ordered primitive memory copy.
-    // TODO-JDK9 use them when the library adds support for JDK 9
-    // int-counted loop to avoid safepoint polls
-    for (int i = 0; i < lengthInts; i++) {
-      dstArray[dstOffsetInts + i] = Integer.reverseBytes(
-          unsafe.getInt(unsafeObj, cumOffsetBytes + (((long) i) << INT_SHIFT)));
-    }
+    CopySwapMemory.copySwapMemory(unsafeObj, cumOffsetBytes, dstArray,
+        ARRAY_INT_BASE_OFFSET + (((long) dstOffsetInts) << INT_SHIFT),
+        ((long) lengthInts) << INT_SHIFT, Integer.BYTES);
   }
 
   static void getNonNativeLongs(final Object unsafeObj, long cumOffsetBytes,
@@ -326,13 +420,9 @@ final class CompareAndCopy {
 
   private static void getLongArrayChunk(final Object unsafeObj, final long cumOffsetBytes,
       final long[] dstArray, final int dstOffsetLongs, final int lengthLongs) {
-    // JDK 9 adds native intrinsics for such bulk non-native ordered primitive memory copy.
-    // TODO-JDK9 use them when the library adds support for JDK 9
-    // int-counted loop to avoid safepoint polls
-    for (int i = 0; i < lengthLongs; i++) {
-      dstArray[dstOffsetLongs + i] = Long.reverseBytes(
-          unsafe.getLong(unsafeObj, cumOffsetBytes + (((long) i) << LONG_SHIFT)));
-    }
+    CopySwapMemory.copySwapMemory(unsafeObj, cumOffsetBytes, dstArray,
+        ARRAY_LONG_BASE_OFFSET + (((long) dstOffsetLongs) << LONG_SHIFT),
+        ((long) lengthLongs) << LONG_SHIFT, Long.BYTES);
   }
 
   static void getNonNativeShorts(final Object unsafeObj, long cumOffsetBytes,
@@ -353,13 +443,9 @@ final class CompareAndCopy {
 
   private static void getShortArrayChunk(final Object unsafeObj, final long cumOffsetBytes,
       final short[] dstArray, final int dstOffsetShorts, final int lengthShorts) {
-    // JDK 9 adds native intrinsics for such bulk non-native ordered primitive memory copy.
-    // TODO-JDK9 use them when the library adds support for JDK 9
-    // int-counted loop to avoid safepoint polls
-    for (int i = 0; i < lengthShorts; i++) {
-      dstArray[dstOffsetShorts + i] = Short.reverseBytes(
-          unsafe.getShort(unsafeObj, cumOffsetBytes + (((long) i) << SHORT_SHIFT)));
-    }
+    CopySwapMemory.copySwapMemory(unsafeObj, cumOffsetBytes, dstArray,
+        ARRAY_SHORT_BASE_OFFSET + (((long) dstOffsetShorts) << SHORT_SHIFT),
+        ((long) lengthShorts) << SHORT_SHIFT, Short.BYTES);
   }
 
   static void putNonNativeChars(final char[] srcArray, int srcOffsetChars, int lengthChars,
@@ -379,13 +465,9 @@ final class CompareAndCopy {
 
   private static void putCharArrayChunk(final char[] srcArray, final int srcOffsetChars,
       final int lengthChars, final Object unsafeObj, final long cumOffsetBytes) {
-    // JDK 9 adds native intrinsics for such bulk non-native ordered primitive memory copy.
-    // TODO-JDK9 use them when the library adds support for JDK 9
-    // int-counted loop to avoid safepoint polls
-    for (int i = 0; i < lengthChars; i++) {
-      unsafe.putChar(unsafeObj, cumOffsetBytes + (((long) i) << CHAR_SHIFT),
-          Character.reverseBytes(srcArray[srcOffsetChars + i]));
-    }
+    CopySwapMemory.copySwapMemory(srcArray,
+        ARRAY_CHAR_BASE_OFFSET + (((long) srcOffsetChars) << CHAR_SHIFT),
+        unsafeObj, cumOffsetBytes, ((long) lengthChars) << CHAR_SHIFT, Character.BYTES);
   }
 
   static void putNonNativeDoubles(final double[] srcArray, int srcOffsetDoubles,
@@ -407,13 +489,9 @@ final class CompareAndCopy {
 
   private static void putDoubleArrayChunk(final double[] srcArray, final int srcOffsetDoubles,
       final int lengthDoubles, final Object unsafeObj, final long cumOffsetBytes) {
-    // JDK 9 adds native intrinsics for such bulk non-native ordered primitive memory copy.
-    // TODO-JDK9 use them when the library adds support for JDK 9
-    // int-counted loop to avoid safepoint polls
-    for (int i = 0; i < lengthDoubles; i++) {
-      unsafe.putLong(unsafeObj, cumOffsetBytes + (((long) i) << DOUBLE_SHIFT),
-          Long.reverseBytes(Double.doubleToRawLongBits(srcArray[srcOffsetDoubles + i])));
-    }
+    CopySwapMemory.copySwapMemory(srcArray,
+        ARRAY_DOUBLE_BASE_OFFSET + (((long) srcOffsetDoubles) << DOUBLE_SHIFT),
+        unsafeObj, cumOffsetBytes, ((long) lengthDoubles) << DOUBLE_SHIFT, Double.BYTES);
   }
 
   static void putNonNativeFloats(final float[] srcArray, int srcOffsetFloats,
@@ -433,13 +511,9 @@ final class CompareAndCopy {
 
   private static void putFloatArrayChunk(final float[] srcArray, final int srcOffsetFloats,
       final int lengthFloats, final Object unsafeObj, final long cumOffsetBytes) {
-    // JDK 9 adds native intrinsics for such bulk non-native ordered primitive memory copy.
-    // TODO-JDK9 use them when the library adds support for JDK 9
-    // int-counted loop to avoid safepoint polls
-    for (int i = 0; i < lengthFloats; i++) {
-      unsafe.putInt(unsafeObj, cumOffsetBytes + (((long) i) << FLOAT_SHIFT),
-          Integer.reverseBytes(Float.floatToRawIntBits(srcArray[srcOffsetFloats + i])));
-    }
+    CopySwapMemory.copySwapMemory(srcArray,
+        ARRAY_FLOAT_BASE_OFFSET + (((long) srcOffsetFloats) << FLOAT_SHIFT),
+        unsafeObj, cumOffsetBytes, ((long) lengthFloats) << FLOAT_SHIFT, Float.BYTES);
   }
 
   static void putNonNativeInts(final int[] srcArray, int srcOffsetInts, int lengthInts,
@@ -459,13 +533,9 @@ final class CompareAndCopy {
 
   private static void putIntArrayChunk(final int[] srcArray, final int srcOffsetInts,
       final int lengthInts, final Object unsafeObj, final long cumOffsetBytes) {
-    // JDK 9 adds native intrinsics for such bulk non-native ordered primitive memory copy.
-    // TODO-JDK9 use them when the library adds support for JDK 9
-    // int-counted loop to avoid safepoint polls
-    for (int i = 0; i < lengthInts; i++) {
-      unsafe.putInt(unsafeObj, cumOffsetBytes + (((long) i) << INT_SHIFT),
-          Integer.reverseBytes(srcArray[srcOffsetInts + i]));
-    }
+    CopySwapMemory.copySwapMemory(srcArray,
+        ARRAY_INT_BASE_OFFSET + (((long) srcOffsetInts) << INT_SHIFT),
+        unsafeObj, cumOffsetBytes, ((long) lengthInts) << INT_SHIFT, Integer.BYTES);
   }
 
   static void putNonNativeLongs(final long[] srcArray, int srcOffsetLongs, int lengthLongs,
@@ -485,13 +555,9 @@ final class CompareAndCopy {
 
   private static void putLongArrayChunk(final long[] srcArray, final int srcOffsetLongs,
       final int lengthLongs, final Object unsafeObj, final long cumOffsetBytes) {
-    // JDK 9 adds native intrinsics for such bulk non-native ordered primitive memory copy.
-    // TODO-JDK9 use them when the library adds support for JDK 9
-    // int-counted loop to avoid safepoint polls
-    for (int i = 0; i < lengthLongs; i++) {
-      unsafe.putLong(unsafeObj, cumOffsetBytes + (((long) i) << LONG_SHIFT),
-          Long.reverseBytes(srcArray[srcOffsetLongs + i]));
-    }
+    CopySwapMemory.copySwapMemory(srcArray,
+        ARRAY_LONG_BASE_OFFSET + (((long) srcOffsetLongs) << LONG_SHIFT),
+        unsafeObj, cumOffsetBytes, ((long) lengthLongs) << LONG_SHIFT, Long.BYTES);
   }
 
   static void putNonNativeShorts(final short[] srcArray, int srcOffsetShorts,
@@ -511,12 +577,8 @@ final class CompareAndCopy {
 
   private static void putShortArrayChunk(final short[] srcArray, final int srcOffsetShorts,
       final int lengthShorts, final Object unsafeObj, final long cumOffsetBytes) {
-    // JDK 9 adds native intrinsics for such bulk non-native ordered primitive memory copy.
-    // TODO-JDK9 use them when the library adds support for JDK 9
-    // int-counted loop to avoid safepoint polls
-    for (int i = 0; i < lengthShorts; i++) {
-      unsafe.putShort(unsafeObj, cumOffsetBytes + (((long) i) << SHORT_SHIFT),
-          Short.reverseBytes(srcArray[srcOffsetShorts + i]));
-    }
+    CopySwapMemory.copySwapMemory(srcArray,
+        ARRAY_SHORT_BASE_OFFSET + (((long) srcOffsetShorts) << SHORT_SHIFT),
+        unsafeObj, cumOffsetBytes, ((long) lengthShorts) << SHORT_SHIFT, Short.BYTES);
   }
 }
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.internal;
+
+import static org.apache.datasketches.memory.internal.UnsafeUtil.unsafe;
+
+/**
+ * Extracts the version-dependent bulk byte-swapping copy into a standalone class.
+ * JDK 9 adds a native intrinsic for it, <i>jdk.internal.misc.Unsafe.copySwapMemory(...)</i>.
+ * This Java 8 version swaps one element at a time.
+ * The appropriate class will be loaded by the class loader
+ * depending on the Java version that is used.
+ * For more information, see: https://openjdk.java.net/jeps/238
+ */
+@SuppressWarnings("restriction")
+final class CopySwapMemory {
+
+  private CopySwapMemory() { }
+
+  /**
+   * Copies bytes from the source to the destination, reversing the byte order of each element.
+   * The regions must not overlap, or must be identical to swap in place.
+   * The caller limits <i>bytes</i> to a safepoint-friendly size.
+   * @param srcBase the source array object, it may be null
+   * @param srcOffset the cumulative source offset
+   * @param destBase the destination array object, it may be null
+   * @param destOffset the cumulative destination offset
+   * @param bytes the number of bytes to copy, a multiple of <i>elemSize</i>
+   * @param elemSize the element size in bytes, which must be 2, 4 or 8
+   */
+  static void copySwapMemory(final Object srcBase, final long srcOffset,
+      final Object destBase, final long destOffset, final long bytes, final long elemSize) {
+    final int n = (int) (bytes / elemSize);
+    // int-counted loops to avoid safepoint polls
+    if (elemSize == Short.BYTES) {
+      for (int i = 0; i < n; i++) {
+        final long off = ((long) i) << 1;
+        unsafe.putShort(destBase, destOffset + off,
+            Short.reverseBytes(unsafe.getShort(srcBase, srcOffset + off)));
+      }
+    } else if (elemSize == Integer.BYTES) {
+      for (int i = 0; i < n; i++) {
+        final long off = ((long) i) << 2;
+        unsafe.putInt(destBase, destOffset + off,
+            Integer.reverseBytes(unsafe.getInt(srcBase, srcOffset + off)));
+      }
+    } else if (elemSize == Long.BYTES) {
+      for (int i = 0; i < n; i++) {
+        final long off = ((long) i) << 3;
+        unsafe.putLong(destBase, destOffset + off,
+            Long.reverseBytes(unsafe.getLong(srcBase, srcOffset + off)));
+      }
+    } else {
+      throw new IllegalArgumentException("Illegal element size: " + elemSize);
+    }
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.internal;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accounts for the direct memory reserved by {@link AllocateDirect} against the JVM limit for
+ * direct memory, calling into <i>java.nio.Bits</i> only once per batch of allocations.
+ *
+ * <p>Reserving through java.nio.Bits requires a reflective call that synchronizes, and may call
+ * System.gc() and sleep, so it is too costly for every small allocation and deallocation.
+ * Instead, each thread draws reservations from a local credit, which is refilled in batches of
+ * {@link #BATCH_BYTES}. Each batch, and each allocation of at least a batch, is reserved through
+ * java.nio.Bits, so the JVM limit for direct memory (<i>-XX:MaxDirectMemorySize</i>) is shared
+ * with direct ByteBuffers and is enforced by the JVM itself. Credit is unreserved through
+ * java.nio.Bits when it is returned. If the limit is reached, unused credit held by all threads
+ * is reclaimed before giving up.</p>
+ *
+ * <p>The "direct" BufferPoolMXBean therefore shows the batches rather than the individual
+ * allocations. Reserving every allocation through java.nio.Bits can be restored by setting the
+ * system property {@value #NIO_BITS_ACCOUNTING_PROPERTY} to true.</p>
+ *
+ * @author Lee Rhodes
+ */
+final class DirectMemoryAccounting {
+  static final String NIO_BITS_ACCOUNTING_PROPERTY = "datasketches.memory.nioBitsAccounting";
+  static final long BATCH_BYTES = 1L << 20;
+  private static final boolean useNioBits = Boolean.getBoolean(NIO_BITS_ACCOUNTING_PROPERTY);
+  private static final long maxMemory = NioBits.getMaxDirectByteBufferMemory();
+
+  //bytes reserved through java.nio.Bits, including the unused credit held by threads
+  private static final AtomicLong reserved_ = new AtomicLong();
+  private static final Set<Credit> credits = ConcurrentHashMap.newKeySet();
+  private static final ThreadLocal<Credit> localCredit = ThreadLocal.withInitial(() -> {
+    final Credit credit = new Credit();
+    credits.add(credit);
+    return credit;
+  });
+
+  private DirectMemoryAccounting() { }
+
+  /**
+   * Reserves direct memory for an allocation.
+   * @param allocationSize the number of bytes actually allocated, including any padding.
+   * @param capacity the capacity requested by the user.
+   * @throws RuntimeException wrapping an OutOfMemoryError if the limit would be exceeded.
+   */
+  static void reserveMemory(final long allocationSize, final long capacity) {
+    if (useNioBits) {
+      NioBits.reserveMemory(allocationSize, capacity);
+      return;
+    }
+    Util.zeroCheck(capacity, "capacity");
+    if (allocationSize >= BATCH_BYTES) {
+      if (!reserveGlobal(allocationSize)) {
+        throw outOfMemory(allocationSize);
+      }
+      return;
+    }
+    final Credit credit = localCredit.get();
+    if (credit.take(allocationSize)) { return; }
+    //near the limit a batch is not attempted, as java.nio.Bits would call System.gc() and sleep
+    if (hasRoom(BATCH_BYTES) && reserveGlobal(BATCH_BYTES)) {
+      credit.add(BATCH_BYTES);
+      if (credit.take(allocationSize)) { return; }
+    }
+    //near the limit, or the credit was reclaimed by another thread
+    if (!reserveGlobal(allocationSize)) {
+      throw outOfMemory(allocationSize);
+    }
+  }
+
+  /**
+   * Releases direct memory reserved by {@link #reserveMemory(long, long)}.
+   * @param allocationSize the number of bytes actually allocated, including any padding.
+   * @param capacity the capacity requested by the user.
+   */
+  static void unreserveMemory(final long allocationSize, final long capacity) {
+    if (useNioBits) {
+      NioBits.unreserveMemory(allocationSize, capacity);
+      return;
+    }
+    if (allocationSize >= BATCH_BYTES) {
+      unreserveGlobal(allocationSize);
+      return;
+    }
+    final Credit credit = localCredit.get();
+    final long excess = credit.add(allocationSize) - BATCH_BYTES;
+    if ((excess >= BATCH_BYTES) && credit.take(excess)) {
+      unreserveGlobal(excess);
+    }
+  }
+
+  /**
+   * Gets the number of bytes reserved against the limit, including unused thread credit.
+   * @return the number of bytes reserved against the limit.
+   */
+  static long getReservedMemory() {
+    return reserved_.get();
+  }
+
+  //Reserves through java.nio.Bits, which may call System.gc() and sleep if the limit is reached.
+  //Unused credit is reclaimed first if the reservation could not succeed without it.
+  private static boolean reserveGlobal(final long bytes) {
+    if (!hasRoom(bytes)) {
+      reclaimCredits();
+    }
+    try {
+      NioBits.reserveMemory(bytes, bytes);
+    } catch (final RuntimeException e) {
+      final Throwable cause = e.getCause();
+      if ((cause instanceof InvocationTargetException)
+          && (cause.getCause() instanceof OutOfMemoryError)) {
+        return false;
+      }
+      throw e;
+    }
+    reserved_.addAndGet(bytes);
+    return true;
+  }
+
+  private static boolean hasRoom(final long bytes) {
+    return (NioBits.getReservedMemory() + bytes) <= maxMemory;
+  }
+
+  private static void unreserveGlobal(final long bytes) {
+    reserved_.addAndGet(-bytes);
+    NioBits.unreserveMemory(bytes, bytes);
+  }
+
+  //Returns the unused credit of all threads through java.nio.Bits and forgets dead threads.
+  private static void reclaimCredits() {
+    final Iterator<Credit> itr = credits.iterator();
+    while (itr.hasNext()) {
+      final Credit credit = itr.next();
+      final long bytes = credit.bytes.getAndSet(0);
+      if (bytes > 0) { unreserveGlobal(bytes); }
+      if (credit.owner.get() == null) { itr.remove(); }
+    }
+  }
+
+  private static RuntimeException outOfMemory(final long bytes) {
+    return new RuntimeException(new OutOfMemoryError("Cannot reserve " + bytes
+        + " bytes of direct memory (reserved: " + NioBits.getReservedMemory() + ", limit: " + maxMemory + ")"));
+  }
+
+  /**
+   * Unused reserved bytes held by one thread. Only the owning thread adds to it, but any thread
+   * may reclaim it, so it is updated atomically. This is never contended in the common case.
+   */
+  private static final class Credit {
+    final AtomicLong bytes = new AtomicLong();
+    final WeakReference<Thread> owner = new WeakReference<>(Thread.currentThread());
+
+    boolean take(final long n) {
+      final long cur = bytes.get();
+      return (cur >= n) && bytes.compareAndSet(cur, cur - n);
+    }
+
+    long add(final long n) {
+      return bytes.addAndGet(n);
+    }
+  }
+
+}
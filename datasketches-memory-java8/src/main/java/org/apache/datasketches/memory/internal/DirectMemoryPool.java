@@ -0,0 +1,319 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.internal;
+
+import static org.apache.datasketches.memory.internal.Util.negativeCheck;
+import static org.apache.datasketches.memory.internal.Util.powerOf2Check;
+import static org.apache.datasketches.memory.internal.Util.zeroCheck;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * A pool of direct (off-heap) memory segments organized into power-of-two size classes.
+ *
+ * <p>Each size class has a small per-thread free list backed by a shared central free list.
+ * A segment is allocated with {@link AllocateDirect} only the first time its size class runs
+ * dry. After that, leasing and releasing a segment only moves it between free lists, so the
+ * native allocation, the direct memory reservation and the cleaner registration are paid once
+ * per segment rather than once per request.</p>
+ *
+ * <p>The per-thread free lists are registered with the pool. When a central free list runs dry,
+ * the free lists of threads that have terminated are moved to the central free lists, so that
+ * segments cached by short-lived threads are reused rather than retained until the pool
+ * is closed. As this visits every registered free list, it is only done once the misses since
+ * the last time reach 1/{@value #RECLAIM_CACHES_PER_MISS} of the number of registered free lists,
+ * which bounds its cost per miss.</p>
+ *
+ * <p>Each lease gets its own validity flag, so all views of a released segment become invalid
+ * before the segment is handed out again. Requests larger than the largest size class are
+ * allocated individually and freed on release.</p>
+ *
+ * @author Lee Rhodes
+ */
+public final class DirectMemoryPool {
+  static final int RECLAIM_CACHES_PER_MISS = 16;
+  private final int minShift;
+  private final int maxShift;
+  private final int threadCacheSize;
+  private final MemoryRequestServer owner;
+  private final List<ArrayDeque<Segment>> central;
+  private final ThreadLocal<ThreadCache> threadCache;
+  private final ConcurrentHashMap<Long, Segment> leased = new ConcurrentHashMap<>();
+  private final Set<Segment> segments = ConcurrentHashMap.newKeySet();
+  private final Set<ThreadCache> caches = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger missesSinceReclaim = new AtomicInteger();
+  private volatile boolean closed = false;
+
+  /**
+   * Constructs a new pool.
+   * @param minSegmentBytes the size of the smallest size class. It must be a power of two.
+   * @param maxSegmentBytes the size of the largest size class. It must be a power of two and
+   * not less than <i>minSegmentBytes</i>.
+   * @param threadCacheSize the maximum number of free segments per size class kept by each thread.
+   * @param owner the MemoryRequestServer attached to all memory leased from this pool.
+   */
+  public DirectMemoryPool(final long minSegmentBytes, final long maxSegmentBytes,
+      final int threadCacheSize, final MemoryRequestServer owner) {
+    powerOf2Check(minSegmentBytes, "minSegmentBytes");
+    powerOf2Check(maxSegmentBytes, "maxSegmentBytes");
+    if (maxSegmentBytes < minSegmentBytes) {
+      throw new IllegalArgumentException("maxSegmentBytes must be >= minSegmentBytes.");
+    }
+    negativeCheck(threadCacheSize, "threadCacheSize");
+    minShift = Long.numberOfTrailingZeros(minSegmentBytes);
+    maxShift = Long.numberOfTrailingZeros(maxSegmentBytes);
+    this.threadCacheSize = threadCacheSize;
+    this.owner = owner;
+    final int numClasses = maxShift - minShift + 1;
+    central = new ArrayList<>(numClasses);
+    for (int i = 0; i < numClasses; i++) {
+      central.add(new ArrayDeque<>());
+    }
+    threadCache = ThreadLocal.withInitial(() -> {
+      final ThreadCache cache = new ThreadCache(numClasses, threadCacheSize);
+      caches.add(cache);
+      return cache;
+    });
+  }
+
+  /**
+   * Leases native-ordered direct memory with exactly the given capacity.
+   * The contents of the returned memory are unspecified.
+   * @param capacityBytes the requested capacity. It must be positive.
+   * @return leased WritableMemory
+   */
+  public WritableMemory lease(final long capacityBytes) {
+    zeroCheck(capacityBytes, "capacityBytes");
+    checkOpen();
+    final int sizeClass = sizeClass(capacityBytes);
+    Segment seg = null;
+    if (sizeClass >= 0) {
+      seg = threadCache.get().pop(sizeClass);
+      if (seg == null) {
+        seg = pollCentral(sizeClass);
+      }
+      if ((seg == null) && maybeReclaimDeadThreadCaches()) {
+        seg = pollCentral(sizeClass);
+      }
+    }
+    if (seg == null) {
+      final long segmentBytes = (sizeClass >= 0) ? 1L << (sizeClass + minShift) : capacityBytes;
+      seg = new Segment(new AllocateDirect(segmentBytes), segmentBytes, sizeClass);
+      segments.add(seg);
+    }
+    seg.valid = new StepBoolean(true);
+    seg.mem = new DirectWritableMemoryImpl(seg.direct.getNativeBaseOffset(), 0L, capacityBytes,
+        0, seg.valid, owner);
+    leased.put(seg.direct.getNativeBaseOffset(), seg);
+    return seg.mem;
+  }
+
+  /**
+   * Returns the given memory to the pool and invalidates it and all of its views.
+   * This only applies to the exact object returned by {@link #lease(long)}. Other objects,
+   * including regions of leased memory, are ignored.
+   * @param mem the memory to release.
+   * @return true if the given memory was leased from this pool and has now been released.
+   */
+  public boolean release(final WritableMemory mem) {
+    if (closed || (mem == null) || !mem.isValid() || !mem.isDirect()) { return false; }
+    final Long key = mem.getCumulativeOffset();
+    final Segment seg = leased.get(key);
+    if ((seg == null) || (seg.mem != mem) || !leased.remove(key, seg)) { return false; }
+    seg.valid.change();
+    seg.mem = null;
+    seg.valid = null;
+    final int sizeClass = seg.sizeClass;
+    if (sizeClass < 0) {
+      segments.remove(seg);
+      seg.direct.doClose();
+    } else if (!threadCache.get().push(seg)) {
+      final ArrayDeque<Segment> deque = central.get(sizeClass);
+      synchronized (deque) {
+        deque.addFirst(seg);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Frees all segments, including those currently leased. All leased memory becomes invalid.
+   * This must be called only after all threads have stopped using this pool.
+   */
+  public void close() {
+    closed = true;
+    for (final Segment seg : segments) {
+      final StepBoolean valid = seg.valid;
+      if (valid != null) { valid.change(); }
+      seg.direct.doClose();
+    }
+    segments.clear();
+    leased.clear();
+    caches.clear();
+    for (final ArrayDeque<Segment> deque : central) {
+      synchronized (deque) {
+        deque.clear();
+      }
+    }
+  }
+
+  /**
+   * Returns true if this pool has not been closed.
+   * @return true if this pool has not been closed.
+   */
+  public boolean isOpen() {
+    return !closed;
+  }
+
+  /**
+   * Gets the number of segments currently leased.
+   * @return the number of segments currently leased.
+   */
+  public long getLeasedSegments() {
+    return leased.size();
+  }
+
+  /**
+   * Gets the number of native bytes currently held by this pool, leased or free.
+   * @return the number of native bytes currently held by this pool, leased or free.
+   */
+  public long getRetainedBytes() {
+    long bytes = 0;
+    for (final Segment seg : segments) {
+      bytes += seg.bytes;
+    }
+    return bytes;
+  }
+
+  int sizeClass(final long capacityBytes) {
+    final int shift = 64 - Long.numberOfLeadingZeros(capacityBytes - 1L);
+    if (shift > maxShift) { return -1; }
+    return Math.max(0, shift - minShift);
+  }
+
+  private Segment pollCentral(final int sizeClass) {
+    final ArrayDeque<Segment> deque = central.get(sizeClass);
+    synchronized (deque) {
+      return deque.pollFirst();
+    }
+  }
+
+  /**
+   * Reclaims the free segments of terminated threads if there have been enough misses since the
+   * last time to pay for visiting every registered free list.
+   * @return true if any segments were moved.
+   */
+  private boolean maybeReclaimDeadThreadCaches() {
+    final long misses = missesSinceReclaim.incrementAndGet();
+    if ((misses * RECLAIM_CACHES_PER_MISS) < caches.size()) { return false; }
+    missesSinceReclaim.set(0);
+    return reclaimDeadThreadCaches();
+  }
+
+  /**
+   * Moves the free segments of the threads that have terminated to the central free lists.
+   * @return true if any segments were moved.
+   */
+  private boolean reclaimDeadThreadCaches() {
+    boolean reclaimed = false;
+    for (final ThreadCache cache : caches) {
+      if (cache.isOwnerAlive() || !caches.remove(cache)) { continue; }
+      for (int sizeClass = 0; sizeClass < central.size(); sizeClass++) {
+        Segment seg;
+        while ((seg = cache.pop(sizeClass)) != null) {
+          final ArrayDeque<Segment> deque = central.get(sizeClass);
+          synchronized (deque) {
+            deque.addFirst(seg);
+          }
+          reclaimed = true;
+        }
+      }
+    }
+    return reclaimed;
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("DirectMemoryPool is closed.");
+    }
+  }
+
+  private static final class Segment {
+    final AllocateDirect direct;
+    final long bytes;
+    final int sizeClass; //-1 if not pooled
+    StepBoolean valid; //of the current lease, null if free
+    WritableMemory mem; //of the current lease, null if free
+
+    Segment(final AllocateDirect direct, final long bytes, final int sizeClass) {
+      this.direct = direct;
+      this.bytes = bytes;
+      this.sizeClass = sizeClass;
+    }
+  }
+
+  //Used by its owner thread only, until the owner has terminated and the pool reclaims it.
+  //The methods are synchronized, uncontended while the owner is alive, so that the reclaiming
+  //thread sees the last state left by the owner.
+  private static final class ThreadCache {
+    private final WeakReference<Thread> owner;
+    private final Segment[][] stacks;
+    private final int[] counts;
+
+    ThreadCache(final int numClasses, final int threadCacheSize) {
+      owner = new WeakReference<>(Thread.currentThread());
+      stacks = new Segment[numClasses][threadCacheSize];
+      counts = new int[numClasses];
+    }
+
+    boolean isOwnerAlive() {
+      final Thread thread = owner.get();
+      return (thread != null) && thread.isAlive();
+    }
+
+    synchronized Segment pop(final int sizeClass) {
+      final int count = counts[sizeClass];
+      if (count == 0) { return null; }
+      final Segment seg = stacks[sizeClass][count - 1];
+      stacks[sizeClass][count - 1] = null;
+      counts[sizeClass] = count - 1;
+      return seg;
+    }
+
+    synchronized boolean push(final Segment seg) {
+      final int sizeClass = seg.sizeClass;
+      final int count = counts[sizeClass];
+      if (count == stacks[sizeClass].length) { return false; }
+      stacks[sizeClass][count] = seg;
+      counts[sizeClass] = count + 1;
+      return true;
+    }
+  }
+
+}
@@ -75,6 +75,12 @@ final class DirectNonNativeWritableMemoryImpl extends NonNativeWritableMemoryImp
             type, valid, memReqSvr, this);
   }
 
+  @Override
+  BaseWritableMemoryImpl toMemoryRequestServerView(final MemoryRequestServer memReqSvr) {
+    return new DirectNonNativeWritableMemoryImpl(
+        nativeBaseOffset, getRegionOffset(), getCapacity(), typeId, valid, memReqSvr);
+  }
+
   @Override
   public MemoryRequestServer getMemoryRequestServer() {
     assertValid();
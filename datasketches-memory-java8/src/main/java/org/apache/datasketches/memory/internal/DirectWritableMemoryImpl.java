@@ -75,6 +75,12 @@ final class DirectWritableMemoryImpl extends NativeWritableMemoryImpl {
             type, valid, memReqSvr, this);
   }
 
+  @Override
+  BaseWritableMemoryImpl toMemoryRequestServerView(final MemoryRequestServer memReqSvr) {
+    return new DirectWritableMemoryImpl(
+        nativeBaseOffset, getRegionOffset(), getCapacity(), typeId, valid, memReqSvr);
+  }
+
   @Override
   public MemoryRequestServer getMemoryRequestServer() {
     assertValid();
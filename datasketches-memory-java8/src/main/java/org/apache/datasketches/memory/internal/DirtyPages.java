@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.internal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bitmap of the pages of a mapping that have been written since they were last cleared.
+ * Writable map leaves that track dirty pages mark every write here, see
+ * {@link MapWritableMemoryImpl#markDirty(long, long)}.
+ *
+ * @author Lee Rhodes
+ */
+final class DirtyPages {
+  private static final int PAGE_SHIFT = Integer.numberOfTrailingZeros(AllocateDirectMap.PAGE_SIZE);
+
+  private final long baseAddress; //page aligned native address of the mapping
+  private final long pages;
+  private final AtomicLongArray words;
+
+  DirtyPages(final long baseAddress, final long mappedBytes) {
+    this.baseAddress = baseAddress;
+    pages = AllocateDirectMap.pageCount(mappedBytes);
+    final long wordCount = (pages + 63) >>> 6;
+    if (wordCount > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many pages to track: " + pages);
+    }
+    words = new AtomicLongArray((int) wordCount);
+  }
+
+  /**
+   * Returns a new bitmap for a remapping of the same file region, with the same pages marked.
+   * @param newBaseAddress the native address of the new mapping
+   * @param newMappedBytes the size of the new mapping
+   * @return a new bitmap for the new mapping
+   */
+  DirtyPages remapped(final long newBaseAddress, final long newMappedBytes) {
+    final DirtyPages dp = new DirtyPages(newBaseAddress, newMappedBytes);
+    final int n = Math.min(words.length(), dp.words.length());
+    for (int i = 0; i < n; i++) {
+      dp.words.set(i, words.get(i));
+    }
+    final long tailBits = dp.pages & 63;
+    if ((n == dp.words.length()) && (tailBits != 0)) { //drop pages beyond a smaller mapping
+      dp.words.set(n - 1, dp.words.get(n - 1) & ((1L << tailBits) - 1));
+    }
+    return dp;
+  }
+
+  /**
+   * Marks the pages covering the given range of native addresses as dirty.
+   * @param address the native address of the first byte written
+   * @param lengthBytes the number of bytes written
+   */
+  void mark(final long address, final long lengthBytes) {
+    if (lengthBytes <= 0) { return; }
+    final long first = (address - baseAddress) >>> PAGE_SHIFT;
+    final long last = ((address + lengthBytes) - 1 - baseAddress) >>> PAGE_SHIFT;
+    for (long page = first; page <= last; page++) {
+      final int i = (int) (page >>> 6);
+      final long bit = 1L << page;
+      long word = words.get(i);
+      while ((word & bit) == 0) {
+        if (words.compareAndSet(i, word, word | bit)) { break; }
+        word = words.get(i);
+      }
+    }
+  }
+
+  /**
+   * Clears the bitmap and returns the pages that were dirty. Pages written after a word of the
+   * bitmap has been cleared are marked again and are not lost.
+   * @return a snapshot of the bitmap before it was cleared, one bit per page.
+   */
+  long[] clear() {
+    final long[] snapshot = new long[words.length()];
+    for (int i = 0; i < snapshot.length; i++) {
+      if (words.get(i) != 0) {
+        snapshot[i] = words.getAndSet(i, 0);
+      }
+    }
+    return snapshot;
+  }
+
+  long getBaseAddress() {
+    return baseAddress;
+  }
+
+  static int pageShift() {
+    return PAGE_SHIFT;
+  }
+}
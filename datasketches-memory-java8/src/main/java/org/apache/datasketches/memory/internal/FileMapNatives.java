@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.internal;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+
+import sun.nio.ch.FileChannelImpl;
+
+/**
+ * Extracts the version-dependent native methods used to map files and to load, check and
+ * force mapped memory into a standalone class. These methods have moved between JDK internal
+ * classes in later versions. The appropriate class will be loaded by the class loader
+ * depending on the Java version that is used.
+ * For more information, see: https://openjdk.java.net/jeps/238
+ *
+ * <p>This version calls map0 and unmap0 of FileChannelImpl, and load0, isLoaded0 and force0 of
+ * MappedByteBuffer by reflection. See the native code:
+ * <a href="http://hg.openjdk.java.net/jdk8u/jdk8u/jdk/file/f940e7a48b72/src/solaris/native/sun/nio/ch/FileChannelImpl.c">
+ * FileChannelImpl.c</a>,
+ * <a href="http://hg.openjdk.java.net/jdk8u/jdk8u/jdk/file/f940e7a48b72/src/solaris/native/java/nio/MappedByteBuffer.c">
+ * MappedByteBuffer.c</a></p>
+ *
+ * @author Lee Rhodes
+ */
+@SuppressWarnings("restriction")
+final class FileMapNatives {
+  private static final Method FILE_CHANNEL_IMPL_MAP0_METHOD;
+  private static final Method FILE_CHANNEL_IMPL_UNMAP0_METHOD;
+  private static final Method MAPPED_BYTE_BUFFER_LOAD0_METHOD;
+  private static final Method MAPPED_BYTE_BUFFER_ISLOADED0_METHOD;
+  private static final Method MAPPED_BYTE_BUFFER_FORCE0_METHOD;
+
+  static {
+    try { //The FileChannelImpl methods map0 and unmap0 still exist in 16
+      FILE_CHANNEL_IMPL_MAP0_METHOD = FileChannelImpl.class
+          .getDeclaredMethod("map0", int.class, long.class, long.class); //JDK14 add boolean.class
+      FILE_CHANNEL_IMPL_MAP0_METHOD.setAccessible(true);
+
+      FILE_CHANNEL_IMPL_UNMAP0_METHOD = FileChannelImpl.class
+          .getDeclaredMethod("unmap0", long.class, long.class); //OK through jDK16
+      FILE_CHANNEL_IMPL_UNMAP0_METHOD.setAccessible(true);
+
+      //The MappedByteBuffer methods load0, isLoaded0 and force0 are removed in 15
+      MAPPED_BYTE_BUFFER_LOAD0_METHOD = MappedByteBuffer.class
+          .getDeclaredMethod("load0", long.class, long.class); //JDK15 removed
+      MAPPED_BYTE_BUFFER_LOAD0_METHOD.setAccessible(true);
+
+      MAPPED_BYTE_BUFFER_ISLOADED0_METHOD = MappedByteBuffer.class
+          .getDeclaredMethod("isLoaded0", long.class, long.class, int.class); //JDK15 removed
+      MAPPED_BYTE_BUFFER_ISLOADED0_METHOD.setAccessible(true);
+
+      MAPPED_BYTE_BUFFER_FORCE0_METHOD = MappedByteBuffer.class
+          .getDeclaredMethod("force0", FileDescriptor.class, long.class, long.class); //JDK15 removed
+      MAPPED_BYTE_BUFFER_FORCE0_METHOD.setAccessible(true);
+    } catch (final SecurityException | NoSuchMethodException e) {
+      throw new RuntimeException("Could not reflect static methods: " + e);
+    }
+  }
+
+  private FileMapNatives() { }
+
+  /**
+   * Maps the given range of the file.
+   * @param raf the file
+   * @param mapMode one of MAP_RO, MAP_RW or MAP_PV
+   * @param position the page aligned position in the file
+   * @param lengthBytes the length of the mapping
+   * @return the native base address of the mapping
+   * @throws IOException if the mapping failed
+   */
+  static long map0(final RandomAccessFile raf, final int mapMode, final long position,
+      final long lengthBytes) throws IOException {
+    return (long) invoke(FILE_CHANNEL_IMPL_MAP0_METHOD, raf.getChannel(), mapMode, position,
+        lengthBytes);
+  }
+
+  /**
+   * Removes the given range of a mapping.
+   * @param address the page aligned address
+   * @param lengthBytes the length of the range
+   */
+  static void unmap0(final long address, final long lengthBytes) {
+    invokeUnchecked(FILE_CHANNEL_IMPL_UNMAP0_METHOD, null, address, lengthBytes);
+  }
+
+  /**
+   * Advises the operating system that the given range will be needed soon.
+   * @param address the page aligned address
+   * @param lengthBytes the length of the range
+   */
+  static void load0(final long address, final long lengthBytes) {
+    //load0 is effectively static, so ZERO_READ_ONLY_DIRECT_BYTE_BUFFER is not modified
+    invokeUnchecked(MAPPED_BYTE_BUFFER_LOAD0_METHOD,
+        AccessByteBuffer.ZERO_READ_ONLY_DIRECT_BYTE_BUFFER, address, lengthBytes);
+  }
+
+  /**
+   * Returns true if all pages of the given range are resident in physical memory.
+   * @param address the page aligned address
+   * @param lengthBytes the length of the range
+   * @param pageCount the number of pages of the range
+   * @return true if all pages of the given range are resident
+   */
+  static boolean isLoaded0(final long address, final long lengthBytes, final long pageCount) {
+    //isLoaded0 is effectively static, so ZERO_READ_ONLY_DIRECT_BYTE_BUFFER is not modified
+    return (boolean) invokeUnchecked(MAPPED_BYTE_BUFFER_ISLOADED0_METHOD,
+        AccessByteBuffer.ZERO_READ_ONLY_DIRECT_BYTE_BUFFER, address, lengthBytes, (int) pageCount);
+  }
+
+  /**
+   * Writes the given range of a mapping back to the file.
+   * @param fd the file descriptor of the file
+   * @param address the page aligned address
+   * @param lengthBytes the length of the range
+   * @throws IOException if writing failed
+   */
+  static void force0(final FileDescriptor fd, final long address, final long lengthBytes)
+      throws IOException {
+    //force0 is effectively static, so ZERO_READ_ONLY_DIRECT_BYTE_BUFFER is not modified
+    invoke(MAPPED_BYTE_BUFFER_FORCE0_METHOD, AccessByteBuffer.ZERO_READ_ONLY_DIRECT_BYTE_BUFFER,
+        fd, address, lengthBytes);
+  }
+
+  private static Object invoke(final Method method, final Object obj, final Object... args)
+      throws IOException {
+    try {
+      return method.invoke(obj, args);
+    } catch (final InvocationTargetException e) {
+      final Throwable cause = e.getTargetException();
+      if (cause instanceof IOException) { throw (IOException) cause; }
+      throw new RuntimeException(cause);
+    } catch (final IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static Object invokeUnchecked(final Method method, final Object obj,
+      final Object... args) {
+    try {
+      return invoke(method, obj, args);
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+}
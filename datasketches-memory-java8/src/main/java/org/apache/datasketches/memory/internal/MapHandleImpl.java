@@ -19,6 +19,10 @@
 
 package org.apache.datasketches.memory.internal;
 
+import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 import org.apache.datasketches.memory.MapHandle;
 import org.apache.datasketches.memory.Memory;
 
@@ -49,9 +53,30 @@ class MapHandleImpl implements MapHandle {
     dirMap.load();
   }
 
+  @Override
+  public void load(final long offsetBytes, final long lengthBytes) {
+    dirMap.load(offsetBytes, lengthBytes);
+  }
+
+  @Override
+  public CompletableFuture<Void> loadAsync(final long offsetBytes, final long lengthBytes,
+      final Executor executor) {
+    return dirMap.loadAsync(offsetBytes, lengthBytes, executor);
+  }
+
   @Override
   public boolean isLoaded() {
     return dirMap.isLoaded();
   }
 
+  @Override
+  public BitSet getResidentPages(final long offsetBytes, final long lengthBytes) {
+    return dirMap.getResidentPages(offsetBytes, lengthBytes);
+  }
+
+  @Override
+  public long getResidentPageCount(final long offsetBytes, final long lengthBytes) {
+    return dirMap.getResidentPageCount(offsetBytes, lengthBytes);
+  }
+
 }
@@ -32,6 +32,7 @@ final class MapNonNativeWritableBufferImpl extends NonNativeWritableBufferImpl {
   private final long nativeBaseOffset; //used to compute cumBaseOffset
   private final StepBoolean valid; //a reference only
   private final byte typeId;
+  private DirtyPages dirtyPages = null; //set if dirty pages are tracked
 
   MapNonNativeWritableBufferImpl(
       final long nativeBaseOffset,
@@ -50,25 +51,25 @@ final class MapNonNativeWritableBufferImpl extends NonNativeWritableBufferImpl {
   BaseWritableBufferImpl toWritableRegion(final long offsetBytes, final long capacityBytes,
       final boolean readOnly, final ByteOrder byteOrder) {
     final int type = REGION | (readOnly ? READONLY : 0);
-    return Util.isNativeByteOrder(byteOrder)
+    return withDirtyPages(Util.isNativeByteOrder(byteOrder)
         ? new MapWritableBufferImpl(
             nativeBaseOffset, getRegionOffset(offsetBytes), capacityBytes,
             type, valid, originMemory)
         : new MapNonNativeWritableBufferImpl(
             nativeBaseOffset, getRegionOffset(offsetBytes), capacityBytes,
-            type, valid, originMemory);
+            type, valid, originMemory));
   }
 
   @Override
   BaseWritableBufferImpl toDuplicate(final boolean readOnly, final ByteOrder byteOrder) {
     final int type = DUPLICATE | (readOnly ? READONLY : 0);
-    return Util.isNativeByteOrder(byteOrder)
+    return withDirtyPages(Util.isNativeByteOrder(byteOrder)
         ? new MapWritableBufferImpl(
             nativeBaseOffset, getRegionOffset(), getCapacity(),
             type, valid, originMemory)
         : new MapNonNativeWritableBufferImpl(
             nativeBaseOffset, getRegionOffset(), getCapacity(),
-            type, valid, originMemory);
+            type, valid, originMemory));
   }
 
   @Override
@@ -93,4 +94,22 @@ final class MapNonNativeWritableBufferImpl extends NonNativeWritableBufferImpl {
     }
   }
   
+  @Override
+  void markDirty(final long offsetBytes, final long lengthBytes) {
+    final DirtyPages dp = dirtyPages;
+    if (dp != null) {
+      dp.mark(getCumulativeOffset(offsetBytes), lengthBytes);
+    }
+  }
+
+  @Override
+  DirtyPages getDirtyPages() {
+    return dirtyPages;
+  }
+
+  @Override
+  void setDirtyPages(final DirtyPages dirtyPages) {
+    this.dirtyPages = dirtyPages;
+  }
+  
 }
@@ -32,6 +32,7 @@ final class MapNonNativeWritableMemoryImpl extends NonNativeWritableMemoryImpl {
   private final long nativeBaseOffset; //used to compute cumBaseOffset
   private final StepBoolean valid; //a reference only
   private final byte typeId;
+  private DirtyPages dirtyPages = null; //set if dirty pages are tracked
 
   MapNonNativeWritableMemoryImpl(
       final long nativeBaseOffset,
@@ -49,25 +50,25 @@ final class MapNonNativeWritableMemoryImpl extends NonNativeWritableMemoryImpl {
   BaseWritableMemoryImpl toWritableRegion(final long offsetBytes, final long capacityBytes,
       final boolean readOnly, final ByteOrder byteOrder) {
     final int type = typeId | REGION | (readOnly ? READONLY : 0);
-    return Util.isNativeByteOrder(byteOrder)
+    return withDirtyPages(Util.isNativeByteOrder(byteOrder)
         ? new MapWritableMemoryImpl(
             nativeBaseOffset, getRegionOffset(offsetBytes), capacityBytes,
             type, valid)
         : new MapNonNativeWritableMemoryImpl(
             nativeBaseOffset, getRegionOffset(offsetBytes), capacityBytes,
-            type, valid);
+            type, valid));
   }
 
   @Override
   BaseWritableBufferImpl toWritableBuffer(final boolean readOnly, final ByteOrder byteOrder) {
     final int type = typeId | (readOnly ? READONLY : 0);
-    return Util.isNativeByteOrder(byteOrder)
+    return withDirtyPages(Util.isNativeByteOrder(byteOrder)
         ? new MapWritableBufferImpl(
             nativeBaseOffset, getRegionOffset(), getCapacity(),
             type, valid, this)
         : new MapNonNativeWritableBufferImpl(
             nativeBaseOffset, getRegionOffset(), getCapacity(),
-            type, valid, this);
+            type, valid, this));
   }
 
   @Override
@@ -92,4 +93,22 @@ final class MapNonNativeWritableMemoryImpl extends NonNativeWritableMemoryImpl {
     }
   }
   
+  @Override
+  void markDirty(final long offsetBytes, final long lengthBytes) {
+    final DirtyPages dp = dirtyPages;
+    if (dp != null) {
+      dp.mark(getCumulativeOffset(offsetBytes), lengthBytes);
+    }
+  }
+
+  @Override
+  DirtyPages getDirtyPages() {
+    return dirtyPages;
+  }
+
+  @Override
+  void setDirtyPages(final DirtyPages dirtyPages) {
+    this.dirtyPages = dirtyPages;
+  }
+  
 }
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.internal;
+
+import static org.apache.datasketches.memory.internal.Util.negativeCheck;
+import static org.apache.datasketches.memory.internal.Util.nullCheck;
+import static org.apache.datasketches.memory.internal.Util.zeroCheck;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.apache.datasketches.memory.MapHandle;
+import org.apache.datasketches.memory.MappedFileCache;
+
+/**
+ * Implementation of {@link MappedFileCache}. Each entry is a read-only AllocateDirectMap with
+ * its own cleaner. Each handle has its own validity flag, so closing a handle invalidates only
+ * its own Memory, and its own cleaner, which releases the reference if the handle becomes
+ * unreachable without having been closed.
+ *
+ * <p>A file is mapped outside the lock of the cache by the first thread that asks for it.
+ * Other threads asking for the same mapping meanwhile wait for it on the future of its entry,
+ * while requests for other mappings proceed.</p>
+ *
+ * @author Lee Rhodes
+ */
+public final class MappedFileCacheImpl implements MappedFileCache {
+  private final long capacityBytes;
+  //Guarded by this. In access order, so that eviction starts with the least recently used.
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long mappedBytes = 0;
+  private int referenceCount = 0;
+  private boolean closed = false;
+
+  /**
+   * Creates a new cache.
+   * @param capacityBytes the total size of all mappings above which unreferenced mappings are
+   * unmapped.
+   */
+  public MappedFileCacheImpl(final long capacityBytes) {
+    negativeCheck(capacityBytes, "capacityBytes");
+    this.capacityBytes = capacityBytes;
+  }
+
+  @Override
+  public MapHandle map(final File file) {
+    nullCheck(file, "file is null");
+    return map(file, 0, file.length(), ByteOrder.nativeOrder());
+  }
+
+  @Override
+  public MapHandle map(final File file, final long fileOffsetBytes, final long capacityBytes,
+      final ByteOrder byteOrder) {
+    zeroCheck(capacityBytes, "Capacity");
+    nullCheck(file, "file is null");
+    nullCheck(byteOrder, "byteOrder");
+    negativeCheck(fileOffsetBytes, "File offset is negative");
+    final Key key = new Key(canonicalPath(file), fileOffsetBytes, capacityBytes);
+    final Entry entry;
+    final boolean mapper;
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("MappedFileCache is closed.");
+      }
+      Entry e = entries.get(key);
+      mapper = (e == null);
+      if (mapper) {
+        e = new Entry(key);
+        entries.put(key, e);
+        mappedBytes += capacityBytes;
+      }
+      e.references++;
+      referenceCount++;
+      entry = e;
+    }
+    final AllocateDirectMap dirMap = mapper ? mapEntry(entry, file) : awaitEntry(entry);
+    final StepBoolean valid = new StepBoolean(true);
+    final BaseWritableMemoryImpl wmem = BaseWritableMemoryImpl.newMapLeaf(
+        dirMap.nativeBaseOffset, capacityBytes, BaseStateImpl.READONLY, valid, byteOrder);
+    return new CachedMapHandle(dirMap, wmem, valid, new Releaser(this, entry, valid));
+  }
+
+  //Maps the file of a new entry without holding the lock. If mapping fails, the entry is removed
+  //before the waiting threads are woken, so that later requests try again.
+  private AllocateDirectMap mapEntry(final Entry entry, final File file) {
+    final Key key = entry.key;
+    final AllocateDirectMap dirMap;
+    try {
+      dirMap = new AllocateDirectMap(file, key.fileOffsetBytes, key.capacityBytes,
+          key.capacityBytes, true, true);
+    } catch (final RuntimeException e) {
+      synchronized (this) {
+        entries.remove(key);
+        mappedBytes -= key.capacityBytes;
+        entry.references--;
+        referenceCount--;
+      }
+      entry.mapping.completeExceptionally(e);
+      throw e;
+    }
+    entry.mapping.complete(dirMap);
+    synchronized (this) {
+      evict();
+    }
+    return dirMap;
+  }
+
+  private AllocateDirectMap awaitEntry(final Entry entry) {
+    try {
+      return entry.mapping.join();
+    } catch (final CompletionException e) {
+      synchronized (this) {
+        entry.references--;
+        referenceCount--;
+      }
+      final Throwable cause = e.getCause();
+      throw (cause instanceof RuntimeException) ? (RuntimeException) cause
+          : new RuntimeException(cause);
+    }
+  }
+
+  @Override
+  public long getCapacity() {
+    return capacityBytes;
+  }
+
+  @Override
+  public synchronized long getMappedBytes() {
+    return mappedBytes;
+  }
+
+  @Override
+  public synchronized int getMappingCount() {
+    return entries.size();
+  }
+
+  @Override
+  public synchronized int getReferenceCount() {
+    return referenceCount;
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    evict();
+  }
+
+  synchronized void release(final Entry entry) {
+    entry.references--;
+    referenceCount--;
+    evict();
+  }
+
+  //Unmaps the least recently used mappings without references while over capacity, or all
+  //of them after the cache is closed. An entry being mapped always has a reference.
+  private void evict() {
+    final Iterator<Entry> it = entries.values().iterator();
+    while ((closed || mappedBytes > capacityBytes) && it.hasNext()) {
+      final Entry e = it.next();
+      if (e.references == 0) {
+        it.remove();
+        mappedBytes -= e.key.capacityBytes;
+        e.mapping.join().close();
+      }
+    }
+  }
+
+  private static String canonicalPath(final File file) {
+    try {
+      return file.getCanonicalPath();
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static final class Key {
+    final String path;
+    final long fileOffsetBytes;
+    final long capacityBytes;
+
+    Key(final String path, final long fileOffsetBytes, final long capacityBytes) {
+      this.path = path;
+      this.fileOffsetBytes = fileOffsetBytes;
+      this.capacityBytes = capacityBytes;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (!(obj instanceof Key)) { return false; }
+      final Key that = (Key) obj;
+      return path.equals(that.path) && fileOffsetBytes == that.fileOffsetBytes
+          && capacityBytes == that.capacityBytes;
+    }
+
+    @Override
+    public int hashCode() {
+      return (path.hashCode() * 31 + Long.hashCode(fileOffsetBytes)) * 31
+          + Long.hashCode(capacityBytes);
+    }
+  }
+
+  private static final class Entry {
+    final Key key;
+    final CompletableFuture<AllocateDirectMap> mapping = new CompletableFuture<>();
+    int references = 0; //guarded by the cache
+
+    Entry(final Key key) {
+      this.key = key;
+    }
+  }
+
+  //Invalidates the Memory of a handle and releases its reference, at most once
+  private static final class Releaser implements Runnable {
+    private final MappedFileCacheImpl cache;
+    private final Entry entry;
+    private final StepBoolean valid;
+
+    Releaser(final MappedFileCacheImpl cache, final Entry entry, final StepBoolean valid) {
+      this.cache = cache;
+      this.entry = entry;
+      this.valid = valid;
+    }
+
+    @Override
+    public void run() {
+      if (valid.change()) {
+        cache.release(entry);
+      }
+    }
+  }
+
+  //The mapping is shared, so every operation checks the validity flag of this handle first
+  private static final class CachedMapHandle extends MapHandleImpl {
+    private final StepBoolean valid;
+    private final MemoryCleaner cleaner;
+
+    CachedMapHandle(final AllocateDirectMap dirMap, final BaseWritableMemoryImpl wMem,
+        final StepBoolean valid, final Releaser releaser) {
+      super(dirMap, wMem);
+      this.valid = valid;
+      cleaner = new MemoryCleaner(this, releaser);
+    }
+
+    @Override
+    public void close() {
+      cleaner.clean(); //runs the releaser once, then deregisters it
+      wMem = null;
+    }
+
+    @Override
+    public void load() {
+      checkValid();
+      super.load();
+    }
+
+    @Override
+    public void load(final long offsetBytes, final long lengthBytes) {
+      checkValid();
+      super.load(offsetBytes, lengthBytes);
+    }
+
+    @Override
+    public CompletableFuture<Void> loadAsync(final long offsetBytes, final long lengthBytes,
+        final Executor executor) {
+      checkValid();
+      return super.loadAsync(offsetBytes, lengthBytes, executor);
+    }
+
+    @Override
+    public boolean isLoaded() {
+      checkValid();
+      return super.isLoaded();
+    }
+
+    @Override
+    public BitSet getResidentPages(final long offsetBytes, final long lengthBytes) {
+      checkValid();
+      return super.getResidentPages(offsetBytes, lengthBytes);
+    }
+
+    @Override
+    public long getResidentPageCount(final long offsetBytes, final long lengthBytes) {
+      checkValid();
+      return super.getResidentPageCount(offsetBytes, lengthBytes);
+    }
+
+    private void checkValid() {
+      if (!valid.get()) {
+        throw new IllegalStateException("MemoryImpl not valid.");
+      }
+    }
+  }
+
+}
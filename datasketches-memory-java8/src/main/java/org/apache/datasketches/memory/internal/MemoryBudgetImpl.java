@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.internal;
+
+import static org.apache.datasketches.memory.internal.Util.negativeCheck;
+import static org.apache.datasketches.memory.internal.Util.nullCheck;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.datasketches.memory.MemoryBudget;
+import org.apache.datasketches.memory.MemoryBudgetException;
+
+/**
+ * Implementation of {@link MemoryBudget}.
+ *
+ * <p>Reservations are lock-free: each budget from the leaf to the root is incremented with a
+ * compare-and-set that fails if its limit would be exceeded, in which case the budgets already
+ * incremented are rolled back. Peak usage is recorded only once every budget has accepted.
+ * Only threads that must wait, and releases while threads are waiting, synchronize on a monitor
+ * shared by the whole tree. Waiters are woken only by releases, never by rollbacks.</p>
+ *
+ * @author Lee Rhodes
+ */
+public final class MemoryBudgetImpl implements MemoryBudget {
+  private final String name;
+  private final MemoryBudgetImpl parent;
+  private final MemoryBudgetImpl root;
+  private final int depth; //the number of budgets from this one to the root, inclusive
+  private final long limit;
+  private final AtomicLong used_ = new AtomicLong();
+  private final AtomicLong peakUsed_ = new AtomicLong();
+  private final AtomicLong rejectedReservations_ = new AtomicLong();
+  private volatile int waiters = 0; //only used by the root, guarded by the root
+
+  private MemoryBudgetImpl(final String name, final MemoryBudgetImpl parent, final long limit) {
+    nullCheck(name, "name");
+    negativeCheck(limit, "limitBytes");
+    this.name = name;
+    this.parent = parent;
+    root = (parent == null) ? this : parent.root;
+    depth = (parent == null) ? 1 : parent.depth + 1;
+    this.limit = limit;
+  }
+
+  /**
+   * Creates a new root budget.
+   * @param name the name of the budget.
+   * @param limitBytes the maximum number of bytes that may be reserved.
+   * @return a new root budget
+   */
+  public static MemoryBudget newRoot(final String name, final long limitBytes) {
+    return new MemoryBudgetImpl(name, null, limitBytes);
+  }
+
+  @Override
+  public MemoryBudget newChild(final String name, final long limitBytes) {
+    return new MemoryBudgetImpl(name, this, limitBytes);
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public MemoryBudget getParent() {
+    return parent;
+  }
+
+  @Override
+  public long getLimit() {
+    return limit;
+  }
+
+  @Override
+  public long getUsed() {
+    return used_.get();
+  }
+
+  @Override
+  public long getPeakUsed() {
+    return peakUsed_.get();
+  }
+
+  @Override
+  public long getRejectedReservations() {
+    return rejectedReservations_.get();
+  }
+
+  @Override
+  public boolean tryReserve(final long bytes) {
+    negativeCheck(bytes, "bytes");
+    final MemoryBudgetImpl exhausted = reserveOrGetExhausted(bytes);
+    if (exhausted == null) { return true; }
+    exhausted.rejectedReservations_.incrementAndGet();
+    return false;
+  }
+
+  @Override
+  public void reserve(final long bytes, final long timeoutMillis) {
+    negativeCheck(bytes, "bytes");
+    negativeCheck(timeoutMillis, "timeoutMillis");
+    MemoryBudgetImpl exhausted = reserveOrGetExhausted(bytes);
+    if (exhausted == null) { return; }
+    if (timeoutMillis > 0) {
+      final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+      synchronized (root) {
+        root.waiters++;
+        try {
+          while (true) {
+            exhausted = reserveOrGetExhausted(bytes);
+            if (exhausted == null) { return; }
+            final long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) { break; }
+            root.wait(TimeUnit.NANOSECONDS.toMillis(remainingNanos) + 1);
+          }
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          root.waiters--;
+        }
+      }
+    }
+    exhausted.rejectedReservations_.incrementAndGet();
+    throw new MemoryBudgetException(exhausted.name, bytes, exhausted.limit - exhausted.used_.get());
+  }
+
+  @Override
+  public void release(final long bytes) {
+    negativeCheck(bytes, "bytes");
+    for (MemoryBudgetImpl node = this; node != null; node = node.parent) {
+      node.used_.addAndGet(-bytes);
+    }
+    signalWaiters();
+  }
+
+  @Override
+  public String toString() {
+    return "MemoryBudget " + name + ": used " + used_.get() + " of " + limit + " bytes";
+  }
+
+  /**
+   * Reserves bytes from this budget and all of its ancestors. A failed attempt neither counts a
+   * rejection nor wakes waiters; the callers count one rejection per call.
+   * @return null if successful, otherwise the first budget that could not satisfy the request.
+   */
+  private MemoryBudgetImpl reserveOrGetExhausted(final long bytes) {
+    final long[] usedAfter = new long[depth];
+    int i = 0;
+    for (MemoryBudgetImpl node = this; node != null; node = node.parent) {
+      final long next = node.tryAdd(bytes);
+      if (next < 0) {
+        for (MemoryBudgetImpl n = this; n != node; n = n.parent) { //roll back
+          n.used_.addAndGet(-bytes);
+        }
+        return node;
+      }
+      usedAfter[i++] = next;
+    }
+    i = 0;
+    for (MemoryBudgetImpl node = this; node != null; node = node.parent) {
+      node.updatePeak(usedAfter[i++]);
+    }
+    return null;
+  }
+
+  private void signalWaiters() {
+    if (root.waiters > 0) {
+      synchronized (root) {
+        root.notifyAll();
+      }
+    }
+  }
+
+  //returns the used bytes after adding, or -1 if the limit would be exceeded
+  private long tryAdd(final long bytes) {
+    long cur;
+    long next;
+    do {
+      cur = used_.get();
+      next = cur + bytes;
+      if (next > limit) { return -1; }
+    } while (!used_.compareAndSet(cur, next));
+    return next;
+  }
+
+  private void updatePeak(final long usedBytes) {
+    long peak;
+    while (usedBytes > (peak = peakUsed_.get())) {
+      if (peakUsed_.compareAndSet(peak, usedBytes)) { break; }
+    }
+  }
+
+}
@@ -217,6 +217,10 @@ public abstract class MemoryImpl extends BaseStateImpl implements Memory {
   public abstract void copyTo(long srcOffsetBytes, WritableMemory destination, long dstOffsetBytes,
       long lengthBytes);
 
+  @Override
+  public abstract void copyToParallel(long srcOffsetBytes, WritableMemory destination,
+      long dstOffsetBytes, long lengthBytes);
+
 
   @Override
   public abstract void writeTo(long offsetBytes, long lengthBytes, WritableByteChannel out)
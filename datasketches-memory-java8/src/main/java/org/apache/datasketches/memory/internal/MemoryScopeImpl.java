@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.internal;
+
+import static org.apache.datasketches.memory.internal.Util.negativeCheck;
+import static org.apache.datasketches.memory.internal.Util.nullCheck;
+import static org.apache.datasketches.memory.internal.Util.powerOf2Check;
+import static org.apache.datasketches.memory.internal.Util.zeroCheck;
+
+import java.io.File;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.logging.Logger;
+
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.MemoryCloseException;
+import org.apache.datasketches.memory.MemoryScope;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * Implementation of {@link MemoryScope}. Allocations and maps are created without a cleaner and
+ * all views share the validity flag of the scope. Closing the scope flips that flag once and
+ * then frees each resource without any further state changes.
+ *
+ * @author Lee Rhodes
+ */
+public final class MemoryScopeImpl implements MemoryScope {
+  static final Logger LOG = Logger.getLogger(MemoryScopeImpl.class.getCanonicalName());
+
+  private final Thread owner; //null if shared
+  private final Resources resources;
+  private final MemoryCleaner cleaner;
+
+  private MemoryScopeImpl(final boolean confined) {
+    owner = confined ? Thread.currentThread() : null;
+    resources = new Resources();
+    cleaner = new MemoryCleaner(this, resources);
+  }
+
+  /**
+   * Creates a new MemoryScope.
+   * @param confined if true, the scope is confined to the calling thread.
+   * @return a new MemoryScope
+   */
+  public static MemoryScope create(final boolean confined) {
+    return new MemoryScopeImpl(confined);
+  }
+
+  @Override
+  public WritableMemory allocateDirect(final long capacityBytes) {
+    return allocateDirect(capacityBytes, AllocateDirect.NATIVE_ALIGNMENT, Util.nativeByteOrder);
+  }
+
+  @Override
+  public WritableMemory allocateDirect(final long capacityBytes, final long alignment,
+      final ByteOrder byteOrder) {
+    zeroCheck(capacityBytes, "capacityBytes");
+    powerOf2Check(alignment, "alignment");
+    nullCheck(byteOrder, "byteOrder");
+    checkOwnerAndValid();
+    final AllocateDirect direct = new AllocateDirect(capacityBytes, alignment, false);
+    try {
+      resources.add(direct);
+    } catch (final IllegalStateException e) {
+      direct.free();
+      throw e;
+    }
+    return BaseWritableMemoryImpl.newDirectLeaf(direct.getNativeBaseOffset(), capacityBytes,
+        resources.valid, byteOrder, null);
+  }
+
+  @Override
+  public Memory map(final File file, final long fileOffsetBytes, final long capacityBytes,
+      final ByteOrder byteOrder) {
+    return doMap(file, fileOffsetBytes, capacityBytes, true, byteOrder);
+  }
+
+  @Override
+  public WritableMemory writableMap(final File file, final long fileOffsetBytes,
+      final long capacityBytes, final ByteOrder byteOrder) {
+    return doMap(file, fileOffsetBytes, capacityBytes, false, byteOrder);
+  }
+
+  private WritableMemory doMap(final File file, final long fileOffsetBytes,
+      final long capacityBytes, final boolean localReadOnly, final ByteOrder byteOrder) {
+    zeroCheck(capacityBytes, "Capacity");
+    nullCheck(file, "file is null");
+    negativeCheck(fileOffsetBytes, "File offset is negative");
+    nullCheck(byteOrder, "byteOrder");
+    checkOwnerAndValid();
+    final AllocateDirectWritableMap dirWMap =
+        new AllocateDirectWritableMap(file, fileOffsetBytes, capacityBytes, capacityBytes,
+            localReadOnly, false);
+    if (dirWMap.resourceReadOnly && !localReadOnly) {
+      dirWMap.free();
+      throw new ReadOnlyException("File is Read Only");
+    }
+    try {
+      resources.add(dirWMap);
+    } catch (final IllegalStateException e) {
+      dirWMap.free();
+      throw e;
+    }
+    final int typeId = (dirWMap.resourceReadOnly || localReadOnly) ? BaseStateImpl.READONLY : 0;
+    return BaseWritableMemoryImpl.newMapLeaf(dirWMap.nativeBaseOffset, capacityBytes, typeId,
+        resources.valid, byteOrder);
+  }
+
+  @Override
+  public boolean isConfined() {
+    return owner != null;
+  }
+
+  @Override
+  public int getResourceCount() {
+    return resources.size();
+  }
+
+  @Override
+  public boolean isValid() {
+    return resources.valid.get();
+  }
+
+  @Override
+  public void close() {
+    checkOwner();
+    try {
+      if (resources.close(false)) {
+        // Removes the cleaner from the internal list of all cleaners. The delegated close is a
+        // no-op because the valid state is already changed.
+        cleaner.clean();
+      }
+    } finally {
+      BaseStateImpl.reachabilityFence(this);
+    }
+  }
+
+  private void checkOwner() {
+    if ((owner != null) && (owner != Thread.currentThread())) {
+      throw new IllegalStateException("MemoryScope accessed by a non-owner thread.");
+    }
+  }
+
+  private void checkOwnerAndValid() {
+    checkOwner();
+    if (!resources.valid.get()) {
+      throw new IllegalStateException("MemoryScope not valid.");
+    }
+  }
+
+  //Must not reference the MemoryScopeImpl, otherwise it would never become phantom reachable
+  private static final class Resources implements Runnable {
+    private final StepBoolean valid = new StepBoolean(true); //shared by all views of the scope
+    private final ArrayList<AllocateDirect> directs = new ArrayList<>();
+    private final ArrayList<AllocateDirectMap> maps = new ArrayList<>();
+
+    synchronized void add(final AllocateDirect direct) {
+      checkValid();
+      directs.add(direct);
+    }
+
+    synchronized void add(final AllocateDirectMap map) {
+      checkValid();
+      maps.add(map);
+    }
+
+    synchronized int size() {
+      return directs.size() + maps.size();
+    }
+
+    private void checkValid() {
+      if (!valid.get()) {
+        throw new IllegalStateException("MemoryScope not valid.");
+      }
+    }
+
+    @Override
+    public void run() {
+      close(true);
+    }
+
+    synchronized boolean close(final boolean calledFromCleaner) {
+      if (!valid.change()) {
+        return false;
+      }
+      if (calledFromCleaner) {
+        // Warn about non-deterministic resource cleanup.
+        LOG.warning("A MemoryScope was not closed manually");
+      }
+      RuntimeException first = null;
+      for (final AllocateDirect direct : directs) {
+        direct.free();
+      }
+      for (final AllocateDirectMap map : maps) {
+        try {
+          map.free();
+        } catch (final RuntimeException e) {
+          if (first == null) { first = e; } else { first.addSuppressed(e); }
+        }
+      }
+      directs.clear();
+      maps.clear();
+      if (first != null) {
+        final MemoryCloseException e = new MemoryCloseException("MemoryScope");
+        e.initCause(first);
+        throw e;
+      }
+      return true;
+    }
+  }
+
+}
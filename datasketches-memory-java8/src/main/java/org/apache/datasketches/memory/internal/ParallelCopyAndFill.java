@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.internal;
+
+import static org.apache.datasketches.memory.internal.UnsafeUtil.checkBounds;
+import static org.apache.datasketches.memory.internal.UnsafeUtil.unsafe;
+import static org.apache.datasketches.memory.internal.Util.UNSAFE_COPY_THRESHOLD_BYTES;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Copies and fills large regions using the threads of the common ForkJoinPool.
+ * The region is split into chunks that start on page boundaries of the destination, so that no
+ * two threads write to the same page. Regions smaller than {@link #PARALLEL_THRESHOLD_BYTES}
+ * are processed sequentially.
+ *
+ * @author Lee Rhodes
+ */
+@SuppressWarnings("restriction")
+final class ParallelCopyAndFill {
+  static final long PARALLEL_THRESHOLD_BYTES = 16L * UNSAFE_COPY_THRESHOLD_BYTES;
+  private static final int PAGE_SIZE = unsafe.pageSize();
+
+  private ParallelCopyAndFill() { }
+
+  static void copy(final BaseStateImpl srcState, final long srcOffsetBytes,
+      final BaseStateImpl dstState, final long dstOffsetBytes, final long lengthBytes) {
+    srcState.checkValid();
+    checkBounds(srcOffsetBytes, lengthBytes, srcState.getCapacity());
+    dstState.checkValid();
+    checkBounds(dstOffsetBytes, lengthBytes, dstState.getCapacity());
+    final Object srcObj = srcState.getUnsafeObject();
+    final Object dstObj = dstState.getUnsafeObject();
+    final long srcAdd = srcState.getCumulativeOffset(srcOffsetBytes);
+    final long dstAdd = dstState.getCumulativeOffset(dstOffsetBytes);
+    final boolean overlapping = (srcObj == dstObj)
+        && ((srcAdd + lengthBytes) > dstAdd) && ((dstAdd + lengthBytes) > srcAdd);
+    if (overlapping || !isParallel(lengthBytes)) {
+      //overlapping regions must be copied in order
+      CompareAndCopy.copy(srcState, srcOffsetBytes, dstState, dstOffsetBytes, lengthBytes);
+      return;
+    }
+    dstState.markDirty(dstOffsetBytes, lengthBytes);
+    forEachChunk(dstAdd, lengthBytes, (off, len) ->
+      CompareAndCopy.copyNonOverlappingMemoryWithChunking(srcObj, srcAdd + off, dstObj,
+          dstAdd + off, len));
+  }
+
+  static void fill(final BaseWritableMemoryImpl state, final long offsetBytes, final long lengthBytes,
+      final byte value) {
+    if (!isParallel(lengthBytes)) {
+      state.fill(offsetBytes, lengthBytes, value);
+      return;
+    }
+    state.checkValidAndBoundsForWrite(offsetBytes, lengthBytes);
+    final Object obj = state.getUnsafeObject();
+    final long add = state.getCumulativeOffset(offsetBytes);
+    forEachChunk(add, lengthBytes, (off, len) -> {
+      long pos = off;
+      final long end = off + len;
+      while (pos < end) {
+        final long chunk = Math.min(end - pos, UNSAFE_COPY_THRESHOLD_BYTES);
+        unsafe.setMemory(obj, add + pos, chunk, value);
+        pos += chunk;
+      }
+    });
+  }
+
+  private static boolean isParallel(final long lengthBytes) {
+    return (lengthBytes >= PARALLEL_THRESHOLD_BYTES)
+        && (ForkJoinPool.getCommonPoolParallelism() > 1);
+  }
+
+  /**
+   * Splits the range into one chunk per thread, plus one, with the chunk boundaries on
+   * page boundaries of the destination, and waits until all chunks have been processed.
+   * @param dstAdd the cumulative destination offset, which determines the page boundaries
+   * @param lengthBytes the length of the range in bytes
+   * @param action the action, given the offset and length of a chunk relative to the range
+   */
+  private static void forEachChunk(final long dstAdd, final long lengthBytes,
+      final ChunkAction action) {
+    final int parts = ForkJoinPool.getCommonPoolParallelism() + 1;
+    final long pages = ((lengthBytes / parts) + PAGE_SIZE - 1) / PAGE_SIZE;
+    final long chunkBytes = Math.max(pages, 1) * PAGE_SIZE;
+    final CompletableFuture<?>[] futures = new CompletableFuture<?>[parts + 1];
+    int n = 0;
+    //the first chunk ends on the first page boundary after a full chunk
+    long off = 0;
+    long end = chunkBytes - (dstAdd % PAGE_SIZE);
+    while (off < lengthBytes) {
+      final long chunkOff = off;
+      final long chunkLen = Math.min(end, lengthBytes) - off;
+      futures[n++] = CompletableFuture.runAsync(() -> action.apply(chunkOff, chunkLen));
+      off += chunkLen;
+      end += chunkBytes;
+    }
+    try {
+      CompletableFuture.allOf(Arrays.copyOf(futures, n)).join();
+    } catch (final CompletionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) { throw (RuntimeException) cause; }
+      throw e;
+    }
+  }
+
+  @FunctionalInterface
+  private interface ChunkAction {
+    void apply(long offsetBytes, long lengthBytes);
+  }
+}
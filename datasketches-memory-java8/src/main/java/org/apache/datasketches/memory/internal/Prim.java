@@ -85,4 +85,22 @@ public enum Prim {
     return sizeShift_;
   }
 
+  /**
+   * Returns the Prim of the given primitive type.
+   * @param primitiveType the primitive type, for example int.class
+   * @return the Prim of the given primitive type.
+   * @throws IllegalArgumentException if the given type is not a primitive type.
+   */
+  public static Prim of(final Class<?> primitiveType) {
+    if (primitiveType == boolean.class) { return BOOLEAN; }
+    if (primitiveType == byte.class) { return BYTE; }
+    if (primitiveType == char.class) { return CHAR; }
+    if (primitiveType == short.class) { return SHORT; }
+    if (primitiveType == int.class) { return INT; }
+    if (primitiveType == long.class) { return LONG; }
+    if (primitiveType == float.class) { return FLOAT; }
+    if (primitiveType == double.class) { return DOUBLE; }
+    throw new IllegalArgumentException("Not a primitive type: " + primitiveType);
+  }
+
 }
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.internal;
+
+import static org.apache.datasketches.memory.internal.UnsafeUtil.unsafe;
+import static org.apache.datasketches.memory.internal.Util.negativeCheck;
+import static org.apache.datasketches.memory.internal.Util.powerOf2Check;
+
+import java.util.Arrays;
+
+import org.apache.datasketches.memory.ScratchMemory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * Implementation of {@link ScratchMemory}. Each frame has its own validity flag, so releasing a
+ * mark invalidates exactly the regions of the released frames. Frame 0 is never released and
+ * lasts for the lifetime of the thread. A mark holds the frame index in its low 32 bits and the
+ * sequence number of the frame in its high bits, so that a stale mark is rejected rather than
+ * releasing a newer frame at the same index.
+ *
+ * <p>The native block is reserved against the direct memory limit, but as it lives as long as
+ * its thread it is not included in the current direct memory allocation counters.</p>
+ *
+ * @author Lee Rhodes
+ */
+public final class ScratchMemoryImpl implements ScratchMemory {
+  private static final ThreadLocal<ScratchMemoryImpl> CURRENT =
+      ThreadLocal.withInitial(ScratchMemoryImpl::new);
+  private static final long blockCapacity = initialCapacity();
+
+  private final Thread owner;
+  private Block block; //created on first use
+  @SuppressWarnings("unused")
+  private MemoryCleaner cleaner;
+  private long nativeBaseOffset;
+  private long position = 0;
+  private int depth = 0; //index of the current frame
+  private long[] framePositions = new long[8];
+  private long[] frameSequences = new long[8];
+  private long sequence = 0; //of the last frame pushed
+
+  private ScratchMemoryImpl() {
+    owner = Thread.currentThread();
+  }
+
+  /**
+   * Gets the ScratchMemory of the calling thread.
+   * @return the ScratchMemory of the calling thread.
+   */
+  public static ScratchMemory current() {
+    return CURRENT.get();
+  }
+
+  @Override
+  public long mark() {
+    checkOwner();
+    final Block b = block();
+    if (++depth == framePositions.length) {
+      framePositions = Arrays.copyOf(framePositions, depth * 2);
+      frameSequences = Arrays.copyOf(frameSequences, depth * 2);
+    }
+    framePositions[depth] = position;
+    sequence = (sequence + 1) & 0X7FFF_FFFFL; //keeps marks positive
+    frameSequences[depth] = sequence;
+    b.push(depth);
+    return (sequence << 32) | depth;
+  }
+
+  @Override
+  public WritableMemory allocate(final long capacityBytes) {
+    return allocate(capacityBytes, AllocateDirect.NATIVE_ALIGNMENT);
+  }
+
+  @Override
+  public WritableMemory allocate(final long capacityBytes, final long alignment) {
+    negativeCheck(capacityBytes, "capacityBytes");
+    powerOf2Check(alignment, "alignment");
+    checkOwner();
+    final Block b = block();
+    final long offset = Util.alignUp(nativeBaseOffset + position, alignment) - nativeBaseOffset;
+    if ((offset > blockCapacity) || (capacityBytes > (blockCapacity - offset))) {
+      return WritableMemory.allocate(Math.toIntExact(capacityBytes));
+    }
+    position = offset + capacityBytes;
+    return new DirectWritableMemoryImpl(nativeBaseOffset, offset, capacityBytes,
+        BaseStateImpl.REGION, b.frames[depth], null);
+  }
+
+  @Override
+  public void release(final long mark) {
+    checkOwner();
+    final long index = mark & 0XFFFF_FFFFL;
+    if ((index < 1) || (index > depth) || (frameSequences[(int) index] != (mark >>> 32))) {
+      throw new IllegalStateException("Mark has already been released: " + mark);
+    }
+    final int m = (int) index;
+    position = framePositions[m];
+    block.pop(m, depth);
+    depth = m - 1;
+  }
+
+  @Override
+  public long getCapacity() {
+    return blockCapacity;
+  }
+
+  @Override
+  public long getUsedBytes() {
+    return position;
+  }
+
+  private Block block() {
+    if (block == null) {
+      block = new Block(blockCapacity);
+      nativeBaseOffset = block.nativeAddress;
+      cleaner = new MemoryCleaner(this, block); //frees the block once this thread is gone
+    }
+    return block;
+  }
+
+  private void checkOwner() {
+    if (owner != Thread.currentThread()) {
+      throw new IllegalStateException("ScratchMemory accessed by a non-owner thread.");
+    }
+  }
+
+  private static long initialCapacity() {
+    final long cap = Long.getLong(CAPACITY_PROPERTY, DEFAULT_CAPACITY);
+    return (cap > 0) ? cap : DEFAULT_CAPACITY;
+  }
+
+  //Must not reference the ScratchMemoryImpl, otherwise it would never become phantom reachable
+  private static final class Block implements Runnable {
+    private final long nativeAddress;
+    private final long capacity;
+    private StepBoolean[] frames = new StepBoolean[8];
+
+    Block(final long capacity) {
+      DirectMemoryAccounting.reserveMemory(capacity, capacity);
+      try {
+        nativeAddress = unsafe.allocateMemory(capacity);
+      } catch (final OutOfMemoryError err) {
+        DirectMemoryAccounting.unreserveMemory(capacity, capacity);
+        throw new RuntimeException(err);
+      }
+      this.capacity = capacity;
+      frames[0] = new StepBoolean(true);
+    }
+
+    void push(final int depth) {
+      if (depth == frames.length) {
+        frames = Arrays.copyOf(frames, depth * 2);
+      }
+      frames[depth] = new StepBoolean(true);
+    }
+
+    void pop(final int mark, final int depth) {
+      for (int i = depth; i >= mark; i--) {
+        frames[i].change();
+        frames[i] = null;
+      }
+    }
+
+    //Called by the cleaner only, after the owning thread can no longer allocate
+    @Override
+    public void run() {
+      for (final StepBoolean frame : frames) {
+        if (frame != null) { frame.change(); }
+      }
+      unsafe.freeMemory(nativeAddress);
+      DirectMemoryAccounting.unreserveMemory(capacity, capacity);
+    }
+  }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.internal;
+
+import static org.apache.datasketches.memory.internal.Util.nullCheck;
+import static org.apache.datasketches.memory.internal.Util.zeroCheck;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.datasketches.memory.MapHandle;
+import org.apache.datasketches.memory.SharedMemory;
+import org.apache.datasketches.memory.WritableMapHandle;
+
+/**
+ * Implementation of {@link SharedMemory}. Segments are mapped shared through
+ * AllocateDirectMap, like any other file.
+ *
+ * @author Lee Rhodes
+ */
+public final class SharedMemoryImpl {
+  private static final String DEV_SHM = "/dev/shm";
+
+  private SharedMemoryImpl() { }
+
+  /**
+   * Creates and sizes the segment under a temporary name in the same directory, then publishes
+   * it under its name with a hard link, which fails atomically if the name exists. Other
+   * processes therefore never see the segment before it has its full size. If the file system
+   * does not support hard links, the segment is moved atomically instead, after checking that
+   * the name does not exist.
+   */
+  public static WritableMapHandle create(final String name, final long capacityBytes,
+      final ByteOrder byteOrder) {
+    zeroCheck(capacityBytes, "Capacity");
+    final Path target = getFile(name).toPath();
+    if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+      throw alreadyExists(name);
+    }
+    final Path temp;
+    try {
+      temp = Files.createTempFile(target.getParent(), "." + name + ".", ".tmp");
+    } catch (final IOException e) {
+      throw new RuntimeException("Exception while creating shared memory segment " + name, e);
+    }
+    WritableMapHandle handle = null;
+    try {
+      handle = WritableMemoryImpl.writableMap(temp.toFile(), 0, capacityBytes, byteOrder);
+      publish(temp, target, name);
+      return handle;
+    } catch (final RuntimeException e) {
+      if (handle != null) {
+        try {
+          handle.close();
+        } catch (final Exception e2) {
+          e.addSuppressed(e2);
+        }
+      }
+      throw e;
+    } finally {
+      try {
+        Files.deleteIfExists(temp);
+      } catch (final IOException e) {
+        throw new RuntimeException("Could not delete " + temp, e);
+      }
+    }
+  }
+
+  private static void publish(final Path temp, final Path target, final String name) {
+    try {
+      Files.createLink(target, temp);
+    } catch (final FileAlreadyExistsException e) {
+      throw alreadyExists(name);
+    } catch (final UnsupportedOperationException | IOException e) {
+      try {
+        if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+          throw alreadyExists(name);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+      } catch (final IOException e2) {
+        e2.addSuppressed(e);
+        throw new RuntimeException("Exception while creating shared memory segment " + name, e2);
+      }
+    }
+  }
+
+  private static IllegalArgumentException alreadyExists(final String name) {
+    return new IllegalArgumentException("Shared memory segment already exists: " + name);
+  }
+
+  public static WritableMapHandle open(final String name, final ByteOrder byteOrder) {
+    final File file = existingFile(name);
+    return WritableMemoryImpl.writableMap(file, 0, file.length(), byteOrder);
+  }
+
+  public static MapHandle openReadOnly(final String name, final ByteOrder byteOrder) {
+    final File file = existingFile(name);
+    return MemoryImpl.map(file, 0, file.length(), byteOrder);
+  }
+
+  public static boolean unlink(final String name) {
+    return getFile(name).delete();
+  }
+
+  public static File getFile(final String name) {
+    nullCheck(name, "name");
+    if (name.isEmpty() || name.equals(".") || name.equals("..")
+        || name.indexOf('/') >= 0 || name.indexOf(File.separatorChar) >= 0) {
+      throw new IllegalArgumentException("Invalid shared memory segment name: " + name);
+    }
+    return new File(directory(), name);
+  }
+
+  private static File existingFile(final String name) {
+    final File file = getFile(name);
+    if (!file.isFile()) {
+      throw new IllegalArgumentException("No shared memory segment named " + name);
+    }
+    return file;
+  }
+
+  private static File directory() {
+    final String dir = System.getProperty(SharedMemory.DIRECTORY_PROPERTY);
+    if (dir != null) { return new File(dir); }
+    final File devShm = new File(DEV_SHM);
+    return devShm.isDirectory() ? devShm : new File(System.getProperty("java.io.tmpdir"));
+  }
+
+}
@@ -202,6 +202,25 @@ public final class Util {
     return (value & bitMask) != 0;
   }
 
+  /**
+   * Return true if the given value is a positive power of 2
+   * @param value the value to be tested
+   * @return true if the given value is a positive power of 2
+   */
+  public static final boolean isPowerOf2(final long value) {
+    return (value > 0) && ((value & (value - 1L)) == 0);
+  }
+
+  /**
+   * Rounds the given value up to the next multiple of the given alignment
+   * @param value the value to be rounded up. It must not be negative.
+   * @param alignment the alignment. It must be a positive power of 2.
+   * @return the smallest multiple of alignment that is greater than or equal to value
+   */
+  public static final long alignUp(final long value, final long alignment) {
+    return (value + alignment - 1L) & -alignment;
+  }
+
   /**
    * Creates random valid Character Code Points (as integers). By definition, valid CodePoints
    * are integers in the range 0 to Character.MAX_CODE_POINT, and exclude the surrogate values.
@@ -299,6 +318,12 @@ public final class Util {
     }
   }
 
+  public static final void powerOf2Check(final long value, final String arg) {
+    if (!isPowerOf2(value)) {
+      throw new IllegalArgumentException("The argument " + arg + " must be a positive power of 2.");
+    }
+  }
+
   public static final void nullCheck(final Object obj, final String arg) {
     if (obj == null) {
       throw new IllegalArgumentException("The argument " + arg + " may not be null.");
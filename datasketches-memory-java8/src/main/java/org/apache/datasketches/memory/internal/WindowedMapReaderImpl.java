@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.internal;
+
+import static org.apache.datasketches.memory.internal.UnsafeUtil.ARRAY_BYTE_BASE_OFFSET;
+import static org.apache.datasketches.memory.internal.UnsafeUtil.checkBounds;
+import static org.apache.datasketches.memory.internal.UnsafeUtil.unsafe;
+
+import java.io.File;
+import java.nio.ByteOrder;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executor;
+
+import org.apache.datasketches.memory.WindowedMapReader;
+
+/**
+ * Implementation of {@link WindowedMapReader}. Each window is a read-only AllocateDirectMap
+ * with its own cleaner, so the windows of a reader that is not closed are unmapped by the
+ * garbage collector. The windows are kept in access order, and the current window is always
+ * the most recently used one, or the one before a prefetched window, so it is never evicted
+ * while it is being read.
+ *
+ * @author Lee Rhodes
+ */
+public final class WindowedMapReaderImpl implements WindowedMapReader {
+  private final File file;
+  private final long capacityBytes;
+  private final long windowBytes;
+  private final int maxWindows;
+  private final ByteOrder byteOrder;
+  private final boolean nativeOrder;
+  private final Executor prefetchExecutor; //null if there is no prefetching
+  private final LinkedHashMap<Long, AllocateDirectMap> windows;
+  private final byte[] straddle = new byte[Long.BYTES]; //for values that straddle two windows
+  private long position = 0;
+  private long windowStart = 0; //the current window, initially empty
+  private long windowEnd = 0;
+  private long windowAddress = 0;
+  private boolean valid = true;
+
+  /**
+   * Maps the given file for sequential reads in windows.
+   * @param file the given file to map. It must be non-empty.
+   * @param windowBytes the size of each window in bytes.
+   * @param maxWindows the maximum number of windows mapped at any time.
+   * @param byteOrder the byte order of the primitive values in the file.
+   * @param prefetchExecutor the executor that loads the next window, or null.
+   */
+  public WindowedMapReaderImpl(final File file, final long windowBytes, final int maxWindows,
+      final ByteOrder byteOrder, final Executor prefetchExecutor) {
+    Util.nullCheck(file, "file");
+    Util.nullCheck(byteOrder, "byteOrder");
+    if (windowBytes <= 0) {
+      throw new IllegalArgumentException("windowBytes must be > 0: " + windowBytes);
+    }
+    final int minWindows = prefetchExecutor == null ? 1 : 2;
+    if (maxWindows < minWindows) {
+      throw new IllegalArgumentException("maxWindows must be >= " + minWindows + ": " + maxWindows);
+    }
+    capacityBytes = file.length();
+    if (capacityBytes == 0) {
+      throw new IllegalArgumentException("The file is empty or does not exist: " + file);
+    }
+    this.file = file;
+    this.windowBytes = AllocateDirectMap.pageCount(windowBytes) * AllocateDirectMap.PAGE_SIZE;
+    this.maxWindows = maxWindows;
+    this.byteOrder = byteOrder;
+    nativeOrder = byteOrder == Util.nativeByteOrder;
+    this.prefetchExecutor = prefetchExecutor;
+    windows = new LinkedHashMap<Long, AllocateDirectMap>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final java.util.Map.Entry<Long, AllocateDirectMap> e) {
+        if (size() > WindowedMapReaderImpl.this.maxWindows) {
+          e.getValue().close();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  @Override
+  public long getCapacity() {
+    return capacityBytes;
+  }
+
+  @Override
+  public long getWindowBytes() {
+    return windowBytes;
+  }
+
+  @Override
+  public int getMappedWindowCount() {
+    return windows.size();
+  }
+
+  @Override
+  public ByteOrder getTypeByteOrder() {
+    return byteOrder;
+  }
+
+  @Override
+  public long getPosition() {
+    return position;
+  }
+
+  @Override
+  public void setPosition(final long position) {
+    checkValid();
+    checkBounds(position, 0, capacityBytes);
+    this.position = position;
+  }
+
+  @Override
+  public long getRemaining() {
+    return capacityBytes - position;
+  }
+
+  @Override
+  public boolean hasRemaining() {
+    return position < capacityBytes;
+  }
+
+  @Override
+  public byte getByte() {
+    return unsafe.getByte(address(Byte.BYTES));
+  }
+
+  @Override
+  public short getShort() {
+    final long address = address(Short.BYTES);
+    final short v = address != 0 ? unsafe.getShort(address)
+        : unsafe.getShort(straddle(Short.BYTES), ARRAY_BYTE_BASE_OFFSET);
+    return nativeOrder ? v : Short.reverseBytes(v);
+  }
+
+  @Override
+  public char getChar() {
+    return (char) getShort();
+  }
+
+  @Override
+  public int getInt() {
+    final long address = address(Integer.BYTES);
+    final int v = address != 0 ? unsafe.getInt(address)
+        : unsafe.getInt(straddle(Integer.BYTES), ARRAY_BYTE_BASE_OFFSET);
+    return nativeOrder ? v : Integer.reverseBytes(v);
+  }
+
+  @Override
+  public long getLong() {
+    final long address = address(Long.BYTES);
+    final long v = address != 0 ? unsafe.getLong(address)
+        : unsafe.getLong(straddle(Long.BYTES), ARRAY_BYTE_BASE_OFFSET);
+    return nativeOrder ? v : Long.reverseBytes(v);
+  }
+
+  @Override
+  public float getFloat() {
+    return Float.intBitsToFloat(getInt());
+  }
+
+  @Override
+  public double getDouble() {
+    return Double.longBitsToDouble(getLong());
+  }
+
+  @Override
+  public void getByteArray(final byte[] dstArray, final int dstOffsetBytes,
+      final int lengthBytes) {
+    checkValid();
+    checkBounds(dstOffsetBytes, lengthBytes, dstArray.length);
+    checkBounds(position, lengthBytes, capacityBytes);
+    long dstAdd = ARRAY_BYTE_BASE_OFFSET + dstOffsetBytes;
+    long remaining = lengthBytes;
+    while (remaining > 0) {
+      if (position < windowStart || position >= windowEnd) {
+        moveTo(position / windowBytes);
+      }
+      final long chunk = Math.min(remaining, windowEnd - position);
+      CompareAndCopy.copyMemoryCheckingDifferentObject(null,
+          windowAddress + (position - windowStart), dstArray, dstAdd, chunk);
+      position += chunk;
+      dstAdd += chunk;
+      remaining -= chunk;
+    }
+  }
+
+  @Override
+  public boolean isValid() {
+    return valid;
+  }
+
+  @Override
+  public void close() {
+    if (!valid) { return; }
+    valid = false;
+    windowStart = windowEnd = windowAddress = 0;
+    RuntimeException failure = null;
+    for (final AllocateDirectMap window : windows.values()) {
+      try {
+        window.close(); //waits for a prefetch in progress
+      } catch (final RuntimeException e) {
+        if (failure == null) { failure = e; } else { failure.addSuppressed(e); }
+      }
+    }
+    windows.clear();
+    if (failure != null) { throw failure; }
+  }
+
+  /**
+   * Checks and advances the position for a read of the given size, mapping the window of the
+   * position if required.
+   * @param bytes the size of the read
+   * @return the address to read from, or zero if the read straddles two windows, in which case
+   * the position has not been advanced.
+   */
+  private long address(final int bytes) {
+    checkValid();
+    final long pos = position;
+    checkBounds(pos, bytes, capacityBytes);
+    if (pos < windowStart || pos + bytes > windowEnd) {
+      moveTo(pos / windowBytes);
+      if (pos + bytes > windowEnd) { return 0; }
+    }
+    position = pos + bytes;
+    return windowAddress + (pos - windowStart);
+  }
+
+  //Reads a value that straddles two windows into the straddle array
+  private byte[] straddle(final int bytes) {
+    getByteArray(straddle, 0, bytes);
+    return straddle;
+  }
+
+  private void moveTo(final long index) {
+    AllocateDirectMap window = windows.get(index);
+    if (window == null) {
+      window = mapWindow(index);
+    }
+    windowStart = index * windowBytes;
+    windowEnd = windowStart + window.capacityBytes;
+    windowAddress = window.nativeBaseOffset;
+    if (prefetchExecutor != null && windowEnd < capacityBytes
+        && !windows.containsKey(index + 1)) {
+      final AllocateDirectMap next = mapWindow(index + 1);
+      next.loadAsync(0, next.capacityBytes, prefetchExecutor);
+    }
+  }
+
+  private AllocateDirectMap mapWindow(final long index) {
+    final long start = index * windowBytes;
+    final long length = Math.min(windowBytes, capacityBytes - start);
+    final AllocateDirectMap window = new AllocateDirectMap(file, start, length, length, true, true);
+    windows.put(index, window);
+    return window;
+  }
+
+  private void checkValid() {
+    if (!valid) {
+      throw new IllegalStateException("MemoryImpl not valid.");
+    }
+  }
+
+}
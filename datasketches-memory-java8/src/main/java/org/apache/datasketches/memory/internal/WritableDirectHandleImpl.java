@@ -19,8 +19,11 @@
 
 package org.apache.datasketches.memory.internal;
 
+import java.nio.ByteOrder;
+
 import org.apache.datasketches.memory.Handle;
 import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.MemoryRequestServer;
 import org.apache.datasketches.memory.WritableHandle;
 import org.apache.datasketches.memory.WritableMemory;
 
@@ -55,6 +58,25 @@ public final class WritableDirectHandleImpl implements WritableHandle {
     return wMem;
   }
 
+  @Override
+  public WritableMemory resize(final long newCapacityBytes) {
+    Util.zeroCheck(newCapacityBytes, "newCapacityBytes");
+    if (wMem == null) {
+      throw new IllegalStateException("MemoryImpl not valid.");
+    }
+    final ByteOrder byteOrder = wMem.getTypeByteOrder();
+    final MemoryRequestServer memReqSvr = wMem.getMemoryRequestServer();
+    long capacityBytes = wMem.getCapacity();
+    try {
+      direct.resize(newCapacityBytes);
+      capacityBytes = newCapacityBytes;
+    } finally {
+      wMem = BaseWritableMemoryImpl.newDirectLeaf(direct.getNativeBaseOffset(), capacityBytes,
+          direct.getValid(), byteOrder, memReqSvr);
+    }
+    return wMem;
+  }
+
   //AutoCloseable
 
   @Override
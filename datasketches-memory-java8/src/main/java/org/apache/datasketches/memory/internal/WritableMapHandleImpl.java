@@ -19,6 +19,10 @@
 
 package org.apache.datasketches.memory.internal;
 
+import java.nio.ByteOrder;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 import org.apache.datasketches.memory.Handle;
 import org.apache.datasketches.memory.WritableMapHandle;
 import org.apache.datasketches.memory.WritableMemory;
@@ -44,8 +48,67 @@ public final class WritableMapHandleImpl extends MapHandleImpl
     return wMem;
   }
 
+  @Override
+  public WritableMemory resize(final long newCapacityBytes) {
+    Util.zeroCheck(newCapacityBytes, "newCapacityBytes");
+    if (wMem == null) {
+      throw new IllegalStateException("MemoryImpl not valid.");
+    }
+    if (wMem.isReadOnly()) {
+      throw new ReadOnlyException("MemoryImpl Mapped File is Read Only.");
+    }
+    final ByteOrder byteOrder = wMem.getTypeByteOrder();
+    dirMap.resize(newCapacityBytes);
+    wMem = dirMap.newLeaf(0, byteOrder);
+    return wMem;
+  }
+
+  @Override
+  public WritableMemory extend(final long newCapacityBytes) {
+    Util.zeroCheck(newCapacityBytes, "newCapacityBytes");
+    if (wMem == null) {
+      throw new IllegalStateException("MemoryImpl not valid.");
+    }
+    if (wMem.isReadOnly()) {
+      throw new ReadOnlyException("MemoryImpl Mapped File is Read Only.");
+    }
+    final ByteOrder byteOrder = wMem.getTypeByteOrder();
+    dirMap.extendMapping(newCapacityBytes);
+    wMem = dirMap.newLeaf(0, byteOrder);
+    return wMem;
+  }
+
+  @Override
+  public WritableMemory trackDirtyPages() {
+    if (wMem == null) {
+      throw new IllegalStateException("MemoryImpl not valid.");
+    }
+    if (wMem.isReadOnly()) {
+      throw new ReadOnlyException("MemoryImpl Mapped File is Read Only.");
+    }
+    dirMap.startDirtyPageTracking();
+    wMem = dirMap.newLeaf(0, wMem.getTypeByteOrder());
+    return wMem;
+  }
+
+  @Override
+  public long forceDirty() {
+    return ((AllocateDirectWritableMap)dirMap).forceDirty();
+  }
+
   @Override
   public void force() {
     ((AllocateDirectWritableMap)dirMap).force();
   }
+
+  @Override
+  public void force(final long offsetBytes, final long lengthBytes) {
+    ((AllocateDirectWritableMap)dirMap).force(offsetBytes, lengthBytes);
+  }
+
+  @Override
+  public CompletableFuture<Void> forceAsync(final long offsetBytes, final long lengthBytes,
+      final Executor executor) {
+    return ((AllocateDirectWritableMap)dirMap).forceAsync(offsetBytes, lengthBytes, executor);
+  }
 }
@@ -71,6 +71,27 @@ public abstract class WritableMemoryImpl extends MemoryImpl implements WritableM
         .wrapMap(file, fileOffsetBytes, capacityBytes, false, byteOrder);
   }
 
+  public static WritableMapHandle writableMap(final File file, final long fileOffsetBytes,
+      final long capacityBytes, final long reservedCapacityBytes, final ByteOrder byteOrder) {
+    zeroCheck(capacityBytes, "Capacity");
+    nullCheck(file, "file is null");
+    negativeCheck(fileOffsetBytes, "File offset is negative");
+    if (reservedCapacityBytes < capacityBytes) {
+      throw new IllegalArgumentException("Reserved capacity " + reservedCapacityBytes
+          + " is less than the capacity " + capacityBytes);
+    }
+    return BaseWritableMemoryImpl
+        .wrapMap(file, fileOffsetBytes, capacityBytes, reservedCapacityBytes, false, byteOrder);
+  }
+
+  public static WritableMapHandle writableMapPrivate(final File file, final long fileOffsetBytes,
+      final long capacityBytes, final ByteOrder byteOrder) {
+    zeroCheck(capacityBytes, "Capacity");
+    nullCheck(file, "file is null");
+    negativeCheck(fileOffsetBytes, "File offset is negative");
+    return BaseWritableMemoryImpl.wrapMapPrivate(file, fileOffsetBytes, capacityBytes, byteOrder);
+  }
+
   //ALLOCATE DIRECT
   public static WritableHandle allocateDirect(final long capacityBytes) {
     return allocateDirect(capacityBytes, null);
@@ -81,6 +102,33 @@ public abstract class WritableMemoryImpl extends MemoryImpl implements WritableM
     return BaseWritableMemoryImpl.wrapDirect(capacityBytes, Util.nativeByteOrder, memReqSvr);
   }
 
+  public static WritableHandle allocateDirect(final long capacityBytes, final long alignment,
+      final MemoryRequestServer memReqSvr) {
+    return BaseWritableMemoryImpl.wrapDirect(capacityBytes, alignment, Util.nativeByteOrder,
+        memReqSvr);
+  }
+
+  public static WritableHandle allocateDirectHugePages(final long capacityBytes,
+      final MemoryRequestServer memReqSvr) {
+    return BaseWritableMemoryImpl.wrapDirectHugePages(capacityBytes, Util.nativeByteOrder,
+        memReqSvr);
+  }
+
+  /**
+   * Returns a view of the given memory that reports the given MemoryRequestServer. The view
+   * shares the resource and validity of the given memory. Memory that does not carry a
+   * MemoryRequestServer, such as heap memory, is returned as is.
+   * @param wmem the given memory
+   * @param memReqSvr the MemoryRequestServer to report
+   * @return a view of the given memory that reports the given MemoryRequestServer.
+   */
+  public static WritableMemory withMemoryRequestServer(final WritableMemory wmem,
+      final MemoryRequestServer memReqSvr) {
+    return (wmem instanceof BaseWritableMemoryImpl)
+        ? ((BaseWritableMemoryImpl) wmem).toMemoryRequestServerView(memReqSvr)
+        : wmem;
+  }
+
   //REGIONS
   @Override
   public abstract WritableMemoryImpl writableRegion(long offsetBytes, long capacityBytes);
@@ -238,6 +286,9 @@ public abstract class WritableMemoryImpl extends MemoryImpl implements WritableM
   @Override
   public abstract void clear(long offsetBytes, long lengthBytes);
 
+  @Override
+  public abstract void clearParallel(long offsetBytes, long lengthBytes);
+
   @Override
   public abstract void clearBits(long offsetBytes, byte bitMask);
 
@@ -247,6 +298,13 @@ public abstract class WritableMemoryImpl extends MemoryImpl implements WritableM
   @Override
   public abstract void fill(long offsetBytes, long lengthBytes, byte value);
 
+  @Override
+  public abstract void fillParallel(long offsetBytes, long lengthBytes, byte value);
+
+  @Override
+  public abstract void reverseBytesInPlace(long offsetBytes, long lengthBytes,
+      Class<?> primitiveType);
+
   @Override
   public abstract void setBits(long offsetBytes, byte bitMask);
 
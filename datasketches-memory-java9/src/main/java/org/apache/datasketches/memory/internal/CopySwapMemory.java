@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.memory.internal;
+
+import jdk.internal.misc.Unsafe;
+
+/**
+ * Extracts the version-dependent bulk byte-swapping copy into a standalone class.
+ * This version uses the native intrinsic <i>jdk.internal.misc.Unsafe.copySwapMemory(...)</i>
+ * added in JDK 9.
+ * The appropriate class will be loaded by the class loader
+ * depending on the Java version that is used.
+ * For more information, see: https://openjdk.java.net/jeps/238
+ */
+final class CopySwapMemory {
+    private static final Unsafe UNSAFE = Unsafe.getUnsafe();
+
+    private CopySwapMemory() { }
+
+    /**
+     * Copies bytes from the source to the destination, reversing the byte order of each element.
+     * The regions must not overlap, or must be identical to swap in place.
+     * The caller limits <i>bytes</i> to a safepoint-friendly size.
+     * @param srcBase the source array object, it may be null
+     * @param srcOffset the cumulative source offset
+     * @param destBase the destination array object, it may be null
+     * @param destOffset the cumulative destination offset
+     * @param bytes the number of bytes to copy, a multiple of <i>elemSize</i>
+     * @param elemSize the element size in bytes, which must be 2, 4 or 8
+     */
+    static void copySwapMemory(final Object srcBase, final long srcOffset,
+            final Object destBase, final long destOffset, final long bytes, final long elemSize) {
+        UNSAFE.copySwapMemory(srcBase, srcOffset, destBase, destOffset, bytes, elemSize);
+    }
+}